@@ -21,7 +21,7 @@ import com.microsoft.azure.toolkit.intellij.legacy.function.runner.localrun.Func
 import com.microsoft.azure.toolkit.lib.common.messager.ExceptionNotification;
 import com.microsoft.azure.toolkit.intellij.common.runconfig.RunConfigurationUtils;
 import com.microsoft.azure.toolkit.intellij.legacy.common.AzureRunConfigurationBase;
-import com.microsoft.azure.toolkit.intellij.legacy.function.runner.core.FunctionUtils;
+import com.microsoft.azure.toolkit.intellij.legacy.function.runner.core.FunctionIndex;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
@@ -103,7 +103,7 @@ public class FunctionRunConfigurationProducer extends LazyRunConfigurationProduc
         try {
             for (Iterator<Location<PsiMethod>> iterator = location.getAncestors(PsiMethod.class, false); iterator.hasNext(); ) {
                 final Location<PsiMethod> methodLocation = iterator.next();
-                if (FunctionUtils.isFunctionClassAnnotated(methodLocation.getPsiElement())) {
+                if (FunctionIndex.getInstance(methodLocation.getProject()).isFunction(methodLocation.getPsiElement())) {
                     return methodLocation;
                 }
             }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.function.runner.core;
+
+import com.intellij.codeInsight.AnnotationUtil;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassOwner;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.impl.PsiTreeAnyChangeAbstractAdapter;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureExecutionException;
+import com.microsoft.azure.toolkit.lib.legacy.function.configurations.FunctionConfiguration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.microsoft.azure.toolkit.intellij.legacy.function.runner.core.FunctionUtils.AZURE_FUNCTION_ANNOTATION_CLASS;
+
+/**
+ * Project level index of the azure function methods and their configurations, backed by {@link CachedValue}s:
+ * - function methods of a module are invalidated when PSI of the module or the project roots are changed.
+ * - function methods of a file are invalidated when the file is changed, so line markers only check the annotations once.
+ * - configuration of a function is invalidated when PSI is changed, since bindings may refer to constants in other files.
+ * All the methods require read access.
+ */
+@Service(Service.Level.PROJECT)
+public final class FunctionIndex implements Disposable {
+    private static final Key<SimpleModificationTracker> MODULE_TRACKER = Key.create("azure.function.module.tracker");
+    private static final Key<CachedValue<List<PsiMethod>>> MODULE_FUNCTIONS = Key.create("azure.function.module.functions");
+    private static final Key<CachedValue<Set<PsiMethod>>> FILE_FUNCTIONS = Key.create("azure.function.file.functions");
+    private static final Key<CachedValue<Configuration>> FUNCTION_CONFIGURATION = Key.create("azure.function.configuration");
+
+    private final Project project;
+
+    public FunctionIndex(@Nonnull Project project) {
+        this.project = project;
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeAnyChangeAbstractAdapter() {
+            @Override
+            protected void onChange(@Nullable PsiFile file) {
+                onPsiChanged(file);
+            }
+        }, this);
+    }
+
+    @Nonnull
+    public static FunctionIndex getInstance(@Nonnull Project project) {
+        return project.getService(FunctionIndex.class);
+    }
+
+    @Nonnull
+    public List<PsiMethod> getFunctions(@Nonnull Module module) {
+        final List<PsiMethod> functions = CachedValuesManager.getManager(project).getCachedValue(module, MODULE_FUNCTIONS, () -> {
+            final PsiClass annotationClass = JavaPsiFacade.getInstance(project)
+                .findClass(AZURE_FUNCTION_ANNOTATION_CLASS, GlobalSearchScope.moduleWithLibrariesScope(module));
+            final List<PsiMethod> result = annotationClass == null ? Collections.emptyList() :
+                List.copyOf(AnnotatedElementsSearch.searchPsiMethods(annotationClass, GlobalSearchScope.moduleScope(module)).findAll());
+            return CachedValueProvider.Result.create(result, getModuleTracker(module), ProjectRootModificationTracker.getInstance(project));
+        }, false);
+        return functions.stream().filter(PsiMethod::isValid).collect(Collectors.toList());
+    }
+
+    /**
+     * check if the method is an azure function with the functions of its file, which are cached until the file is changed.
+     */
+    public boolean isFunction(@Nullable PsiMethod method) {
+        final PsiFile file = method == null ? null : method.getContainingFile();
+        if (!(file instanceof PsiClassOwner)) {
+            return false;
+        }
+        final Set<PsiMethod> functions = CachedValuesManager.getManager(project).getCachedValue(file, FILE_FUNCTIONS, () -> {
+            final Set<PsiMethod> result = PsiTreeUtil.findChildrenOfType(file, PsiMethod.class).stream()
+                .filter(FunctionUtils::isFunctionClassAnnotated)
+                .collect(Collectors.toUnmodifiableSet());
+            return CachedValueProvider.Result.create(result, file);
+        }, false);
+        return functions.contains(method);
+    }
+
+    /**
+     * @return copies of the cached configurations of the functions by the function names, which can be modified by callers
+     */
+    @Nonnull
+    public Map<String, FunctionConfiguration> getConfigurations(@Nonnull Collection<PsiMethod> functions) throws AzureExecutionException {
+        final Map<String, FunctionConfiguration> result = new LinkedHashMap<>();
+        for (final PsiMethod function : functions) {
+            final Configuration configuration = CachedValuesManager.getManager(project).getCachedValue(function, FUNCTION_CONFIGURATION, () -> {
+                final PsiAnnotation annotation = AnnotationUtil.findAnnotation(function, AZURE_FUNCTION_ANNOTATION_CLASS);
+                final String name = AnnotationUtil.getDeclaredStringAttributeValue(annotation, "value");
+                Configuration value;
+                try {
+                    value = new Configuration(name, FunctionUtils.generateConfiguration(function), null);
+                } catch (final AzureExecutionException e) {
+                    value = new Configuration(name, null, e);
+                }
+                return CachedValueProvider.Result.create(value, PsiModificationTracker.getInstance(project));
+            }, false);
+            if (configuration.error != null) {
+                throw configuration.error;
+            }
+            result.put(configuration.name, copyOf(Objects.requireNonNull(configuration.configuration)));
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static FunctionConfiguration copyOf(@Nonnull FunctionConfiguration config) {
+        final FunctionConfiguration copy = new FunctionConfiguration();
+        copy.setScriptFile(config.getScriptFile());
+        copy.setEntryPoint(config.getEntryPoint());
+        copy.setBindings(new ArrayList<>(config.getBindings()));
+        return copy;
+    }
+
+    private void onPsiChanged(@Nullable PsiFile file) {
+        final Module module = file == null ? null : ModuleUtilCore.findModuleForFile(file);
+        if (module != null) {
+            getModuleTracker(module).incModificationCount();
+        } else if (file == null) {
+            // files/directories are added, removed or moved
+            for (final Module m : ModuleManager.getInstance(project).getModules()) {
+                getModuleTracker(m).incModificationCount();
+            }
+        }
+    }
+
+    @Nonnull
+    private static SimpleModificationTracker getModuleTracker(@Nonnull Module module) {
+        final SimpleModificationTracker tracker = module.getUserData(MODULE_TRACKER);
+        return tracker != null ? tracker : module.putUserDataIfAbsent(MODULE_TRACKER, new SimpleModificationTracker());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private record Configuration(String name, @Nullable FunctionConfiguration configuration, @Nullable AzureExecutionException error) {
+    }
+}
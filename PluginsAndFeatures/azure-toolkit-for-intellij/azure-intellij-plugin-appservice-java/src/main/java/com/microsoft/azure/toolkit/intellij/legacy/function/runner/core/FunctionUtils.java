@@ -30,7 +30,6 @@ import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiModifierListOwner;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.searches.AnnotatedElementsSearch;
 import com.intellij.util.containers.ContainerUtil;
 import com.microsoft.azure.toolkit.intellij.common.AzureArtifact;
 import com.microsoft.azure.toolkit.intellij.common.AzureArtifactManager;
@@ -78,7 +77,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -90,7 +91,7 @@ import static com.microsoft.azure.toolkit.lib.appservice.function.core.AzureFunc
 public class FunctionUtils {
     private static final int MAX_PORT = 65535;
 
-    private static final String AZURE_FUNCTION_ANNOTATION_CLASS =
+    static final String AZURE_FUNCTION_ANNOTATION_CLASS =
             "com.microsoft.azure.functions.annotation.FunctionName";
     private static final String FUNCTION_JSON = "function.json";
     private static final String HTTP_OUTPUT_DEFAULT_NAME = "$return";
@@ -108,6 +109,9 @@ public class FunctionUtils {
     private static final String AZURE_FUNCTIONS_JAVA_CORE_LIBRARY = "azure-functions-java-core-library";
     private static final Pattern ARTIFACT_NAME_PATTERN = Pattern.compile("(.*)-(\\d+\\.)?(\\d+\\.)?(\\*|\\d+).*");
 
+    // content of the function.json files written into staging folders, by the file path
+    private static final Map<String, String> writtenFunctionJsons = new ConcurrentHashMap<>();
+
     static {
         //initialize required attributes, which will be saved to function.json even if it equals to its default value
         REQUIRED_ATTRIBUTE_MAP.put(BindingEnum.EventHubTrigger, Arrays.asList("cardinality"));
@@ -143,8 +147,24 @@ public class FunctionUtils {
         }
     }
 
+    /**
+     * Get the persistent staging folder of the module, which is synchronized incrementally by {@link #prepareStagingFolder},
+     * or a temp staging folder if the module is unknown or its staging folder is being used.
+     *
+     * @param purpose e.g. "run" or "deploy"
+     */
+    public static File getStagingFolder(@Nullable Module module, @Nonnull String purpose) {
+        return Optional.ofNullable(module)
+            .map(m -> IncrementalStagingFolder.acquire(m, purpose))
+            .orElseGet(FunctionUtils::getTempStagingFolder);
+    }
+
     @AzureOperation(name = "boundary/function.clean_staging_folder.folder", params = {"stagingFolder.getName()"})
     public static void cleanUpStagingFolder(File stagingFolder) {
+        if (IncrementalStagingFolder.isIncremental(stagingFolder)) {
+            IncrementalStagingFolder.release(stagingFolder);
+            return;
+        }
         try {
             if (stagingFolder != null) {
                 FileUtils.deleteDirectory(stagingFolder);
@@ -199,14 +219,7 @@ public class FunctionUtils {
         if (module == null) {
             return new PsiMethod[0];
         }
-        final PsiClass functionNameClass = JavaPsiFacade.getInstance(module.getProject())
-                                                        .findClass(AZURE_FUNCTION_ANNOTATION_CLASS,
-                                                                   GlobalSearchScope.moduleWithLibrariesScope(module));
-        final List<PsiMethod> methods = new ArrayList<>(AnnotatedElementsSearch
-                                                                .searchPsiMethods(functionNameClass,
-                                                                                  GlobalSearchScope.moduleScope(module))
-                                                                .findAll());
-        return methods.toArray(new PsiMethod[0]);
+        return FunctionIndex.getInstance(module.getProject()).getFunctions(module).toArray(new PsiMethod[0]);
     }
 
     public static boolean isFunctionClassAnnotated(final PsiMethod method) {
@@ -244,10 +257,8 @@ public class FunctionUtils {
     public static Map<String, FunctionConfiguration> prepareStagingFolder(@Nonnull final Path stagingFolder, @Nullable final Path hostJson,
                                                                           @Nonnull final Project project, @Nonnull final Module module, PsiMethod[] methods)
             throws AzureExecutionException, IOException {
-        final Map<String, FunctionConfiguration> configMap = ReadAction.compute(() -> generateConfigurations(methods));
-        if (stagingFolder.toFile().isDirectory()) {
-            FileUtils.cleanDirectory(stagingFolder.toFile());
-        }
+        final Map<String, FunctionConfiguration> configMap = ReadAction.compute(() -> FunctionIndex.getInstance(project).getConfigurations(Arrays.asList(methods)));
+        final Map<String, File> stagedFiles = new LinkedHashMap<>();
 
         final Path jarFile;
         // test if it is gradle project
@@ -259,10 +270,11 @@ public class FunctionUtils {
                 final String error = String.format("Failed generate jar file for project(%s)", gradleProject.getName());
                 throw new AzureToolkitRuntimeException(error);
             }
-            FileUtils.copyFileToDirectory(gradleProject.getArtifactFile(), stagingFolder.toFile());
+            stagedFiles.put(jarFile.getFileName().toString(), gradleProject.getArtifactFile());
         } else {
             jarFile = JarUtils.buildJarFileToStagingPath(stagingFolder.toString(), module);
         }
+        deleteStaleFunctions(stagingFolder, configMap.keySet(), jarFile.getFileName().toString());
 
         final String scriptFilePath = "../" + jarFile.getFileName().toString();
         configMap.values().forEach(config -> config.setScriptFile(scriptFilePath));
@@ -297,15 +309,15 @@ public class FunctionUtils {
                 .filter(name -> StringUtils.equalsAnyIgnoreCase(name, AZURE_FUNCTIONS_JAVA_CORE_LIBRARY))
                 .findFirst().orElse(AZURE_FUNCTIONS_JAVA_LIBRARY);
 
-        final File libFolder = new File(stagingFolder.toFile(), "lib");
         for (final File file : dependencies) {
             if (!StringUtils.equalsIgnoreCase(getArtifactIdFromFile(file), libraryToExclude)) {
                 if (!file.exists()) {
                     throw new AzureToolkitRuntimeException(String.format("Dependency artifact (%s) not found, please correct the dependency and try again", file.getAbsolutePath()));
                 }
-                FileUtils.copyFileToDirectory(file, libFolder);
+                stagedFiles.put("lib/" + file.getName(), file);
             }
         }
+        IncrementalStagingFolder.sync(stagingFolder, stagedFiles);
         return configMap;
     }
 
@@ -380,6 +392,21 @@ public class FunctionUtils {
                         .collect(Collectors.toList());
     }
 
+    /**
+     * delete the functions and function jars left by last staging in the staging folder, which are not needed anymore
+     */
+    private static void deleteStaleFunctions(@Nonnull Path stagingFolder, @Nonnull Set<String> functions, @Nonnull String jarName) throws IOException {
+        final File[] files = Optional.ofNullable(stagingFolder.toFile().listFiles()).orElse(new File[0]);
+        for (final File file : files) {
+            final boolean isStaleFunction = file.isDirectory() && new File(file, FUNCTION_JSON).isFile() && !functions.contains(file.getName());
+            final boolean isStaleJar = file.isFile() && file.getName().endsWith(".jar") && !file.getName().equals(jarName);
+            if (isStaleFunction || isStaleJar) {
+                writtenFunctionJsons.remove(new File(file, FUNCTION_JSON).getAbsolutePath());
+                FileUtils.forceDelete(file);
+            }
+        }
+    }
+
     private static void writeFunctionJsonFile(File file, FunctionConfiguration config) throws IOException {
         final Map<String, Object> json = new LinkedHashMap<>();
         json.put("scriptFile", config.getScriptFile());
@@ -403,8 +430,14 @@ public class FunctionUtils {
             }
             json.put("bindings", lists.toArray());
         }
+        // rewrite only if the function is changed since last written
+        final String content = JsonUtils.toJson(json);
+        if (file.isFile() && content.equals(writtenFunctionJsons.get(file.getAbsolutePath()))) {
+            return;
+        }
         file.getParentFile().mkdirs();
         JsonUtils.writeToJsonFile(file, json);
+        writtenFunctionJsons.put(file.getAbsolutePath(), content);
     }
 
     private static String stripExtraCharacters(String fileName) {
@@ -413,19 +446,7 @@ public class FunctionUtils {
                fileName.substring(0, fileName.length() - 2) : fileName;
     }
 
-    private static Map<String, FunctionConfiguration> generateConfigurations(final PsiMethod[] methods)
-            throws AzureExecutionException {
-        final Map<String, FunctionConfiguration> configMap = new HashMap<>();
-        for (final PsiMethod method : methods) {
-            final PsiAnnotation annotation = AnnotationUtil.findAnnotation(method,
-                                                                           FunctionUtils.AZURE_FUNCTION_ANNOTATION_CLASS);
-            final String functionName = AnnotationUtil.getDeclaredStringAttributeValue(annotation, "value");
-            configMap.put(functionName, generateConfiguration(method));
-        }
-        return configMap;
-    }
-
-    private static FunctionConfiguration generateConfiguration(PsiMethod method) throws AzureExecutionException {
+    static FunctionConfiguration generateConfiguration(PsiMethod method) throws AzureExecutionException {
         final FunctionConfiguration config = new FunctionConfiguration();
         final List<Binding> bindings = new ArrayList<>();
         processParameterAnnotations(method, bindings);
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.function.runner.core;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent staging folder of a function module, which is kept between runs/deployments and synchronized incrementally.
+ * - a staged file is skipped if the size and modified time of its source are unchanged, or its content hash is unchanged.
+ * - a staged file is hard linked to its source if it's a released artifact in the local maven/gradle repository, which is
+ * never modified in place, otherwise copied, so that rebuilding a module won't change its staged files. Files are staged
+ * in parallel.
+ * - files staged before but not required anymore are deleted.
+ */
+@Slf4j
+public class IncrementalStagingFolder {
+    private static final String STAGING_FOLDER = "azure-functions-staging";
+    private static final String MANIFEST_SUFFIX = ".manifest.properties";
+    private static final int STAGING_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService executor = Executors.newFixedThreadPool(STAGING_THREADS, r -> {
+        final Thread thread = new Thread(r, "azure-functions-staging");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // staging folders being used by runs/deployments
+    private static final Set<Path> inUse = ConcurrentHashMap.newKeySet();
+    // local repositories of released artifacts, which are safe to be hard linked
+    private static final List<Path> artifactRepositories = getArtifactRepositories();
+
+    /**
+     * @param purpose e.g. "run" or "deploy", so that a run and a deployment of the same module don't share the folder
+     * @return the staging folder, or {@code null} if it's being used by another run/deployment
+     */
+    @Nullable
+    public static File acquire(@Nonnull Module module, @Nonnull String purpose) {
+        final String projectName = FileUtil.sanitizeFileName(module.getProject().getName());
+        final String projectHash = Integer.toHexString(StringUtils.defaultString(module.getProject().getBasePath()).hashCode());
+        final Path folder = getRoot().resolve(projectName + "-" + projectHash).resolve(FileUtil.sanitizeFileName(module.getName())).resolve(purpose);
+        if (!inUse.add(folder)) {
+            return null;
+        }
+        try {
+            Files.createDirectories(folder);
+            return folder.toFile();
+        } catch (final IOException e) {
+            inUse.remove(folder);
+            log.warn("failed to create staging folder {}", folder, e);
+            return null;
+        }
+    }
+
+    /**
+     * release the staging folder without deleting it.
+     */
+    public static void release(@Nonnull File folder) {
+        inUse.remove(folder.toPath());
+    }
+
+    public static boolean isIncremental(@Nullable File folder) {
+        return folder != null && folder.toPath().toAbsolutePath().normalize().startsWith(getRoot());
+    }
+
+    /**
+     * Synchronize files into the staging folder.
+     *
+     * @param files source files by their relative paths in the staging folder
+     */
+    public static void sync(@Nonnull Path stagingFolder, @Nonnull Map<String, File> files) throws IOException {
+        final Path manifestFile = stagingFolder.resolveSibling(stagingFolder.getFileName() + MANIFEST_SUFFIX);
+        final Properties manifest = loadManifest(manifestFile);
+        final Properties updated = new Properties();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (final Map.Entry<String, File> entry : files.entrySet()) {
+            final String relative = entry.getKey();
+            final String old = manifest.getProperty(relative);
+            futures.add(CompletableFuture.runAsync(() -> {
+                final String record = stage(entry.getValue(), stagingFolder.resolve(relative), old);
+                synchronized (updated) {
+                    updated.setProperty(relative, record);
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof StagingException ex ? ex.getCause() : new IOException(e.getCause());
+        }
+        for (final String stale : manifest.stringPropertyNames()) {
+            if (!updated.containsKey(stale)) {
+                Files.deleteIfExists(stagingFolder.resolve(stale));
+            }
+        }
+        try (final Writer writer = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8)) {
+            updated.store(writer, "files staged in " + stagingFolder);
+        }
+    }
+
+    /**
+     * @param old record of last staging, i.e. "size|modified|source"
+     * @return record of this staging
+     */
+    @Nonnull
+    private static String stage(@Nonnull File source, @Nonnull Path target, @Nullable String old) {
+        final String record = source.length() + "|" + source.lastModified() + "|" + source.getAbsolutePath();
+        try {
+            final File targetFile = target.toFile();
+            if (targetFile.isFile() && targetFile.length() == source.length()) {
+                if (record.equals(old) || hash(source).equals(hash(targetFile))) {
+                    return record;
+                }
+            }
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            if (!isReleasedArtifact(source) || !link(source, target)) {
+                Files.copy(source.toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            return record;
+        } catch (final IOException e) {
+            throw new StagingException(e);
+        }
+    }
+
+    /**
+     * the target is replaced instead of written when updated, so it's safe to be a hard link of an immutable source
+     */
+    private static boolean link(@Nonnull File source, @Nonnull Path target) {
+        try {
+            Files.createLink(target, source.toPath());
+            return true;
+        } catch (final IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return {@code true} if the file is a released artifact in a local maven/gradle repository, snapshots may be
+     * overwritten by later builds.
+     */
+    private static boolean isReleasedArtifact(@Nonnull File file) {
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        return artifactRepositories.stream().anyMatch(path::startsWith) && !StringUtils.containsIgnoreCase(path.toString(), "-SNAPSHOT");
+    }
+
+    @Nonnull
+    private static List<Path> getArtifactRepositories() {
+        final String userHome = System.getProperty("user.home");
+        final String gradleHome = StringUtils.firstNonBlank(System.getenv("GRADLE_USER_HOME"), Paths.get(userHome, ".gradle").toString());
+        return List.of(
+            Paths.get(userHome, ".m2", "repository").toAbsolutePath().normalize(),
+            Paths.get(gradleHome, "caches", "modules-2", "files-2.1").toAbsolutePath().normalize()
+        );
+    }
+
+    @Nonnull
+    private static HashCode hash(@Nonnull File file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file).hash(Hashing.murmur3_128());
+    }
+
+    @Nonnull
+    private static Properties loadManifest(@Nonnull Path manifestFile) {
+        final Properties manifest = new Properties();
+        if (Files.isRegularFile(manifestFile)) {
+            try (final Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            } catch (final IOException | IllegalArgumentException e) {
+                log.warn("failed to load staging manifest {}, all files will be staged again", manifestFile, e);
+                manifest.clear();
+            }
+        }
+        return manifest;
+    }
+
+    @Nonnull
+    private static Path getRoot() {
+        return Paths.get(PathManager.getSystemPath(), STAGING_FOLDER).toAbsolutePath().normalize();
+    }
+
+    private static class StagingException extends RuntimeException {
+        private StagingException(@Nonnull IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
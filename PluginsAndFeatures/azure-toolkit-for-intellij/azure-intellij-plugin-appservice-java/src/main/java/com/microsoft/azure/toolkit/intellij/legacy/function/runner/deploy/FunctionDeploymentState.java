@@ -97,7 +97,7 @@ public class FunctionDeploymentState extends AzureRunProfileState<FunctionAppBas
             Optional.ofNullable(module).map(AzureModule::getDefaultProfile).ifPresent(p -> validatePermissionForIdentityConnections(app, p));
         }
         functionDeployConfiguration.setAppSettings(target.getAppSettings()); // save app settings
-        stagingFolder = FunctionUtils.getTempStagingFolder();
+        stagingFolder = FunctionUtils.getStagingFolder(functionDeployConfiguration.getModule(), "deploy");
         prepareStagingFolder(stagingFolder, operation);
         // deploy function to Azure
         deployFunctionApp(target, stagingFolder, messenger);
@@ -148,7 +148,7 @@ public class FunctionRunState extends AzureRunProfileState<Boolean> {
         // Prepare staging Folder
         OperationContext.current().setMessager(getProcessHandlerMessenger());
         validateFunctionRuntime();
-        stagingFolder = FunctionUtils.getTempStagingFolder();
+        stagingFolder = FunctionUtils.getStagingFolder(functionRunConfiguration.getModule(), "run");
         addProcessTerminatedListener(processHandler);
         prepareStagingFolder(stagingFolder, processHandler, operation);
         // Run Function Host
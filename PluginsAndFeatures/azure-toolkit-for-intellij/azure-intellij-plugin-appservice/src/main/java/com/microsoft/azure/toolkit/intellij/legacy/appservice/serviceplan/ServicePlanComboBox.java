@@ -32,6 +32,7 @@ import javax.swing.*;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -137,6 +138,16 @@ public class ServicePlanComboBox extends AzureComboBox<AppServicePlan> {
         return plan.getName();
     }
 
+    @Nullable
+    @Override
+    protected Object getItemsCacheKey() {
+        // draft items are not cached
+        if (Objects.isNull(this.subscription) || CollectionUtils.isNotEmpty(this.draftItems)) {
+            return null;
+        }
+        return Arrays.asList(this.subscription.getId(), this.region, this.os, this.pricingTierList, Objects.nonNull(this.servicePlanFilter));
+    }
+
     @Nonnull
     @Override
     @AzureOperation(name = "internal/$appservice.list_plans.subscription|region|os", params = {"this.subscription.getId()", "this.region.getName()", "this.os.name()"})
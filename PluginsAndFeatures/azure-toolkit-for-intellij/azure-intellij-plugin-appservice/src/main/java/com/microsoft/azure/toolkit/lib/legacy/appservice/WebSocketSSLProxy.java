@@ -16,24 +16,63 @@ import com.neovisionaries.ws.client.WebSocketAdapter;
 import com.neovisionaries.ws.client.WebSocketException;
 import com.neovisionaries.ws.client.WebSocketExtension;
 import com.neovisionaries.ws.client.WebSocketFactory;
+import com.neovisionaries.ws.client.WebSocketFrame;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
 
+/**
+ * Local proxy of the App Service tunnel web socket, e.g. for SSH and SFTP.
+ * Every accepted local connection is a session with its own web socket, the local sockets of all sessions are served
+ * by {@link #EVENT_LOOPS} selector loops. Reads from local sockets go into pooled frame buffers, which are sent as is
+ * when full and returned to the pool once the frame is sent.
+ */
 @Slf4j
 public class WebSocketSSLProxy {
-    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+    private static final int EVENT_LOOPS = 2;
+    private static final int MAX_POOLED_BUFFERS = 64;
+    // stop reading from the local socket when too many frames are waiting to be sent
+    private static final int MAX_UNSENT_FRAMES = 16;
+    // block the web socket reading thread when too many bytes are waiting to be written to the local socket
+    private static final int MAX_PENDING_BYTES = 1024 * 1024;
+    private static final ExecutorService CONNECTOR = Executors.newCachedThreadPool(r -> {
+        final Thread thread = new Thread(r, "WebsocketSSLProxy-connector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final AppServiceAppBase<?, ?, ?> app;
 
+    /**
+     * max payload size of the frames sent to remote, which is also the size of pooled buffers.
+     */
     @Setter
     @Getter
     private int bufferSize = DEFAULT_BUFFER_SIZE;
@@ -42,41 +81,41 @@ public class WebSocketSSLProxy {
     @Getter
     private int connectTimeout = 0;
 
+    /**
+     * whether to coalesce the data available in local socket into one frame, and the messages from remote into one
+     * write of local socket, the frames are flushed once per read if enabled.
+     */
+    @Setter
+    @Getter
+    private boolean coalescing = true;
+
     private final String webSocketServerUri;
-    private ServerSocket serverSocket;
-    private Thread thread;
-    private WebSocket webSocket;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private ServerSocketChannel serverSocket;
+    private EventLoop[] loops;
+    private BufferPool pool;
 
     public WebSocketSSLProxy(String webSocketServerUri, AppServiceAppBase<?, ?, ?> appService) {
         this.webSocketServerUri = webSocketServerUri;
         this.app = appService;
     }
 
-    public void start() throws IOException {
+    public synchronized void start() throws IOException {
         close();
+        this.pool = new BufferPool(bufferSize);
         // InetAddress.getByName(null) points to the loopback address (127.0.0.1)
-        serverSocket = new ServerSocket(0, 1, InetAddress.getByName(null));
-        thread = new Thread(() -> {
-            try {
-                for (; ; ) {
-                    final Socket clientSocket = serverSocket.accept();
-                    createWebSocketToSocket(clientSocket);
-                    pipeSocketDataToWebSocket(clientSocket);
-                }
-            } catch (final IOException | WebSocketException e) {
-                handleConnectionBroken(e);
-            }
-
-        });
-        thread.setName("WebsocketSSLProxy-" + thread.getId());
-        thread.start();
+        serverSocket = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getByName(null), 0));
+        serverSocket.configureBlocking(false);
+        loops = new EventLoop[EVENT_LOOPS];
+        for (int i = 0; i < EVENT_LOOPS; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        serverSocket.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        Arrays.stream(loops).forEach(EventLoop::start);
     }
 
-    public void close() {
-        if (this.webSocket != null) {
-            this.webSocket.disconnect();
-            this.webSocket = null;
-        }
+    public synchronized void close() {
         if (this.serverSocket != null) {
             try {
                 serverSocket.close();
@@ -85,18 +124,18 @@ public class WebSocketSSLProxy {
             }
             serverSocket = null;
         }
-
-        if (thread != null) {
-            this.thread.interrupt();
-            this.thread = null;
+        new ArrayList<>(this.sessions).forEach(Session::close);
+        if (loops != null) {
+            Arrays.stream(loops).forEach(EventLoop::close);
+            loops = null;
         }
     }
 
-    public int getLocalPort() {
+    public synchronized int getLocalPort() {
         if (Objects.isNull(serverSocket)) {
             return 0;
         }
-        return serverSocket.getLocalPort();
+        return serverSocket.socket().getLocalPort();
     }
 
     private void handleConnectionBroken(Exception e) {
@@ -106,19 +145,22 @@ public class WebSocketSSLProxy {
         close();
     }
 
-    private void pipeSocketDataToWebSocket(Socket socket) throws IOException {
-        final byte[] buffer = new byte[bufferSize];
-        while (true) {
-            final int bytesRead = socket.getInputStream().read(buffer);
-            if (bytesRead == -1) {
-                break;
-            }
-
-            webSocket.sendBinary(Arrays.copyOfRange(buffer, 0, bytesRead));
+    private void accept(ServerSocketChannel server) throws IOException {
+        final SocketChannel client = server.accept();
+        if (Objects.isNull(client)) {
+            return;
         }
+        client.configureBlocking(false);
+        client.socket().setTcpNoDelay(true);
+        final EventLoop[] current = this.loops;
+        final Session session = new Session(client, current[Math.floorMod(nextLoop.getAndIncrement(), current.length)], pool);
+        sessions.add(session);
+        session.submit(() -> session.key = client.register(session.loop.selector, 0, session));
+        // getting access token and web socket handshake are blocking
+        CONNECTOR.execute(session::connect);
     }
 
-    private void createWebSocketToSocket(Socket client) throws IOException, WebSocketException {
+    private WebSocket createWebSocket(WebSocketAdapter listener) throws IOException, WebSocketException {
         final Account account = Azure.az(AzureAccount.class).account();
         final String[] scopes = ScopeUtil.resourceToScopes(account.getEnvironment().getManagementEndpoint());
         final TokenRequestContext request = (new TokenRequestContext()).addScopes(scopes);
@@ -126,16 +168,288 @@ public class WebSocketSSLProxy {
 
         final WebSocket socket = new WebSocketFactory().setConnectionTimeout(connectTimeout).createSocket(webSocketServerUri);
         socket.addHeader("Authorization", "Bearer " + accessToken);
-        this.webSocket = socket
-            .addListener(new WebSocketAdapter() {
-                @Override
-                public void onBinaryMessage(WebSocket websocket, byte[] bytes) {
+        socket.setAutoFlush(!coalescing);
+        return socket.addListener(listener).addExtension(WebSocketExtension.PERMESSAGE_DEFLATE).connect();
+    }
+
+    /**
+     * A local connection and its web socket.
+     */
+    private class Session extends WebSocketAdapter {
+        private final SocketChannel client;
+        private final EventLoop loop;
+        private final BufferPool pool;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // the pooled buffers used as payload of the frames not sent yet
+        private final Map<WebSocketFrame, byte[]> pooledFrames = new ConcurrentHashMap<>();
+        private final AtomicInteger unsentFrames = new AtomicInteger();
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private int pendingBytes = 0;
+        private WebSocket webSocket;
+        private SelectionKey key;
+        private boolean readPaused;
+
+        private Session(SocketChannel client, EventLoop loop, BufferPool pool) {
+            this.client = client;
+            this.loop = loop;
+            this.pool = pool;
+        }
+
+        private void connect() {
+            try {
+                this.webSocket = createWebSocket(this);
+                this.submit(() -> this.key.interestOps(this.key.interestOps() | SelectionKey.OP_READ));
+            } catch (final IOException | WebSocketException | RuntimeException e) {
+                log.warn(message("common.webSocket.error.proxyingWebSocketFailed", e.getMessage()));
+                this.close();
+            }
+        }
+
+        /**
+         * called in the event loop when local socket is readable
+         */
+        private void read() throws IOException {
+            final byte[] frame = this.pool.acquire();
+            final ByteBuffer buffer = ByteBuffer.wrap(frame);
+            int read;
+            do {
+                read = this.client.read(buffer);
+            } while (coalescing && read > 0 && buffer.hasRemaining());
+            if (buffer.position() == frame.length) {
+                final WebSocketFrame binary = WebSocketFrame.createBinaryFrame(frame);
+                this.pooledFrames.put(binary, frame);
+                this.send(binary);
+            } else {
+                if (buffer.position() > 0) {
+                    this.send(WebSocketFrame.createBinaryFrame(Arrays.copyOf(frame, buffer.position())));
+                }
+                this.pool.release(frame);
+            }
+            if (!this.webSocket.isAutoFlush()) {
+                this.webSocket.flush();
+            }
+            if (read < 0) {
+                this.close();
+            } else if (this.unsentFrames.get() >= MAX_UNSENT_FRAMES) {
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+                this.readPaused = true;
+            }
+        }
+
+        /**
+         * run the task in the event loop of this session, the session is closed if the task fails.
+         */
+        private void submit(IORunnable task) {
+            this.loop.execute(() -> {
+                try {
+                    task.run();
+                } catch (final IOException | RuntimeException e) {
+                    log.debug("session of web socket proxy is closed", e);
+                    this.close();
+                }
+            });
+        }
+
+        private void send(WebSocketFrame frame) {
+            this.unsentFrames.incrementAndGet();
+            this.webSocket.sendFrame(frame);
+        }
+
+        /**
+         * called in the event loop when local socket is writable or new message is received from remote
+         */
+        private void write() throws IOException {
+            final ByteBuffer[] buffers;
+            synchronized (this.pending) {
+                buffers = coalescing ? this.pending.toArray(new ByteBuffer[0]) : new ByteBuffer[]{this.pending.peek()};
+            }
+            if (buffers.length == 0 || buffers[0] == null) {
+                return;
+            }
+            final long written = this.client.write(buffers);
+            synchronized (this.pending) {
+                this.pendingBytes -= written;
+                while (!this.pending.isEmpty() && !this.pending.peek().hasRemaining()) {
+                    this.pending.poll();
+                }
+                this.pending.notifyAll();
+                final int ops = this.pending.isEmpty() ? this.key.interestOps() & ~SelectionKey.OP_WRITE : this.key.interestOps() | SelectionKey.OP_WRITE;
+                this.key.interestOps(ops);
+            }
+        }
+
+        @Override
+        public void onBinaryMessage(WebSocket websocket, byte[] bytes) {
+            synchronized (this.pending) {
+                while (this.pendingBytes > MAX_PENDING_BYTES && !this.closed.get()) {
                     try {
-                        client.getOutputStream().write(bytes);
-                    } catch (final IOException e) {
-                        handleConnectionBroken(e);
+                        this.pending.wait();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                this.pending.add(ByteBuffer.wrap(bytes));
+                this.pendingBytes += bytes.length;
+            }
+            this.submit(this::write);
+        }
+
+        @Override
+        public void onFrameSent(WebSocket websocket, WebSocketFrame frame) {
+            this.onFrameDone(frame);
+        }
+
+        @Override
+        public void onFrameUnsent(WebSocket websocket, WebSocketFrame frame) {
+            this.onFrameDone(frame);
+        }
+
+        private void onFrameDone(WebSocketFrame frame) {
+            if (!frame.isBinaryFrame()) {
+                return;
+            }
+            // the frame is compressed in place by permessage-deflate, so it's tracked by the frame instead of payload.
+            final byte[] buffer = this.pooledFrames.remove(frame);
+            if (buffer != null) {
+                this.pool.release(buffer);
+            }
+            if (this.unsentFrames.decrementAndGet() < MAX_UNSENT_FRAMES / 2) {
+                this.submit(() -> {
+                    if (this.readPaused && this.key.isValid()) {
+                        this.readPaused = false;
+                        this.key.interestOps(this.key.interestOps() | SelectionKey.OP_READ);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame, WebSocketFrame clientCloseFrame, boolean closedByServer) {
+            this.close();
+        }
+
+        private void close() {
+            if (!this.closed.compareAndSet(false, true)) {
+                return;
+            }
+            sessions.remove(this);
+            try {
+                this.client.close();
+            } catch (final IOException e) {
+                // ignore
+            }
+            if (this.webSocket != null) {
+                this.webSocket.disconnect();
+            }
+            synchronized (this.pending) {
+                this.pending.clear();
+                this.pending.notifyAll();
+            }
+        }
+    }
+
+    private class EventLoop {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<IORunnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this::run);
+            this.thread.setName("WebsocketSSLProxy-" + index + "-" + thread.getId());
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            this.thread.start();
+        }
+
+        private void execute(IORunnable task) {
+            this.tasks.add(task);
+            this.selector.wakeup();
+        }
+
+        private void close() {
+            try {
+                this.selector.close();
+            } catch (final IOException e) {
+                // ignore
+            }
+        }
+
+        private void run() {
+            try {
+                while (this.selector.isOpen()) {
+                    this.selector.select();
+                    for (IORunnable task = this.tasks.poll(); task != null; task = this.tasks.poll()) {
+                        task.run();
+                    }
+                    final List<SelectionKey> selected = new ArrayList<>(this.selector.selectedKeys());
+                    this.selector.selectedKeys().clear();
+                    for (final SelectionKey key : selected) {
+                        if (key.isValid() && key.isAcceptable()) {
+                            accept((ServerSocketChannel) key.channel());
+                        } else if (key.attachment() instanceof Session session) {
+                            this.serve(key, session);
+                        }
                     }
                 }
-            }).addExtension(WebSocketExtension.PERMESSAGE_DEFLATE).connect();
+            } catch (final ClosedSelectorException e) {
+                // the proxy is closed
+            } catch (final IOException | RuntimeException e) {
+                handleConnectionBroken(e);
+            }
+        }
+
+        private void serve(SelectionKey key, Session session) {
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    session.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    session.write();
+                }
+            } catch (final IOException | RuntimeException e) {
+                // only the session is broken, e.g. the client disconnects or the key is cancelled by closing session
+                log.debug("session of web socket proxy is closed", e);
+                session.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+
+    /**
+     * Pool of buffers of the frame size, reused as payload of full frames.
+     */
+    private static class BufferPool {
+        private final int size;
+        private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        private BufferPool(int size) {
+            this.size = size;
+        }
+
+        private byte[] acquire() {
+            final byte[] buffer = this.buffers.poll();
+            if (buffer == null) {
+                return new byte[this.size];
+            }
+            this.count.decrementAndGet();
+            return buffer;
+        }
+
+        private void release(byte[] buffer) {
+            if (buffer.length == this.size && this.count.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+                this.buffers.offer(buffer);
+            } else if (buffer.length == this.size) {
+                this.count.decrementAndGet();
+            }
+        }
     }
 }
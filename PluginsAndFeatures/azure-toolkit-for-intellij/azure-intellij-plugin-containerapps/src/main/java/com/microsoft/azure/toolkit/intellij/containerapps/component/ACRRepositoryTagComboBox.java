@@ -10,9 +10,12 @@ import com.microsoft.azure.toolkit.lib.containerregistry.Repository;
 import com.microsoft.azure.toolkit.lib.containerregistry.Tag;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class ACRRepositoryTagComboBox extends AzureComboBox<Tag> {
@@ -52,4 +55,16 @@ public class ACRRepositoryTagComboBox extends AzureComboBox<Tag> {
         }
         return Collections.emptyList();
     }
+
+    @Nullable
+    @Override
+    protected Object getItemsCacheKey() {
+        return Optional.ofNullable(this.repository).map(Repository::getId).orElse(null);
+    }
+
+    @Nonnull
+    @Override
+    protected Duration getItemsCacheTtl() {
+        return Duration.ofMinutes(1); // tags are added by image pushes
+    }
 }
@@ -259,6 +259,7 @@ public class SparkBatchJobDeployFactory implements ILogger {
         }
 
         //TODO:use httpobservable to replace sparkbathsubmission and deprecate the old constructor.
-        return jobDeploy;
+        // Skip uploading the unchanged artifacts deployed to the same destination before
+        return jobDeploy == null ? null : new DeduplicatedDeploy(jobDeploy);
     }
 }
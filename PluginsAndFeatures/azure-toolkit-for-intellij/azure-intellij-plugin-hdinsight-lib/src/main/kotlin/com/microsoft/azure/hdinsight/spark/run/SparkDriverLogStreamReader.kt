@@ -24,6 +24,7 @@ package com.microsoft.azure.hdinsight.spark.run
 
 import com.intellij.execution.process.ProcessHandler
 import com.intellij.execution.process.ProcessOutputTypes.SYSTEM
+import com.intellij.openapi.util.Key
 import com.intellij.util.concurrency.AppExecutorUtil
 import com.intellij.util.io.BaseOutputReader
 import com.microsoft.azure.hdinsight.common.ConsoleViewLogLine
@@ -39,9 +40,19 @@ class SparkDriverLogStreamReader(val processHandler: ProcessHandler,
                                  inputStream: InputStream,
                                  private val logSource: String)
     : BaseOutputReader(inputStream, Charset.forName("UTF-8")) {
+    companion object {
+        // The lines of the same type are notified in one batch per flush interval, or once the batch is too large
+        private const val FLUSH_INTERVAL_MS = 100L
+        private const val MAX_BATCH_CHARS = 64 * 1024
+    }
+
     private val defaultMessageInfoType = MessageInfoType.Log
     private var previousLogLine = SparkLogLine(logSource, defaultMessageInfoType, "")
 
+    private val batch = StringBuilder()
+    private var batchType: Key<*>? = null
+    private var batchStartTime = 0L
+
     init {
         start("Reading Spark Driver log $logSource")
     }
@@ -54,14 +65,41 @@ class SparkDriverLogStreamReader(val processHandler: ProcessHandler,
         // The second parameter is of Key<Any> type and there are only 3 registered Keys: SYSTEM, STDOUT and STDERR.
         // To support more log style, we registered more Keys in class ConsoleViewTypeRegistration at application
         // startup
-        processHandler.notifyTextAvailable(
-                consoleViewLogLine.formatText, contentTypeKeyMap[consoleViewLogLine.contentType] ?: SYSTEM)
+        val outputType = contentTypeKeyMap[consoleViewLogLine.contentType] ?: SYSTEM
+
+        if (batchType != outputType) {
+            flushBatch()
+            batchType = outputType
+            batchStartTime = System.currentTimeMillis()
+        }
+
+        batch.append(consoleViewLogLine.formatText)
+
+        if (batch.length >= MAX_BATCH_CHARS || System.currentTimeMillis() - batchStartTime >= FLUSH_INTERVAL_MS) {
+            flushBatch()
+        }
 
         // Update previous log line
         previousLogLine = typedLogLine
     }
 
+    override fun onBufferExhaustion() {
+        // No more text to read for now, notify the pending lines
+        flushBatch()
+    }
+
+    private fun flushBatch() {
+        val outputType = batchType ?: return
+
+        if (batch.isNotEmpty()) {
+            processHandler.notifyTextAvailable(batch.toString(), outputType)
+            batch.setLength(0)
+        }
+
+        batchStartTime = System.currentTimeMillis()
+    }
+
     override fun executeOnPooledThread(runnable: Runnable): Future<*> {
         return AppExecutorUtil.getAppExecutorService().submit(runnable)
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,8 @@
 
 package com.microsoft.azure.toolkit.intellij.common;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CustomShortcutSet;
@@ -25,7 +27,6 @@ import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
 import com.microsoft.azure.toolkit.lib.common.utils.TailingDebouncer;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -41,8 +42,10 @@ import java.awt.event.InputEvent;
 import java.awt.event.ItemEvent;
 import java.awt.event.KeyEvent;
 import java.io.InterruptedIOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -55,6 +58,12 @@ import static com.intellij.ui.AnimatedIcon.ANIMATION_IN_RENDERER_ALLOWED;
 public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputComponent<T> {
     public static final String EMPTY_ITEM = StringUtils.EMPTY;
     private static final int DEBOUNCE_DELAY = 500;
+    private static final Duration DEFAULT_ITEMS_CACHE_TTL = Duration.ofMinutes(5);
+    // items loaded by all combo boxes, keyed by combo box type and loader parameters, see `getItemsCacheKey`
+    private static final Cache<Object, CachedItems> itemsCache = CacheBuilder.newBuilder()
+        .maximumSize(200)
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .build();
     private final TailingDebouncer reloader;
     private AzureComboBoxEditor myEditor;
     private boolean valueNotSet = true;
@@ -215,6 +224,7 @@ public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputCompo
     }
 
     protected void refreshItems() {
+        Optional.ofNullable(this.getItemsCacheFullKey()).ifPresent(itemsCache::invalidate);
         this.reloadItems();
     }
 
@@ -226,12 +236,56 @@ public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputCompo
     @AzureOperation(name = "internal/common.load_combobox_items.type", params = {"this.getLabel()"})
     private void doReloadItems() {
         AzureTaskManager.getInstance().runOnPooledThread(() -> {
-            this.setLoading(true);
-            this.setItems(this.loadItemsInner());
+            final Object key = this.getItemsCacheFullKey();
+            final CachedItems cached = Objects.isNull(key) ? null : itemsCache.getIfPresent(key);
+            if (Objects.nonNull(cached)) {
+                // show the cached items immediately, and revalidate them in background if expired.
+                this.setItems((List<? extends T>) cached.items);
+                this.setLoading(false);
+                if (!cached.isExpired(this.getItemsCacheTtl())) {
+                    return;
+                }
+            } else {
+                this.setLoading(true);
+            }
+            final List<? extends T> items = this.tryLoadItems();
+            if (Objects.nonNull(key) && !Objects.equals(key, this.getItemsCacheFullKey())) {
+                return; // parameters changed during loading, leave it to the reloading of new parameters.
+            }
+            if (Objects.nonNull(key) && Objects.nonNull(items)) {
+                itemsCache.put(key, new CachedItems(items));
+            }
+            if (Objects.nonNull(items) || Objects.isNull(cached)) {
+                this.setItems(ObjectUtils.firstNonNull(items, Collections.emptyList()));
+            }
             this.setLoading(false);
         });
     }
 
+    /**
+     * Key of the loaded items in the shared items cache, which must contain all the parameters the items are loaded by,
+     * e.g. subscription id, so that the cached items can be shown immediately when the combo box of the same type is
+     * reloaded with the same parameters. {@code null} means the items are not cached.
+     */
+    @Nullable
+    protected Object getItemsCacheKey() {
+        return null;
+    }
+
+    /**
+     * Time to live of the cached items, the expired items are still shown but revalidated in background.
+     */
+    @Nonnull
+    protected Duration getItemsCacheTtl() {
+        return DEFAULT_ITEMS_CACHE_TTL;
+    }
+
+    @Nullable
+    private Object getItemsCacheFullKey() {
+        final Object key = this.getItemsCacheKey();
+        return Objects.isNull(key) ? null : Arrays.asList(this.getClass(), key);
+    }
+
     public List<T> getItems() {
         final List<T> result = new ArrayList<>();
         for (int i = 0; i < this.getItemCount(); i++) {
@@ -242,16 +296,19 @@ public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputCompo
 
     protected synchronized void setItems(final List<? extends T> items) {
         SwingUtilities.invokeLater(() -> {
-            final DefaultComboBoxModel<T> model = (DefaultComboBoxModel<T>) this.getModel();
-            final List<? extends T> oldItems = this.getItems();
             final List<? extends T> newItems = ObjectUtils.firstNonNull(items, Collections.emptyList());
-            final List<? extends T> toRemove = ListUtils.removeAll(oldItems, newItems);
-            final List<? extends T> toAdd = ListUtils.removeAll(newItems, oldItems);
-            final T item = (T) model.getSelectedItem();
-            toRemove.forEach(model::removeElement);
-            model.addAll(toAdd);
-            if (Objects.nonNull(item) && !newItems.contains(item)) {
-                model.setSelectedItem(null);
+            if (newItems.equals(this.getItems())) {
+                this.refreshValue();
+                return;
+            }
+            final T item = (T) this.getModel().getSelectedItem();
+            // swap the model in one step instead of removing/adding items one by one, each of which fires events.
+            final boolean dropped = Objects.nonNull(item) && !newItems.contains(item);
+            final DefaultComboBoxModel<T> model = new DefaultComboBoxModel<>(new Vector<>(newItems));
+            model.setSelectedItem(dropped ? null : item);
+            this.setModel(model);
+            if (dropped) { // setModel() doesn't fire item events as removing the selected item does
+                this.fireItemStateChanged(new ItemEvent(this, ItemEvent.ITEM_STATE_CHANGED, item, ItemEvent.DESELECTED));
             }
             this.refreshValue();
         });
@@ -327,6 +384,14 @@ public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputCompo
     }
 
     protected final List<? extends T> loadItemsInner() {
+        return ObjectUtils.firstNonNull(this.tryLoadItems(), Collections.emptyList());
+    }
+
+    /**
+     * @return the loaded items, or {@code null} if failed to load.
+     */
+    @Nullable
+    private List<? extends T> tryLoadItems() {
         try {
             if (Objects.nonNull(this.itemsLoader)) {
                 return this.itemsLoader.get();
@@ -336,10 +401,10 @@ public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputCompo
         } catch (final Exception e) {
             final Throwable rootCause = ExceptionUtils.getRootCause(e);
             if (!(rootCause instanceof InterruptedIOException) && !(rootCause instanceof InterruptedException)) {
-                return Collections.emptyList();
+                return null;
             }
             this.handleLoadingError(e);
-            return Collections.emptyList();
+            return null;
         }
     }
 
@@ -438,6 +503,20 @@ public class AzureComboBox<T> extends ComboBox<T> implements AzureFormInputCompo
         }
     }
 
+    private static class CachedItems {
+        private final List<?> items;
+        private final long loadedAt;
+
+        private CachedItems(@Nonnull List<?> items) {
+            this.items = Collections.unmodifiableList(new ArrayList<>(items));
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        private boolean isExpired(@Nonnull Duration ttl) {
+            return System.currentTimeMillis() - this.loadedAt > ttl.toMillis();
+        }
+    }
+
     public static class ItemReference<T> {
         private final Predicate<? super T> predicate;
 
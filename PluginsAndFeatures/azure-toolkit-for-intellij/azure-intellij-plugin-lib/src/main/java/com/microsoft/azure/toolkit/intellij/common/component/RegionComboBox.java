@@ -13,9 +13,12 @@ import com.microsoft.azure.toolkit.lib.common.model.Subscription;
 import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.microsoft.azure.toolkit.lib.Azure.az;
 
@@ -54,6 +57,18 @@ public class RegionComboBox extends AzureComboBox<Region> {
         return Collections.emptyList();
     }
 
+    @Nullable
+    @Override
+    protected Object getItemsCacheKey() {
+        return Optional.ofNullable(this.subscription).map(Subscription::getId).orElse(null);
+    }
+
+    @Nonnull
+    @Override
+    protected Duration getItemsCacheTtl() {
+        return Duration.ofHours(1); // available regions rarely change
+    }
+
     @Nonnull
     @Override
     protected List<ExtendableTextComponent.Extension> getExtensions() {
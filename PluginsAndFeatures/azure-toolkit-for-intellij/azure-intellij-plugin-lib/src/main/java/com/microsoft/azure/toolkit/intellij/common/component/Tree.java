@@ -5,7 +5,6 @@
 
 package com.microsoft.azure.toolkit.intellij.common.component;
 
-import com.google.common.collect.Sets;
 import com.intellij.openapi.actionSystem.DataProvider;
 import com.intellij.ui.LoadingNode;
 import com.intellij.ui.TreeUIHelper;
@@ -26,8 +25,9 @@ import javax.annotation.Nullable;
 import javax.swing.*;
 import javax.swing.tree.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static com.intellij.ui.AnimatedIcon.ANIMATION_IN_RENDERER_ALLOWED;
 
@@ -77,12 +77,16 @@ public class Tree extends SimpleTree implements DataProvider {
 
     @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
     public static class TreeNode<T> extends DefaultMutableTreeNode implements Node.ViewRenderer, Node.ChildrenRenderer {
+        private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+        private static final int DEFAULT_ROW_HEIGHT = 20;
         @Nonnull
         @Getter
         @EqualsAndHashCode.Include
         protected final Node<T> inner;
         protected final JTree tree;
         Boolean loaded = null; //null:not loading/loaded, false: loading: true: loaded
+        private int generation = 0; // increased on each children update to cancel the pending chunks of the previous one
+        private boolean moving = false;
 
         public TreeNode(@Nonnull Node<T> n, JTree tree) {
             super(n.getValue(), n.hasChildren());
@@ -185,42 +189,189 @@ public class Tree extends SimpleTree implements DataProvider {
 
         private void setChildren(List<Node<?>> children) {
             AzureTaskManager.getInstance().runLater(() -> {
+                final int generation = ++this.generation;
                 this.removeAllChildren();
-                children.stream().map(n -> new TreeNode<>(n, this.tree)).forEach(this::add);
-                this.addLoadMoreNode();
-                this.loaded = true;
-                this.doUpdateChildren();
+                this.add(new LoadingNode());
+                this.insertChildren(new ArrayList<>(children), 0, generation);
             });
         }
 
+        /**
+         * Update children by a keyed diff against the current children: the removed and moved ones are removed in
+         * one batch, then the added and moved ones are inserted in chunks, each chunk takes no more than
+         * {@link #FRAME_BUDGET_NANOS} of EDT time and fires one {@code nodesWereInserted} event.
+         * The children kept in the longest increasing subsequence of their new positions are not touched.
+         */
         private void updateChildren(List<Node<?>> children) {
             AzureTaskManager.getInstance().runLater(() -> {
-                final Map<Node<?>, TreeNode<?>> oldChildren = IntStream.range(0, this.getChildCount() - 1).mapToObj(this::getChildAt)
-                    .filter(n -> n instanceof TreeNode<?>).map(n -> ((TreeNode<?>) n))
-                    .collect(Collectors.toMap(n -> n.inner, n -> n));
-
-                final Set<Node<?>> newChildrenNodes = new HashSet<>(children);
-                final Set<Node<?>> oldChildrenNodes = oldChildren.keySet();
-                Sets.difference(oldChildrenNodes, newChildrenNodes).forEach(o -> oldChildren.get(o).removeFromParent());
+                final int generation = ++this.generation;
+                final Map<Node<?>, TreeNode<?>> oldChildren = new LinkedHashMap<>();
+                this.children().asIterator().forEachRemaining(c -> {
+                    if (c instanceof TreeNode<?> n) {
+                        oldChildren.putIfAbsent(n.inner, n);
+                    }
+                });
 
+                final Map<Node<?>, Integer> newPositions = new HashMap<>();
                 for (int i = 0; i < children.size(); i++) {
-                    final Node<?> node = children.get(i);
-                    if (!oldChildrenNodes.contains(node)) {
-                        this.insert(new TreeNode<>(node, this.tree), i);
-                    } else { // discarded nodes should be disposed manually to unregister listeners.
-                        node.dispose();
+                    newPositions.putIfAbsent(children.get(i), i);
+                }
+
+                // children kept in place are the ones in the longest increasing subsequence of new positions
+                final List<TreeNode<?>> kept = oldChildren.values().stream()
+                    .filter(n -> newPositions.containsKey(n.inner)).collect(Collectors.toList());
+                final Set<TreeNode<?>> stable = Collections.newSetFromMap(new IdentityHashMap<>());
+                stable.addAll(longestIncreasingSubsequence(kept, n -> newPositions.get(n.inner)));
+
+                final List<Integer> removedIndices = new ArrayList<>();
+                final List<Object> removedNodes = new ArrayList<>();
+                for (int i = 0; i < this.getChildCount(); i++) {
+                    if (this.getChildAt(i) instanceof TreeNode<?> n && !stable.contains(n)) {
+                        removedIndices.add(i);
+                        removedNodes.add(n);
                     }
                 }
+                for (int i = removedIndices.size() - 1; i >= 0; i--) {
+                    final TreeNode<?> removed = (TreeNode<?>) this.getChildAt(removedIndices.get(i));
+                    // moved nodes are reused, don't dispose them on removal
+                    removed.moving = newPositions.containsKey(removed.inner) && oldChildren.get(removed.inner) == removed;
+                    this.remove(removedIndices.get(i));
+                    removed.moving = false;
+                }
+                this.fireNodesRemoved(removedIndices.stream().mapToInt(Integer::intValue).toArray(), removedNodes.toArray());
 
-                this.removeLoadingNode();
-                this.addLoadMoreNode();
-                this.doUpdateChildren();
-                this.loaded = true;
+                final List<Object> newChildren = new ArrayList<>(children.size());
+                final Set<Node<?>> added = new HashSet<>();
+                for (final Node<?> node : children) {
+                    if (!added.add(node)) {
+                        continue; // duplicated
+                    }
+                    final TreeNode<?> old = oldChildren.get(node);
+                    if (Objects.isNull(old)) {
+                        newChildren.add(node);
+                    } else {
+                        if (old.inner != node) { // discarded nodes should be disposed manually to unregister listeners.
+                            node.dispose();
+                        }
+                        newChildren.add(old);
+                    }
+                }
+                this.insertChildren(newChildren, 0, generation);
             });
         }
 
+        /**
+         * Insert the children from the given index in chunks on EDT, the children are either {@link Node}s to
+         * be materialized or {@link TreeNode}s to be reused. The nodes filling the viewport are always materialized
+         * in the first chunk, the rest are chunked by {@link #FRAME_BUDGET_NANOS} over the later frames.
+         */
+        private void insertChildren(List<Object> children, int from, int generation) {
+            if (generation != this.generation) { // superseded by a later update
+                children.subList(from, children.size()).stream()
+                    .filter(c -> c instanceof TreeNode<?> n && Objects.isNull(n.getParent()))
+                    .forEach(c -> ((TreeNode<?>) c).inner.dispose());
+                return;
+            }
+            final long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+            final int minCount = from == 0 ? getViewportRowCount() : 1;
+            final List<Integer> insertedIndices = new ArrayList<>();
+            int i = from;
+            for (; i < children.size() && (i - from < minCount || System.nanoTime() < deadline); i++) {
+                final Object child = children.get(i);
+                if (child instanceof TreeNode<?> stable && stable.getParent() == this) {
+                    continue; // kept in place
+                }
+                final TreeNode<?> node = child instanceof TreeNode<?> moved ? moved : new TreeNode<>((Node<?>) child, this.tree);
+                this.insert(node, i);
+                insertedIndices.add(i);
+            }
+            if (from == 0 && this.getChildCount() == insertedIndices.size() + 1) {
+                this.fireStructureChanged(); // all children are replaced
+            } else {
+                this.fireNodesInserted(insertedIndices.stream().mapToInt(Integer::intValue).toArray());
+            }
+            if (i < children.size()) {
+                final int next = i;
+                AzureTaskManager.getInstance().runLater(() -> this.insertChildren(children, next, generation));
+                return;
+            }
+            this.removeLoadingNode();
+            if (this.inner.hasMoreChildren()) {
+                this.add(new LoadMoreNode());
+                this.fireNodesInserted(new int[]{this.getChildCount() - 1});
+            }
+            this.loaded = true;
+        }
+
+        private int getViewportRowCount() {
+            final int rowHeight = this.tree.getRowHeight() > 0 ? this.tree.getRowHeight() : DEFAULT_ROW_HEIGHT;
+            return Math.max(this.tree.getVisibleRowCount(), this.tree.getVisibleRect().height / rowHeight + 1);
+        }
+
+        private boolean isAttached(@Nullable DefaultTreeModel model) {
+            return Objects.nonNull(model) && (Objects.nonNull(this.getParent()) || Objects.equals(model.getRoot(), this));
+        }
+
+        private void fireStructureChanged() {
+            final DefaultTreeModel model = (DefaultTreeModel) this.tree.getModel();
+            if (this.isAttached(model)) {
+                try {
+                    model.nodeStructureChanged(this);
+                } catch (final NullPointerException ignored) {
+                }
+            }
+        }
+
+        private void fireNodesInserted(int[] indices) {
+            final DefaultTreeModel model = (DefaultTreeModel) this.tree.getModel();
+            if (indices.length > 0 && this.isAttached(model)) {
+                try {
+                    model.nodesWereInserted(this, indices);
+                } catch (final NullPointerException ignored) {
+                }
+            }
+        }
+
+        private void fireNodesRemoved(int[] indices, Object[] removed) {
+            final DefaultTreeModel model = (DefaultTreeModel) this.tree.getModel();
+            if (indices.length > 0 && this.isAttached(model)) {
+                try {
+                    model.nodesWereRemoved(this, indices, removed);
+                } catch (final NullPointerException ignored) {
+                }
+            }
+        }
+
+        private static <E> List<E> longestIncreasingSubsequence(List<E> items, Function<E, Integer> key) {
+            final int[] tails = new int[items.size()]; // index of the smallest tail item of each length
+            final int[] previous = new int[items.size()];
+            int length = 0;
+            for (int i = 0; i < items.size(); i++) {
+                final int k = key.apply(items.get(i));
+                int lo = 0;
+                int hi = length;
+                while (lo < hi) {
+                    final int mid = (lo + hi) >>> 1;
+                    if (key.apply(items.get(tails[mid])) < k) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                previous[i] = lo > 0 ? tails[lo - 1] : -1;
+                tails[lo] = i;
+                length = Math.max(length, lo + 1);
+            }
+            final LinkedList<E> result = new LinkedList<>();
+            for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+                result.addFirst(items.get(i));
+            }
+            return result;
+        }
+
         public void clearChildren() {
             AzureTaskManager.getInstance().runLater(() -> {
+                this.generation++;
                 this.removeAllChildren();
                 this.loaded = null;
                 if (this.getAllowsChildren()) {
@@ -234,22 +385,20 @@ public class Tree extends SimpleTree implements DataProvider {
         @Override
         public void setParent(MutableTreeNode newParent) {
             super.setParent(newParent);
-            if (this.getParent() == null) {
+            if (this.getParent() == null && !this.moving) {
                 this.inner.dispose();
             }
         }
 
+        /**
+         * remove the loading node(s) wherever they are, keyed inserts may have pushed them away from the last position.
+         */
         private void removeLoadingNode() {
-            this.children().asIterator().forEachRemaining(c -> {
-                if (c instanceof LoadingNode) {
-                    ((LoadingNode) c).removeFromParent();
+            for (int i = this.getChildCount() - 1; i >= 0; i--) {
+                if (this.getChildAt(i) instanceof LoadingNode loading) {
+                    this.remove(i);
+                    this.fireNodesRemoved(new int[]{i}, new Object[]{loading});
                 }
-            });
-        }
-
-        private void addLoadMoreNode() {
-            if (this.inner.hasMoreChildren()) {
-                this.add(new LoadMoreNode());
             }
         }
 
@@ -106,6 +106,13 @@ public class ResourceGroupComboBox extends AzureComboBox<ResourceGroup> {
         return groups;
     }
 
+    @Nullable
+    @Override
+    protected Object getItemsCacheKey() {
+        // draft items are not cached
+        return Objects.isNull(this.subscription) || CollectionUtils.isNotEmpty(this.draftItems) ? null : this.subscription.getId();
+    }
+
     @Override
     protected void refreshItems() {
         Optional.ofNullable(this.subscription).ifPresent(s -> Azure.az(AzureResources.class).groups(s.getId()).refresh());
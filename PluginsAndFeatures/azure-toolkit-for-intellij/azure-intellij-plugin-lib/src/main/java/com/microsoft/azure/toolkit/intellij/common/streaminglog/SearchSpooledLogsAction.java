@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.common.streaminglog;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.testFramework.LightVirtualFile;
+import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTask;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
+
+/**
+ * Search the lines spooled by {@link StreamingLogSpool} of a streaming log console, the matched lines are opened in an editor.
+ */
+public class SearchSpooledLogsAction extends DumbAwareAction {
+    private static final String SEPARATOR = System.getProperty("line.separator");
+    private static final int MAX_RESULT_LINES = 100_000;
+    private final StreamingLogsConsoleView consoleView;
+    private final String resourceName;
+
+    public SearchSpooledLogsAction(@NotNull StreamingLogsConsoleView consoleView, @NotNull String resourceName) {
+        super(message("appService.logStreaming.spool.search"), message("appService.logStreaming.spool.search.description"), AllIcons.Actions.Find);
+        this.consoleView = consoleView;
+        this.resourceName = resourceName;
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        final Project project = Objects.requireNonNull(e.getProject());
+        final StreamingLogSpool spool = consoleView.getSpool();
+        final String text = Messages.showInputDialog(project, message("appService.logStreaming.spool.search.prompt"),
+                message("appService.logStreaming.spool.search"), null);
+        if (spool == null || StringUtils.isBlank(text)) {
+            return;
+        }
+        final StreamingLogSpool.Query query = StreamingLogSpool.Query.parse(text);
+        final AzureString title = AzureString.format("search streaming logs of %s", resourceName);
+        AzureTaskManager.getInstance().runInBackground(new AzureTask<>(project, title, true, () -> {
+            final List<String> lines = spool.search(query, MAX_RESULT_LINES);
+            final String content = lines.isEmpty() ? message("appService.logStreaming.spool.search.empty") : String.join(SEPARATOR, lines);
+            final LightVirtualFile file = new LightVirtualFile(String.format("%s [%s].log", resourceName, text.trim()), PlainTextFileType.INSTANCE, content);
+            file.setWritable(false);
+            AzureTaskManager.getInstance().runLater(() -> FileEditorManager.getInstance(project).openFile(file, true));
+        }));
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabled(consoleView.getSpool() != null);
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.common.streaminglog;
+
+import com.intellij.execution.ui.ConsoleView;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import static com.intellij.execution.ui.ConsoleViewContentType.NORMAL_OUTPUT;
+import static com.intellij.execution.ui.ConsoleViewContentType.SYSTEM_OUTPUT;
+import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
+
+/**
+ * Sink of streaming log lines into a console.
+ * Lines are batched by {@link Flux#bufferTimeout(int, Duration)} into a ring buffer of fixed capacity, which is drained
+ * into the console by one print every {@link #DRAIN_INTERVAL} with limited size. If the console falls behind, lines are
+ * dropped by the {@link DropPolicy} and the dropped count is printed, instead of flooding EDT or growing memory.
+ */
+public class StreamingLogSink {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    private static final String SEPARATOR = System.getProperty("line.separator");
+    private static final int MAX_BATCH_LINES = 500;
+    private static final Duration BATCH_TIMEOUT = Duration.ofMillis(100);
+    private static final Duration DRAIN_INTERVAL = Duration.ofMillis(100);
+    private static final int MAX_DRAIN_CHARS = 256 * 1024;
+    private static final int SAMPLE_RATE = 10;
+
+    public enum DropPolicy {
+        /**
+         * drop the oldest buffered lines to keep the latest ones
+         */
+        DROP_OLDEST,
+        /**
+         * keep only one of every {@link #SAMPLE_RATE} incoming lines, each replaces the oldest buffered line
+         */
+        SAMPLE
+    }
+
+    private final ConsoleView console;
+    private final int capacity;
+    private final DropPolicy policy;
+    @Nullable
+    private final StreamingLogSpool spool;
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+    private long overflowed = 0;
+    private long dropped = 0;
+    private long reportedDropped = 0;
+
+    public StreamingLogSink(@NotNull ConsoleView console) {
+        this(console, DEFAULT_CAPACITY, DropPolicy.DROP_OLDEST, null);
+    }
+
+    /**
+     * @param spool the spool to keep all received lines, including the ones dropped from console
+     */
+    public StreamingLogSink(@NotNull ConsoleView console, int capacity, @NotNull DropPolicy policy, @Nullable StreamingLogSpool spool) {
+        this.console = console;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.spool = spool;
+    }
+
+    /**
+     * @param onTerminated called after the log stream is completed or failed and all buffered lines are printed
+     * @return subscription of the log stream, which is disposed when the log stream is completed or failed
+     */
+    public Disposable subscribe(@NotNull Flux<String> logs, @NotNull Runnable onTerminated) {
+        final Disposable.Composite subscription = Disposables.composite();
+        subscription.add(Flux.interval(DRAIN_INTERVAL, DRAIN_INTERVAL, Schedulers.parallel())
+            .subscribe(i -> this.drain(MAX_DRAIN_CHARS)));
+        // the subscription is disposed once the log stream terminates, so that it's not considered as active anymore.
+        subscription.add(logs.subscribeOn(Schedulers.boundedElastic())
+            .bufferTimeout(MAX_BATCH_LINES, BATCH_TIMEOUT)
+            .doAfterTerminate(() -> {
+                subscription.dispose();
+                this.flush();
+                onTerminated.run();
+            })
+            .subscribe(this::offer));
+        return subscription;
+    }
+
+    /**
+     * print all buffered lines
+     */
+    public void flush() {
+        this.drain(Integer.MAX_VALUE);
+    }
+
+    public synchronized long getDroppedCount() {
+        return this.dropped;
+    }
+
+    private void offer(@NotNull List<String> batch) {
+        if (this.spool != null) {
+            this.spool.append(batch);
+        }
+        this.buffer(batch);
+    }
+
+    private synchronized void buffer(@NotNull List<String> batch) {
+        for (final String line : batch) {
+            if (this.lines.size() >= this.capacity) {
+                this.dropped++;
+                if (this.policy == DropPolicy.SAMPLE && this.overflowed++ % SAMPLE_RATE != 0) {
+                    continue;
+                }
+                this.lines.pollFirst();
+            } else {
+                this.overflowed = 0;
+            }
+            this.lines.addLast(line);
+        }
+    }
+
+    private synchronized void drain(int maxChars) {
+        if (this.dropped > this.reportedDropped) {
+            this.console.print(message("appService.logStreaming.hint.dropped", this.dropped - this.reportedDropped, this.dropped) + SEPARATOR, SYSTEM_OUTPUT);
+            this.reportedDropped = this.dropped;
+        }
+        if (this.lines.isEmpty()) {
+            return;
+        }
+        final StringBuilder text = new StringBuilder();
+        while (!this.lines.isEmpty() && text.length() < maxChars) {
+            text.append(this.lines.pollFirst()).append(SEPARATOR);
+        }
+        this.console.print(text.toString(), NORMAL_OUTPUT);
+    }
+}
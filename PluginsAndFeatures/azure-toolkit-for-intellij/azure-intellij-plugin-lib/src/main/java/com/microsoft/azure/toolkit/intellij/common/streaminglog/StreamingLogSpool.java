@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.common.streaminglog;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.io.FileUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * On-disk spool of streaming log lines, so that the lines dropped by the console can still be searched.
+ * - lines are appended into memory-mapped segment files of {@link #SEGMENT_SIZE}, at most {@link #MAX_SEGMENTS} segments are kept,
+ * each line is prefixed with its arrival time in {@link #TIME_PREFIX_BYTES} hex digits.
+ * - each segment is indexed by the arrival time range (with a checkpoint every {@link #CHECKPOINT_LINES} lines), the log levels
+ * present and a bloom filter of the words, so a search only scans the segments that may contain the matched lines.
+ * - each spool writes into its own sub folder of the given directory, the sub folders left by the last session are cleaned up.
+ * - the bloom filter is sized from the segment size, and the segment is rotated early once the filter is full, so that
+ * its false positive probability stays around {@link #BLOOM_FPP}.
+ */
+@Slf4j
+public class StreamingLogSpool implements Closeable {
+    public static final String ENABLED_PROPERTY = "azure.toolkit.streaming_log.spool";
+    private static final String SPOOL_FOLDER = "azure-streaming-logs";
+    private static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_SEGMENTS = 32;
+    private static final int CHECKPOINT_LINES = 256;
+    private static final int TIME_PREFIX_BYTES = 16;
+    private static final AtomicInteger SPOOLS = new AtomicInteger();
+    // a word takes 3 bytes at least (2 chars and a separator), distinct words of logs are far longer on average.
+    private static final int BYTES_PER_DISTINCT_WORD = 16;
+    private static final int BLOOM_EXPECTED_WORDS = SEGMENT_SIZE / BYTES_PER_DISTINCT_WORD;
+    private static final double BLOOM_FPP = 0.01;
+    private static final int LEVEL_SEARCH_WORDS = 8;
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}_]{2,64}");
+
+    public enum Level {
+        TRACE("VERBOSE"), DEBUG, INFO("INFORMATION"), WARN("WARNING"), ERROR("ERR"), FATAL("CRITICAL");
+
+        private final Set<String> names = new HashSet<>();
+
+        Level(String... aliases) {
+            this.names.add(this.name());
+            this.names.addAll(Arrays.asList(aliases));
+        }
+
+        @Nullable
+        public static Level fromWord(@Nonnull String word) {
+            final String upper = word.toUpperCase(Locale.ROOT);
+            return Arrays.stream(values()).filter(l -> l.names.contains(upper)).findFirst().orElse(null);
+        }
+    }
+
+    @Getter
+    private final Path directory;
+    private final String session = ProcessHandle.current().pid() + "-";
+    private final LinkedList<Segment> segments = new LinkedList<>();
+    private int sequence = 0;
+    private boolean closed = false;
+
+    /**
+     * @param parent directory shared by the spools of the same resource
+     */
+    public StreamingLogSpool(@Nonnull Path parent) {
+        this.directory = parent.resolve(this.session + SPOOLS.incrementAndGet());
+    }
+
+    public static boolean isEnabledByDefault() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Nonnull
+    public static Path getDefaultDirectory(@Nonnull String resourceId, @Nonnull String resourceName) {
+        final String folder = FileUtil.sanitizeFileName(resourceName) + "-" + Integer.toHexString(resourceId.toLowerCase(Locale.ROOT).hashCode());
+        return Paths.get(PathManager.getSystemPath(), SPOOL_FOLDER, folder);
+    }
+
+    /**
+     * append lines received at the same time, a failure disables the spool instead of breaking the log streaming.
+     */
+    public synchronized void append(@Nonnull List<String> lines) {
+        if (this.closed) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final byte[] prefix = String.format("%016x", now).getBytes(StandardCharsets.US_ASCII);
+        try {
+            for (final String line : lines) {
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length >= SEGMENT_SIZE - TIME_PREFIX_BYTES) {
+                    bytes = Arrays.copyOf(bytes, SEGMENT_SIZE - TIME_PREFIX_BYTES - 1);
+                }
+                Segment segment = this.segments.peekLast();
+                if (segment == null || segment.remaining() < TIME_PREFIX_BYTES + bytes.length + 1 || segment.isIndexFull()) {
+                    segment = this.rotate();
+                }
+                segment.append(line, prefix, bytes, now);
+            }
+        } catch (final IOException e) {
+            log.warn("failed to spool streaming logs into {}, spooling is disabled", this.directory, e);
+            this.close();
+        }
+    }
+
+    /**
+     * @param limit max count of returned lines
+     * @return the first lines matching the query, from the oldest spooled line
+     */
+    @Nonnull
+    public List<String> search(@Nonnull Query query, int limit) {
+        final List<Segment> snapshot;
+        final List<Integer> sizes = new ArrayList<>();
+        synchronized (this) {
+            snapshot = new ArrayList<>(this.segments);
+            snapshot.forEach(s -> sizes.add(s.size));
+        }
+        final List<String> result = new ArrayList<>();
+        for (int i = 0; i < snapshot.size() && result.size() < limit; i++) {
+            final Segment segment = snapshot.get(i);
+            if (segment.mightMatch(query)) {
+                segment.scan(segment.offsetSince(query.since), sizes.get(i), query, limit, result);
+            }
+        }
+        return result;
+    }
+
+    public synchronized long getLineCount() {
+        return this.segments.stream().mapToLong(s -> s.lines).sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.segments.forEach(Segment::delete);
+        this.segments.clear();
+        FileUtil.delete(this.directory.toFile()); // left to the next session if the segments are still mapped
+    }
+
+    @Nonnull
+    private Segment rotate() throws IOException {
+        if (this.segments.isEmpty() && this.sequence == 0) {
+            final Path parent = this.directory.getParent();
+            if (Files.isDirectory(parent)) { // clean up the spools left by last session, but not the ones of this session
+                try (final Stream<Path> folders = Files.list(parent)) {
+                    folders.filter(f -> !f.getFileName().toString().startsWith(this.session)).forEach(f -> FileUtil.delete(f.toFile()));
+                }
+            }
+            Files.createDirectories(this.directory);
+        }
+        final Segment segment = new Segment(this.directory.resolve(String.format("segment-%06d.log", this.sequence++)));
+        this.segments.addLast(segment);
+        while (this.segments.size() > MAX_SEGMENTS) {
+            this.segments.removeFirst().delete();
+        }
+        return segment;
+    }
+
+    @Nonnull
+    private static List<String> words(@Nonnull String line) {
+        final List<String> words = new ArrayList<>();
+        final Matcher matcher = WORD.matcher(line);
+        while (matcher.find()) {
+            words.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return words;
+    }
+
+    @Nullable
+    private static Level level(@Nonnull List<String> words) {
+        return words.stream().limit(LEVEL_SEARCH_WORDS).map(Level::fromWord).filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    private static class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final BloomFilter<CharSequence> words = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), BLOOM_EXPECTED_WORDS, BLOOM_FPP);
+        private int levels = 0;
+        private long lines = 0;
+        private long lastTime = Long.MIN_VALUE;
+        private long[] checkpointTimes = new long[16];
+        private int[] checkpointOffsets = new int[16];
+        private int checkpoints = 0;
+        private volatile int size = 0;
+
+        private Segment(@Nonnull Path file) throws IOException {
+            this.file = file;
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping remains valid after the channel is closed
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+            }
+        }
+
+        private int remaining() {
+            return SEGMENT_SIZE - this.size;
+        }
+
+        private synchronized boolean isIndexFull() {
+            return this.words.approximateElementCount() >= BLOOM_EXPECTED_WORDS;
+        }
+
+        private synchronized void append(@Nonnull String line, @Nonnull byte[] prefix, @Nonnull byte[] bytes, long time) {
+            if (this.lines % CHECKPOINT_LINES == 0) {
+                if (this.checkpoints == this.checkpointTimes.length) {
+                    this.checkpointTimes = Arrays.copyOf(this.checkpointTimes, this.checkpoints * 2);
+                    this.checkpointOffsets = Arrays.copyOf(this.checkpointOffsets, this.checkpoints * 2);
+                }
+                this.checkpointTimes[this.checkpoints] = time;
+                this.checkpointOffsets[this.checkpoints++] = this.size;
+            }
+            this.buffer.put(this.size, prefix);
+            this.buffer.put(this.size + prefix.length, bytes);
+            this.buffer.put(this.size + prefix.length + bytes.length, (byte) '\n');
+            final List<String> lineWords = words(line);
+            lineWords.forEach(this.words::put);
+            final Level level = level(lineWords);
+            if (level != null) {
+                this.levels |= 1 << level.ordinal();
+            }
+            this.lines++;
+            this.lastTime = Math.max(this.lastTime, time);
+            this.size += prefix.length + bytes.length + 1;
+        }
+
+        private synchronized boolean mightMatch(@Nonnull Query query) {
+            if (this.lines == 0 || this.lastTime < query.since) {
+                return false;
+            }
+            if (query.level != null && this.levels >>> query.level.ordinal() == 0) {
+                return false;
+            }
+            return query.words.stream().allMatch(this.words::mightContain);
+        }
+
+        /**
+         * @return offset of the last checkpoint at or before the time
+         */
+        private synchronized int offsetSince(long since) {
+            int low = 0;
+            int high = this.checkpoints - 1;
+            int offset = 0;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (this.checkpointTimes[mid] <= since) {
+                    offset = this.checkpointOffsets[mid];
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return offset;
+        }
+
+        private void scan(int from, int to, @Nonnull Query query, int limit, @Nonnull List<String> result) {
+            final ByteBuffer view = this.buffer.duplicate();
+            int start = from;
+            for (int i = from; i < to && result.size() < limit; i++) {
+                if (view.get(i) == '\n') {
+                    if (readTime(view, start) >= query.since) { // checkpoints only narrow down the lines to scan
+                        final int from = start + TIME_PREFIX_BYTES;
+                        final String line = StandardCharsets.UTF_8.decode(view.slice(from, i - from)).toString();
+                        if (query.matches(line)) {
+                            result.add(line);
+                        }
+                    }
+                    start = i + 1;
+                }
+            }
+        }
+
+        private static long readTime(@Nonnull ByteBuffer view, int offset) {
+            long time = 0;
+            for (int i = offset; i < offset + TIME_PREFIX_BYTES; i++) {
+                time = (time << 4) | Character.digit(view.get(i), 16);
+            }
+            return time;
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(this.file);
+            } catch (final IOException e) {
+                // the file can't be deleted on Windows until the mapped buffer is garbage collected
+                this.file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Query of spooled lines, e.g. {@code timeout connection level:warn since:30m}, lines containing all the words,
+     * with at least the level, and received in the duration are matched.
+     */
+    public static class Query {
+        private static final Pattern SINCE = Pattern.compile("(\\d{1,9})([smhd])"); // bounded so that it always fits a long
+        private final List<String> words = new ArrayList<>();
+        @Nullable
+        private Level level;
+        private long since = 0;
+
+        @Nonnull
+        public static Query parse(@Nullable String text) {
+            final Query query = new Query();
+            for (final String part : StringUtils.split(StringUtils.defaultString(text))) {
+                final String lower = part.toLowerCase(Locale.ROOT);
+                if (lower.startsWith("level:")) {
+                    query.level = Level.fromWord(lower.substring("level:".length()));
+                } else if (lower.startsWith("since:")) {
+                    final Matcher matcher = SINCE.matcher(lower.substring("since:".length()));
+                    if (matcher.matches()) {
+                        final TimeUnit unit = switch (matcher.group(2)) {
+                            case "s" -> TimeUnit.SECONDS;
+                            case "m" -> TimeUnit.MINUTES;
+                            case "h" -> TimeUnit.HOURS;
+                            default -> TimeUnit.DAYS;
+                        };
+                        query.since = System.currentTimeMillis() - unit.toMillis(Long.parseLong(matcher.group(1)));
+                    }
+                } else {
+                    query.words.addAll(words(part));
+                }
+            }
+            return query;
+        }
+
+        private boolean matches(@Nonnull String line) {
+            if (this.words.isEmpty() && this.level == null) {
+                return true;
+            }
+            final List<String> lineWords = words(line);
+            if (this.level != null) {
+                final Level lineLevel = level(lineWords);
+                if (lineLevel == null || lineLevel.compareTo(this.level) < 0) {
+                    return false;
+                }
+            }
+            return new HashSet<>(lineWords).containsAll(this.words);
+        }
+    }
+}
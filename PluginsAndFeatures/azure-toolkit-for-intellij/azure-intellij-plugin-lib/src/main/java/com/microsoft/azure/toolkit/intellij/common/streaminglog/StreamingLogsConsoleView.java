@@ -3,12 +3,14 @@ package com.microsoft.azure.toolkit.intellij.common.streaminglog;
 import com.intellij.execution.impl.ConsoleViewImpl;
 import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.project.Project;
+import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
 
-import static com.intellij.execution.ui.ConsoleViewContentType.NORMAL_OUTPUT;
+import java.nio.file.Path;
+
 import static com.intellij.execution.ui.ConsoleViewContentType.SYSTEM_OUTPUT;
 import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
 
@@ -16,6 +18,10 @@ public class StreamingLogsConsoleView extends ConsoleViewImpl {
     private static final String SEPARATOR = System.getProperty("line.separator");
     private boolean isDisposed;
     private Disposable subscription;
+    private StreamingLogSink sink;
+    @Getter
+    @Nullable
+    private StreamingLogSpool spool;
 
     public StreamingLogsConsoleView(@NotNull Project project) {
         super(project, true);
@@ -23,18 +29,32 @@ public class StreamingLogsConsoleView extends ConsoleViewImpl {
         this.setUpdateFoldingsEnabled(false);
     }
 
+    /**
+     * spool all received lines into the directory, so that they can be searched after dropped from the console.
+     */
+    public void enableSpool(@NotNull Path directory) {
+        if (spool == null) {
+            spool = new StreamingLogSpool(directory);
+        }
+    }
+
     public void startStreamingLog(Flux<String> logStreaming) {
+        startStreamingLog(logStreaming, StreamingLogSink.DropPolicy.DROP_OLDEST);
+    }
+
+    public void startStreamingLog(Flux<String> logStreaming, StreamingLogSink.DropPolicy dropPolicy) {
         if (!isActive()) {
             printlnToConsole(message("app.logStreaming.hint.connect"), SYSTEM_OUTPUT);
-            subscription = logStreaming.subscribeOn(Schedulers.boundedElastic())
-                    .doAfterTerminate(() -> printlnToConsole(message("appService.logStreaming.hint.disconnected"), SYSTEM_OUTPUT))
-                    .subscribe((log) -> printlnToConsole(log, NORMAL_OUTPUT));
+            sink = new StreamingLogSink(this, StreamingLogSink.DEFAULT_CAPACITY, dropPolicy, spool);
+            subscription = sink.subscribe(logStreaming,
+                    () -> printlnToConsole(message("appService.logStreaming.hint.disconnected"), SYSTEM_OUTPUT));
         }
     }
 
     public void closeStreamingLog() {
         if (isActive()) {
             subscription.dispose();
+            sink.flush();
             printlnToConsole(message("appService.logStreaming.hint.disconnected"), SYSTEM_OUTPUT);
         }
     }
@@ -56,5 +76,8 @@ public class StreamingLogsConsoleView extends ConsoleViewImpl {
         super.dispose();
         this.isDisposed = true;
         closeStreamingLog();
+        if (spool != null) {
+            spool.close();
+        }
     }
 }
@@ -19,8 +19,18 @@ public class StreamingLogsManager {
     }
 
     public void showStreamingLog(Project project, String resourceId, String resourceName, Flux<String> logs) {
+        showStreamingLog(project, resourceId, resourceName, logs, StreamingLogSpool.isEnabledByDefault());
+    }
+
+    /**
+     * @param spool whether to spool the logs on disk, so that the logs dropped from console can be searched
+     */
+    public void showStreamingLog(Project project, String resourceId, String resourceName, Flux<String> logs, boolean spool) {
         final StreamingLogsConsoleView consoleView = Optional.ofNullable(StreamingLogsToolWindowManager.getInstance()
                 .getToolWindowContent(project, resourceId)).orElse(new StreamingLogsConsoleView(project));
+        if (spool) {
+            consoleView.enableSpool(StreamingLogSpool.getDefaultDirectory(resourceId, resourceName));
+        }
         AzureTaskManager.getInstance().runInBackground(new AzureTask<>(project, AzureString.fromString("open streaming logs"), false, () -> {
             try {
                 consoleView.startStreamingLog(logs);
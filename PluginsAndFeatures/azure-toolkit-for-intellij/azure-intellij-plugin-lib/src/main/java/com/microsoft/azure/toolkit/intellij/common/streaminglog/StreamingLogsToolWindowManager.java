@@ -6,7 +6,11 @@
 package com.microsoft.azure.toolkit.intellij.common.streaminglog;
 
 import com.intellij.execution.ui.ConsoleView;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.ui.content.Content;
@@ -17,6 +21,7 @@ import org.apache.commons.collections4.bidimap.DualHashBidiMap;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
+import javax.swing.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,15 +41,36 @@ public class StreamingLogsToolWindowManager {
         final String consoleName = getConsoleViewName(resourceId, resourceName);
         Content content = toolWindow.getContentManager().findContent(consoleName);
         if (content == null) {
-            content = contentFactory.createContent(consoleView.getComponent(), consoleName, false);
+            content = contentFactory.createContent(createConsoleComponent(consoleView, resourceName), consoleName, false);
             content.setDisposer(consoleView);
             toolWindow.getContentManager().addContent(content);
+        } else if (content.getComponent() == consoleView.getComponent() && hasSpool(consoleView)) {
+            // the reused console is spooled since now, add the search toolbar to it
+            content.setComponent(createConsoleComponent(consoleView, resourceName));
         }
         toolWindow.getContentManager().setSelectedContent(content);
         toolWindow.setAvailable(true);
         toolWindow.activate(null);
     }
 
+    private static boolean hasSpool(ConsoleView consoleView) {
+        return consoleView instanceof StreamingLogsConsoleView view && view.getSpool() != null;
+    }
+
+    private JComponent createConsoleComponent(ConsoleView consoleView, String resourceName) {
+        if (!hasSpool(consoleView)) {
+            return consoleView.getComponent();
+        }
+        final StreamingLogsConsoleView view = (StreamingLogsConsoleView) consoleView;
+        final DefaultActionGroup group = new DefaultActionGroup(new SearchSpooledLogsAction(view, resourceName));
+        final ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar(LOG_TOOL_WINDOW, group, false);
+        toolbar.setTargetComponent(consoleView.getComponent());
+        final SimpleToolWindowPanel panel = new SimpleToolWindowPanel(false, true);
+        panel.setToolbar(toolbar.getComponent());
+        panel.setContent(consoleView.getComponent());
+        return panel;
+    }
+
     @Nullable
     public StreamingLogsConsoleView getToolWindowContent(Project project, String resourceId) {
         final ToolWindow toolWindow = getToolWindow(project);
@@ -98,7 +98,7 @@ public class AzureMonitorView extends JPanel implements Disposable {
     }
 
     public String getQueryString(String queryName) {
-        return String.format("%s | take %s", this.getMonitorTreePanel().getQueryString(queryName), Azure.az().config().getMonitorQueryRowNumber());
+        return this.getMonitorTreePanel().getQueryString(queryName);
     }
 
     public void setSelectedWorkspace(@Nullable LogAnalyticsWorkspace workspace) {
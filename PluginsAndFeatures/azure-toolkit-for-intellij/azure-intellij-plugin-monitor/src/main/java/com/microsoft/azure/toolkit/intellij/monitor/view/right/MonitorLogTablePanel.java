@@ -5,9 +5,6 @@
 
 package com.microsoft.azure.toolkit.intellij.monitor.view.right;
 
-import com.azure.monitor.query.models.LogsTable;
-import com.azure.monitor.query.models.LogsTableCell;
-import com.azure.monitor.query.models.LogsTableRow;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
@@ -28,13 +25,16 @@ import com.microsoft.azure.toolkit.ide.common.action.ResourceCommonActionsContri
 import com.microsoft.azure.toolkit.intellij.common.AzureActionButton;
 import com.microsoft.azure.toolkit.intellij.common.TextDocumentListenerAdapter;
 import com.microsoft.azure.toolkit.intellij.common.component.HighLightedCellRenderer;
+import com.microsoft.azure.toolkit.intellij.monitor.view.right.filter.FilterValueCache;
 import com.microsoft.azure.toolkit.intellij.monitor.view.right.filter.KustoFilterComboBox;
 import com.microsoft.azure.toolkit.intellij.monitor.view.right.filter.TimeRangeFilterComboBox;
 import com.microsoft.azure.toolkit.intellij.monitor.view.right.table.LogTable;
+import com.microsoft.azure.toolkit.intellij.monitor.view.right.table.LogTableExporter;
 import com.microsoft.azure.toolkit.intellij.monitor.view.right.table.LogTableModel;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.common.action.Action;
 import com.microsoft.azure.toolkit.lib.common.action.AzureActionManager;
+import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
 import com.microsoft.azure.toolkit.lib.common.event.AzureEventBus;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
@@ -43,18 +43,21 @@ import com.microsoft.azure.toolkit.lib.common.task.AzureTask;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
 import com.microsoft.azure.toolkit.lib.monitor.LogAnalyticsWorkspace;
 import lombok.Setter;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.event.ListSelectionListener;
 import java.awt.event.ActionListener;
+import java.awt.event.ItemEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
 
 import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
@@ -79,8 +82,22 @@ public class MonitorLogTablePanel implements Disposable {
     private final static String[] RESOURCE_COMBOBOX_COLUMN_NAMES = {"_ResourceId", "ResourceId"};
     private final static String[] LEVEL_COMBOBOX_COLUMN = {"Level"};
     private final static String RESULT_CSV_FILE = "result.csv";
+    private final static int SEARCH_DELAY = 500;
+    private final static String DEFAULT_SORT = "sort by TimeGenerated desc";
     @Setter
     private String initResourceId;
+    @Nullable
+    private LogAnalyticsWorkspace workspace;
+    @Nullable
+    private String queryString;
+    @Nullable
+    private String sortColumn;
+    private boolean sortAscending;
+    private final Timer searchTimer = new Timer(SEARCH_DELAY, e -> this.onSearchTextChanged());
+    @Nullable
+    private LogAnalyticsWorkspace filterWorkspace;
+    @Nullable
+    private String filterTableName;
 
     public MonitorLogTablePanel() {
         $$$setupUI$$$(); // tell IntelliJ to call createUIComponents() here.
@@ -107,13 +124,23 @@ public class MonitorLogTablePanel implements Disposable {
             queryParams.add(levelComboBox.getKustoString());
         }
         // display logs with latest time
-        queryParams.add("sort by TimeGenerated desc");
-        final String rowNumberLimitation = String.format("take %s", Azure.az().config().getMonitorQueryRowNumber());
-        queryParams.add(rowNumberLimitation);
+        queryParams.add(DEFAULT_SORT);
         return StringUtils.join(queryParams.stream().filter(StringUtils::isNotBlank).toList(), " | ");
     }
 
     public void loadTableModel(@Nullable LogAnalyticsWorkspace selectedWorkspace, String queryString) {
+        this.workspace = selectedWorkspace;
+        this.queryString = queryString;
+        this.sortColumn = null;
+        this.reloadTableModel();
+    }
+
+    /**
+     * reload the table with the search text and sort column applied to the query, only the first page is loaded
+     * and the other pages are loaded when the table is scrolled to.
+     */
+    private void reloadTableModel() {
+        final LogAnalyticsWorkspace selectedWorkspace = this.workspace;
         runButton.setEnabled(false);
         exportAction.setEnabled(false);
         saveFiltersButton.setEnabled(false);
@@ -121,19 +148,19 @@ public class MonitorLogTablePanel implements Disposable {
             logTable.getEmptyText().setText(message("azure.monitor.info.selectWorkspaceTips"));
             return;
         }
+        final String query = this.getPagedQueryString();
+        final int pageSize = Azure.az().config().getMonitorQueryRowNumber();
         logTable.clearModel();
         logTable.setLoading(true);
         AzureTaskManager.getInstance().runInBackground("load Azure Monitor data", () -> {
             try {
-                final LogsTable result = selectedWorkspace.executeQuery(queryString);
+                final LogTableModel result = LogTableModel.load(selectedWorkspace, query, pageSize);
                 AzureTaskManager.getInstance().runLater(() -> {
                     if (Objects.isNull(result)) {
                         return;
                     }
-                    if (result.getAllTableCells().size() > 0) {
-                        this.exportAction.setEnabled(true);
-                        this.logTable.setModel(result.getRows());
-                    }
+                    this.exportAction.setEnabled(true);
+                    this.logTable.setModel(result);
                 }, AzureTask.Modality.ANY);
             } catch (final Exception e) {
                 throw new AzureToolkitRuntimeException(e);
@@ -147,29 +174,68 @@ public class MonitorLogTablePanel implements Disposable {
         });
     }
 
+    /**
+     * pages are cut from the result by row numbers, so the query is made stable across executions:
+     * - {@code now()} and {@code ago()} are pinned to the time of the first load and rows generated later are excluded,
+     * so that every page is cut from the same rows.
+     * - rows are sorted with a tie breaker after the search text, the sort column or the default sort is applied, since
+     * {@code search} doesn't keep the order and equal sort keys are not ordered deterministically.
+     * Saved queries keep their own order, and they are only paged stably if the order is deterministic.
+     */
+    private String getPagedQueryString() {
+        final List<String> queryParams = new ArrayList<>(List.of(LogTableModel.pinTime(Objects.requireNonNull(this.queryString), Instant.now())));
+        final String searchText = searchField.getText();
+        final boolean searched = StringUtils.isNotBlank(searchText);
+        if (searched) {
+            queryParams.add(String.format("search \"%s\"", searchText.trim().replace("\\", "\\\\").replace("\"", "\\\"")));
+            queryParams.add("project-away ['$table']");
+        }
+        final String query = StringUtils.join(queryParams, " | ");
+        if (Objects.nonNull(sortColumn)) {
+            return LogTableModel.sortStably(query, String.format("['%s']", sortColumn), sortAscending);
+        } else if (searched || StringUtils.endsWith(this.queryString, DEFAULT_SORT)) {
+            return LogTableModel.sortStably(query, String.format("column_ifexists('%s', datetime(null))", LogTableModel.TIME_COLUMN), false);
+        }
+        return query;
+    }
+
     public void loadFilters(@Nullable LogAnalyticsWorkspace selectedWorkspace, String tableName) {
         if (Objects.isNull(selectedWorkspace)) {
             return;
         }
+        this.filterWorkspace = selectedWorkspace;
+        this.filterTableName = tableName;
         timeRangePanel.setVisible(true);
         resourcePanel.setVisible(true);
         levelPanel.setVisible(true);
         saveFiltersButton.setVisible(true);
         logLevelLabel.setEnabled(false);
         resourceLabel.setEnabled(false);
-        AzureTaskManager.getInstance().runInBackground("load filters", () -> {
-            final Map<String, List<String>> result = new HashMap<>();
-            try {
-                final List<String> tableColumns = queryColumnNameList(selectedWorkspace, tableName);
-                final List<String> specificColumnNames = new ArrayList<>(Arrays.asList(RESOURCE_COMBOBOX_COLUMN_NAMES));
-                specificColumnNames.addAll(Arrays.asList(LEVEL_COMBOBOX_COLUMN));
-                result.putAll(queryCellValueList(selectedWorkspace, tableName, specificColumnNames, tableColumns));
-            } catch (final Exception e) {
-                throw new AzureToolkitRuntimeException(e);
-            } finally {
-                AzureTaskManager.getInstance().runLater(() -> updateCombobox(result), AzureTask.Modality.ANY);
-            }
-        });
+        this.reloadFilterValues();
+    }
+
+    /**
+     * fill the filters with the cached values of the current table and time range immediately, they are refreshed in
+     * background if missing or expired.
+     */
+    private void reloadFilterValues() {
+        final LogAnalyticsWorkspace selectedWorkspace = this.filterWorkspace;
+        final String tableName = this.filterTableName;
+        if (Objects.isNull(selectedWorkspace) || Objects.isNull(tableName)) {
+            return;
+        }
+        final String timeRange = timeRangeFilterComboBox.getKustoString();
+        final List<String> columnNames = new ArrayList<>(Arrays.asList(RESOURCE_COMBOBOX_COLUMN_NAMES));
+        columnNames.addAll(Arrays.asList(LEVEL_COMBOBOX_COLUMN));
+        FilterValueCache.getInstance().getValues(selectedWorkspace, tableName, timeRange, columnNames, values ->
+                AzureTaskManager.getInstance().runLater(() -> {
+                    // skip the values of the outdated time range
+                    if (Objects.equals(timeRange, timeRangeFilterComboBox.getKustoString()) && Objects.equals(tableName, this.filterTableName)) {
+                        updateCombobox(values);
+                        updateComboboxTooltip(resourceComboBox, selectedWorkspace, tableName, timeRange, columnNames);
+                        updateComboboxTooltip(levelComboBox, selectedWorkspace, tableName, timeRange, columnNames);
+                    }
+                }, AzureTask.Modality.ANY));
     }
 
     public void addTableSelectionListener(ListSelectionListener selectionListener) {
@@ -200,7 +266,38 @@ public class MonitorLogTablePanel implements Disposable {
         this.logTable.setDefaultRenderer(String.class, new HighLightedCellRenderer(searchField.getTextEditor()));
         this.logTable.setFont(JBUI.Fonts.create("JetBrains Mono", 12));
         this.logTable.getTableHeader().setFont(JBUI.Fonts.create("JetBrains Mono", 12));
-        searchField.addDocumentListener((TextDocumentListenerAdapter) () -> logTable.filter(searchField.getText()));
+        this.timeRangeFilterComboBox.addItemListener(e -> {
+            if (e.getStateChange() == ItemEvent.SELECTED) {
+                this.reloadFilterValues();
+            }
+        });
+        this.searchTimer.setRepeats(false);
+        searchField.addDocumentListener((TextDocumentListenerAdapter) this.searchTimer::restart);
+        this.logTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                // columns may be reordered by dragging the header
+                final int column = logTable.convertColumnIndexToModel(logTable.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    onSortColumnClicked(logTable.getLogTableModel().getColumnNames().get(column));
+                }
+            }
+        });
+    }
+
+    private void onSearchTextChanged() {
+        if (Objects.nonNull(this.queryString)) {
+            this.reloadTableModel();
+        }
+    }
+
+    private void onSortColumnClicked(@Nonnull String columnName) {
+        if (Objects.isNull(this.queryString)) {
+            return;
+        }
+        this.sortAscending = Objects.equals(columnName, this.sortColumn) && !this.sortAscending;
+        this.sortColumn = columnName;
+        this.reloadTableModel();
     }
 
     private void updateCombobox(Map<String, List<String>> map) {
@@ -214,16 +311,27 @@ public class MonitorLogTablePanel implements Disposable {
                             items.add(initResourceId);
                         }
                     });
+                    final String selected = resourceComboBox.getValue();
                     updateComboboxItems(resourcePanel, items, it);
-                    resourceComboBox.setValue(Objects.isNull(initResourceId) ? KustoFilterComboBox.ALL : initResourceId);
+                    resourceComboBox.setValue(Objects.nonNull(selected) && items.contains(selected) ? selected :
+                            Objects.isNull(initResourceId) ? KustoFilterComboBox.ALL : initResourceId);
                 });
         Arrays.stream(LEVEL_COMBOBOX_COLUMN).filter(map::containsKey).findFirst()
                 .ifPresent(it -> {
+                    final String selected = levelComboBox.getValue();
                     updateComboboxItems(levelPanel, map.get(it), it);
-                    levelComboBox.setValue(KustoFilterComboBox.ALL);
+                    levelComboBox.setValue(Objects.nonNull(selected) && map.get(it).contains(selected) ? selected : KustoFilterComboBox.ALL);
                 });
     }
 
+    private void updateComboboxTooltip(KustoFilterComboBox comboBox, LogAnalyticsWorkspace workspace, String tableName,
+                                       String timeRange, List<String> columnNames) {
+        final long cardinality = Optional.ofNullable(comboBox.getColumnName())
+                .map(column -> FilterValueCache.getInstance().getCardinality(workspace, tableName, timeRange, columnNames, column)).orElse(-1L);
+        comboBox.setToolTipText(cardinality > FilterValueCache.MAX_VALUES ?
+                String.format("%d of %d distinct values are listed", FilterValueCache.MAX_VALUES, cardinality) : null);
+    }
+
     private void updateComboboxItems(JPanel panel, List<String> items, String key) {
         if (items.size() <=0 ) {
             return;
@@ -241,31 +349,6 @@ public class MonitorLogTablePanel implements Disposable {
         comboBox.reloadItems();
     }
 
-    private List<String> queryColumnNameList(LogAnalyticsWorkspace selectedWorkspace, String tableName) {
-        return Optional.ofNullable(selectedWorkspace.executeQuery(String.format("%s | take 1", tableName)))
-                .map(LogsTable::getAllTableCells).orElse(new ArrayList<>())
-                .stream().map(LogsTableCell::getColumnName).toList();
-    }
-
-    private Map<String, List<String>> queryCellValueList(LogAnalyticsWorkspace selectedWorkspace, String tableName,
-                                                          List<String> specificColumnNames, List<String> columnNamesInTable) {
-        final Map<String, List<String>> result = new HashMap<>();
-        final String kustoColumnNames = StringUtils.join(specificColumnNames.stream()
-                .filter(columnNamesInTable::contains).toList(), ",");
-        if (StringUtils.isBlank(kustoColumnNames)) {
-            return result;
-        }
-        final String queryString = String.format("%s | distinct %s | project %s", tableName, kustoColumnNames, kustoColumnNames);
-        Optional.ofNullable(selectedWorkspace.executeQuery(queryString))
-                .map(LogsTable::getAllTableCells).orElse(new ArrayList<>()).forEach(logsTableCell -> {
-                    if (!result.containsKey(logsTableCell.getColumnName())) {
-                        result.put(logsTableCell.getColumnName(), new ArrayList<>());
-                    }
-                    result.get(logsTableCell.getColumnName()).add(logsTableCell.getValueAsString());
-                });
-        return result;
-    }
-
     private void hideFilters() {
         this.timeRangePanel.setVisible(false);
         this.resourcePanel.setVisible(false);
@@ -279,31 +362,25 @@ public class MonitorLogTablePanel implements Disposable {
         final FileSaverDialog dialog = FileChooserFactory.getInstance().createSaveFileDialog(fileDescriptor, (Project) null);
         final VirtualFile userHome = LocalFileSystem.getInstance().findFileByPath(System.getProperty("user.home"));
         final VirtualFileWrapper fileWrapper = dialog.save(userHome, RESULT_CSV_FILE);
+        final LogTableModel tableModel = logTable.getLogTableModel();
         Optional.ofNullable(fileWrapper).map(VirtualFileWrapper::getFile).ifPresent(it ->
-                AzureTaskManager.getInstance().runInBackground("Export query data", () -> exportTableData(it, logTable.getLogTableModel())));
+                AzureTaskManager.getInstance().runInBackground(new AzureTask<>(null, AzureString.fromString("Export query data"), true,
+                        () -> exportTableData(it, tableModel))));
     }
 
     private void exportTableData(File target, LogTableModel tableModel) {
         try {
-            if (target == null) {
+            if (target == null || Objects.isNull(tableModel.getQuery())) {
                 return;
             }
             final File parentFolder = target.getParentFile();
             if (!parentFolder.exists()) {
                 parentFolder.mkdirs();
             }
-            if (!target.exists()) {
-                target.createNewFile();
-            }
-            final CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(target),
-                    CSVFormat.Builder.create().setHeader(tableModel.getColumnNames().toArray(new String[0])).build());
-            for (final LogsTableRow row : tableModel.getLogsTableRows()) {
-                csvPrinter.printRecord(row.getRow().stream().map(LogsTableCell::getValueAsString).toList());
-            }
-            csvPrinter.close();
+            new LogTableExporter(tableModel).export(target);
             AzureMessager.getMessager().success(message("azure.monitor.export.succeed.message", target.getAbsolutePath()),
                    null, newShowInExplorerAction(target));
-        } catch (final Exception e) {
+        } catch (final IOException e) {
             throw new AzureToolkitRuntimeException(e);
         }
     }
@@ -344,5 +421,7 @@ public class MonitorLogTablePanel implements Disposable {
     @Override
     public void dispose() {
         AzureEventBus.off("azure.monitor.change_workspace", onWorkspaceChanged);
+        this.searchTimer.stop();
+        this.logTable.getLogTableModel().dispose();
     }
 }
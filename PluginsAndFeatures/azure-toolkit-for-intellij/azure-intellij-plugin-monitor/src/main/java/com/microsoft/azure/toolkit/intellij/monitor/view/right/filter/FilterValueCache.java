@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.monitor.view.right.filter;
+
+import com.azure.monitor.query.models.LogsTable;
+import com.azure.monitor.query.models.LogsTableCell;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import com.microsoft.azure.toolkit.lib.monitor.LogAnalyticsWorkspace;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of the values of the filter columns of log analytics tables, by workspace, table and time range.
+ * - values of all the filter columns are discovered by a single {@code summarize} query with at most {@link #MAX_VALUES} values
+ * per column, together with the cardinality of the column.
+ * - cached values are returned immediately, and refreshed in background once expired. The entries of shorter time ranges
+ * expire sooner, since their values change faster.
+ * - at most {@link #MAX_ENTRIES} entries are cached, the least recently used ones are evicted.
+ */
+@Slf4j
+public class FilterValueCache {
+    public static final int MAX_VALUES = 200;
+    private static final int MAX_ENTRIES = 100;
+    private static final Duration MIN_TTL = Duration.ofMinutes(1);
+    private static final Duration MAX_TTL = Duration.ofMinutes(30);
+    private static final Duration CUSTOM_TTL = Duration.ofMinutes(10);
+    private static final Pattern AGO = Pattern.compile("ago\\((\\d+)([mhd])\\)");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final FilterValueCache instance = new FilterValueCache();
+
+    private final Cache<String, Entry> entries = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+    // consumers waiting for the values being refreshed, by the cache keys
+    private final Map<String, List<Consumer<Map<String, List<String>>>>> refreshing = new ConcurrentHashMap<>();
+
+    public static FilterValueCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * get the values of the columns existing in the table, the cached values (if any) are passed to the consumer immediately,
+     * and the consumer will be called again with the refreshed values if the cached values are missing or expired.
+     *
+     * @param timeRange kusto filter of the time range, e.g. {@code where TimeGenerated > ago(24h)}
+     * @param consumer  accepts values by column names, the columns not existing or without values are absent.
+     */
+    public void getValues(@Nonnull LogAnalyticsWorkspace workspace, @Nonnull String table, @Nullable String timeRange,
+                          @Nonnull List<String> columns, @Nonnull Consumer<Map<String, List<String>>> consumer) {
+        final String key = String.join("|", workspace.getId(), table, StringUtils.defaultString(timeRange), String.join(",", columns));
+        final Entry entry = this.entries.getIfPresent(key);
+        if (Objects.nonNull(entry)) {
+            consumer.accept(entry.copyValues());
+            if (!entry.isExpired()) {
+                return;
+            }
+        }
+        final boolean[] started = {false};
+        this.refreshing.compute(key, (k, consumers) -> {
+            final List<Consumer<Map<String, List<String>>>> result = Objects.isNull(consumers) ? new ArrayList<>() : consumers;
+            started[0] = Objects.isNull(consumers);
+            result.add(consumer);
+            return result;
+        });
+        if (!started[0]) {
+            return; // being refreshed, the consumer will be notified when done
+        }
+        AzureTaskManager.getInstance().runOnPooledThread(() -> {
+            Map<String, List<String>> values = null;
+            Exception error = null;
+            try {
+                final Entry refreshed = query(workspace, table, timeRange, columns);
+                this.entries.put(key, refreshed);
+                values = refreshed.values;
+            } catch (final Exception e) {
+                log.warn("failed to query filter values of table {}", table, e);
+                error = e;
+            } finally {
+                final List<Consumer<Map<String, List<String>>>> consumers = this.refreshing.remove(key);
+                final Entry current = this.entries.getIfPresent(key);
+                for (final Consumer<Map<String, List<String>>> c : Optional.ofNullable(consumers).orElse(Collections.emptyList())) {
+                    // consumers already fed with the stale values are not notified again if the refresh failed
+                    if (Objects.nonNull(values) || Objects.isNull(current)) {
+                        c.accept(Objects.nonNull(current) ? current.copyValues() : new HashMap<>());
+                    }
+                }
+            }
+            // the stale values are kept if the refresh failed, otherwise there are no values to show and the user should know why
+            if (Objects.nonNull(error) && Objects.isNull(this.entries.getIfPresent(key))) {
+                throw new AzureToolkitRuntimeException(String.format("failed to load filter values of table %s", table), error);
+            }
+        });
+    }
+
+    /**
+     * @return cardinality of the column, or -1 if it's not discovered yet.
+     */
+    public long getCardinality(@Nonnull LogAnalyticsWorkspace workspace, @Nonnull String table, @Nullable String timeRange,
+                               @Nonnull List<String> columns, @Nonnull String column) {
+        final String key = String.join("|", workspace.getId(), table, StringUtils.defaultString(timeRange), String.join(",", columns));
+        return Optional.ofNullable(this.entries.getIfPresent(key)).map(e -> e.cardinalities.get(column)).orElse(-1L);
+    }
+
+    @Nonnull
+    private static Entry query(@Nonnull LogAnalyticsWorkspace workspace, @Nonnull String table, @Nullable String timeRange, @Nonnull List<String> columns) {
+        // column_ifexists() makes the query valid whether the columns exist or not, absent columns have no values
+        final List<String> aggregations = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            final String column = String.format("tostring(column_ifexists('%s', ''))", columns.get(i));
+            aggregations.add(String.format("values%d = make_set_if(%s, isnotempty(%s), %d)", i, column, column, MAX_VALUES));
+            aggregations.add(String.format("cardinality%d = dcountif(%s, isnotempty(%s))", i, column, column));
+        }
+        final List<String> queryParams = new ArrayList<>(List.of(table));
+        Optional.ofNullable(timeRange).filter(StringUtils::isNotBlank).ifPresent(queryParams::add);
+        queryParams.add("summarize " + String.join(", ", aggregations));
+        final List<LogsTableCell> cells = Optional.ofNullable(workspace.executeQuery(String.join(" | ", queryParams)))
+            .map(LogsTable::getAllTableCells).orElse(Collections.emptyList());
+        final Map<String, List<String>> values = new HashMap<>();
+        final Map<String, Long> cardinalities = new HashMap<>();
+        for (final LogsTableCell cell : cells) {
+            final String name = cell.getColumnName();
+            final int index = Integer.parseInt(name.replaceAll("\\D", ""));
+            final String column = columns.get(index);
+            if (name.startsWith("values")) {
+                final List<String> columnValues = parseValues(cell.getValueAsString());
+                if (!columnValues.isEmpty()) {
+                    Collections.sort(columnValues);
+                    values.put(column, columnValues);
+                }
+            } else {
+                cardinalities.put(column, Optional.ofNullable(cell.getValueAsLong()).orElse(0L));
+            }
+        }
+        return new Entry(values, cardinalities, System.currentTimeMillis() + getTtl(timeRange).toMillis());
+    }
+
+    @Nonnull
+    private static List<String> parseValues(@Nullable String json) {
+        if (StringUtils.isBlank(json)) {
+            return new ArrayList<>();
+        }
+        try {
+            return new ArrayList<>(MAPPER.readValue(json, new TypeReference<List<String>>() {
+            }));
+        } catch (final Exception e) {
+            log.warn("failed to parse filter values: {}", json, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Nonnull
+    private static Duration getTtl(@Nullable String timeRange) {
+        final Matcher matcher = AGO.matcher(StringUtils.defaultString(timeRange));
+        if (!matcher.find()) {
+            return CUSTOM_TTL;
+        }
+        final long amount = Long.parseLong(matcher.group(1));
+        final Duration range = switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+        final Duration ttl = range.dividedBy(24);
+        return ttl.compareTo(MIN_TTL) < 0 ? MIN_TTL : ttl.compareTo(MAX_TTL) > 0 ? MAX_TTL : ttl;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final Map<String, List<String>> values;
+        private final Map<String, Long> cardinalities;
+        private final long expireAt;
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > this.expireAt;
+        }
+
+        @Nonnull
+        private Map<String, List<String>> copyValues() {
+            final Map<String, List<String>> result = new HashMap<>();
+            this.values.forEach((k, v) -> result.put(k, new ArrayList<>(v)));
+            return result;
+        }
+    }
+}
@@ -7,6 +7,7 @@ package com.microsoft.azure.toolkit.intellij.monitor.view.right.filter;
 
 import com.azure.resourcemanager.resources.fluentcore.arm.ResourceId;
 import com.microsoft.azure.toolkit.intellij.common.AzureComboBox;
+import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 
@@ -14,6 +15,7 @@ import java.util.Objects;
 
 public class KustoFilterComboBox extends AzureComboBox<String> {
     private String kustoString;
+    @Getter
     @Setter
     private String columnName;
     public final static String ALL = "All";
@@ -5,7 +5,6 @@
 
 package com.microsoft.azure.toolkit.intellij.monitor.view.right.table;
 
-import com.azure.monitor.query.models.LogsTableRow;
 import com.intellij.ui.table.JBTable;
 import com.microsoft.azure.toolkit.intellij.common.CommonConst;
 import lombok.Getter;
@@ -14,10 +13,7 @@ import org.apache.commons.lang3.StringUtils;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.swing.*;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
 import java.util.Optional;
 
 public class LogTable extends JBTable {
@@ -25,13 +21,14 @@ public class LogTable extends JBTable {
     private LogTableModel logTableModel = new LogTableModel();
     public LogTable() {
         super();
-        this.setModel(logTableModel);
+        super.setModel(logTableModel);
         this.setCellSelectionEnabled(true);
         this.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         this.setAutoscrolls(true);
         this.setAutoResizeMode(JBTable.AUTO_RESIZE_OFF);
         this.setPreferredScrollableViewportSize(null);
-        this.setAutoCreateRowSorter(true);
+        // rows are paged on demand, so they are sorted and filtered by the query instead of the table
+        this.setAutoCreateRowSorter(false);
     }
 
     @Override
@@ -46,15 +43,15 @@ public class LogTable extends JBTable {
         return isValidRowIndex(row) && isValidColumnIndex(column) ? super.getValueAt(row, column) : null;
     }
 
-    public void setModel(List<LogsTableRow> logsTableRows) {
-        logTableModel = new LogTableModel(logsTableRows);
-        this.setModel(logTableModel);
+    public void setModel(@Nonnull LogTableModel model) {
+        this.logTableModel.dispose();
+        this.logTableModel = model;
+        super.setModel(logTableModel);
         this.setColumnWidth();
     }
 
     public void clearModel() {
-        this.logTableModel = new LogTableModel();
-        this.setModel(logTableModel);
+        this.setModel(new LogTableModel());
     }
 
     public void setLoading(boolean isLoading) {
@@ -66,18 +63,6 @@ public class LogTable extends JBTable {
         }
     }
 
-    public void filter(String stringToFilter) {
-        final RowFilter<TableModel, Object> rf;
-        try {
-            rf = RowFilter.regexFilter("(?i)" + stringToFilter);
-        } catch (final java.util.regex.PatternSyntaxException e) {
-            return;
-        }
-        if (this.getRowSorter() instanceof TableRowSorter<? extends TableModel>) {
-            ((TableRowSorter<? extends TableModel>) this.getRowSorter()).setRowFilter(rf);
-        }
-    }
-
     private void setColumnWidth() {
         final int columnSize = this.getColumnCount();
         for (int columnIndex = 0; columnIndex < columnSize; columnIndex++) {
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.monitor.view.right.table;
+
+import com.azure.monitor.query.models.LogsColumnType;
+import com.azure.monitor.query.models.LogsTable;
+import com.azure.monitor.query.models.LogsTableCell;
+import com.azure.monitor.query.models.LogsTableRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.microsoft.azure.toolkit.lib.monitor.LogAnalyticsWorkspace;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export the whole result of a log analytics query into a file, the query is executed again in pages and the rows are
+ * written to the file as soon as they are received, so the memory used doesn't depend on the count of rows.
+ * - {@code now()} and {@code ago()} of the query are pinned to the time of export (if not pinned yet), so that all the pages are
+ * cut from the same rows.
+ * - if the result has a {@code TimeGenerated} column, it's paged by absolute time slices between its min and max, sized
+ * adaptively to about {@link #SLICE_ROWS} rows, otherwise it's paged by row number windows like {@link LogTableModel}, sorted
+ * with a tie breaker if the query is not sorted deterministically. Slices too dense to be narrowed are paged by row numbers too,
+ * and so are the rows without {@code TimeGenerated}, which are exported last.
+ * - the format is decided by the file name: {@code .json/.ndjson/.jsonl} for NDJSON, otherwise CSV, with {@code .gz} to gzip.
+ */
+@Slf4j
+public class LogTableExporter {
+    private static final String TIME_COLUMN = LogTableModel.TIME_COLUMN;
+    private static final int SLICE_ROWS = 10_000;
+    private static final int MAX_SLICE_ROWS = 50_000;
+    private static final Duration MIN_SLICE = Duration.ofMillis(1);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LogTableModel model;
+    private final LogAnalyticsWorkspace workspace;
+    private final String query;
+
+    public LogTableExporter(@Nonnull LogTableModel model) {
+        this.model = model;
+        this.workspace = Objects.requireNonNull(model.getWorkspace());
+        this.query = LogTableModel.pinTime(Objects.requireNonNull(model.getQuery()), Instant.now());
+    }
+
+    /**
+     * @return count of the exported rows, the partially written file is deleted if the export is canceled or failed.
+     */
+    public long export(@Nonnull File target) throws IOException {
+        final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        boolean succeeded = false;
+        try (final RowWriter writer = createWriter(target, model.getColumnNames())) {
+            final long count = this.model.getColumnNames().contains(TIME_COLUMN) ? exportByTimeSlices(writer, indicator) : -1;
+            final long result = count >= 0 ? count : exportByRowNumbers(writer, this.query, 0, this.model.getRowCount(), indicator);
+            succeeded = true;
+            return result;
+        } finally {
+            if (!succeeded) {
+                Files.deleteIfExists(target.toPath());
+            }
+        }
+    }
+
+    /**
+     * @return count of exported rows, or -1 if the result can't be sliced by time.
+     */
+    private long exportByTimeSlices(@Nonnull RowWriter writer, @Nullable ProgressIndicator indicator) throws IOException {
+        final String summaryQuery = String.format("%s | summarize __count = count(), __min = min(%s), __max = max(%s)", query, TIME_COLUMN, TIME_COLUMN);
+        final List<LogsTableCell> summary;
+        try {
+            summary = Optional.ofNullable(workspace.executeQuery(summaryQuery)).map(LogsTable::getAllTableCells).orElse(Collections.emptyList());
+        } catch (final Exception e) {
+            log.warn("failed to summarize time range of query: {}", query, e);
+            return -1;
+        }
+        if (summary.size() < 3 || Objects.isNull(summary.get(1).getValueAsDateTime())) {
+            return -1;
+        }
+        final long total = Optional.ofNullable(summary.get(0).getValueAsLong()).orElse(0L);
+        final Instant min = summary.get(1).getValueAsDateTime().toInstant();
+        final Instant max = summary.get(2).getValueAsDateTime().toInstant();
+        // exclusive upper bound, slices are exported from the latest to the earliest as the logs are displayed
+        Instant upper = max.plus(MIN_SLICE);
+        final Duration range = Duration.between(min, upper);
+        Duration slice = total <= SLICE_ROWS ? range : max(MIN_SLICE, range.multipliedBy(SLICE_ROWS).dividedBy(total));
+        long exported = 0;
+        while (upper.isAfter(min)) {
+            ProgressManager.checkCanceled();
+            final Instant lower = max(min, upper.minus(slice));
+            final String sliceQuery = String.format("%s | where %s >= %s and %s < %s",
+                query, TIME_COLUMN, LogTableModel.toDateTimeLiteral(lower), TIME_COLUMN, LogTableModel.toDateTimeLiteral(upper));
+            final List<LogsTableRow> rows = Optional.ofNullable(workspace.executeQuery(String.format("%s | take %d", sliceQuery, MAX_SLICE_ROWS + 1)))
+                .map(LogsTable::getRows).orElse(Collections.emptyList());
+            if (rows.size() > MAX_SLICE_ROWS) {
+                if (slice.compareTo(MIN_SLICE) > 0) {
+                    slice = max(MIN_SLICE, slice.dividedBy(2)); // too dense, retry with a narrower slice
+                    continue;
+                }
+                // can't be narrowed anymore, page it by row numbers instead of truncating it
+                exported += exportByRowNumbers(writer, sliceQuery, exported, total, indicator);
+            } else {
+                for (final LogsTableRow row : rows) {
+                    writer.write(row.getRow());
+                }
+                exported += rows.size();
+                updateProgress(indicator, exported, total);
+            }
+            upper = lower;
+            if (rows.size() < SLICE_ROWS / 4) {
+                slice = slice.multipliedBy(2);
+            }
+        }
+        // rows without time are not in any slice
+        final String nullQuery = String.format("%s | where isnull(%s)", query, TIME_COLUMN);
+        exported += exportByRowNumbers(writer, nullQuery, exported, total, indicator);
+        return exported;
+    }
+
+    /**
+     * @param exportedBefore count of rows exported before, for progress only
+     * @return count of rows exported by row numbers, which are sorted stably if the query doesn't, so that no row is missed or
+     * exported twice between pages.
+     */
+    private long exportByRowNumbers(@Nonnull RowWriter writer, @Nonnull String query, long exportedBefore, long total,
+                                    @Nullable ProgressIndicator indicator) throws IOException {
+        final String stableQuery = LogTableModel.isSortedStably(query) ? query : LogTableModel.sortStably(query, null, true);
+        long exported = 0;
+        for (int page = 0; ; page++) {
+            ProgressManager.checkCanceled();
+            final List<LogsTableRow> rows = LogTableModel.fetchPage(this.workspace, stableQuery, SLICE_ROWS, page);
+            for (final LogsTableRow row : rows) {
+                writer.write(row.getRow());
+            }
+            exported += rows.size();
+            updateProgress(indicator, exportedBefore + exported, total);
+            if (rows.size() < SLICE_ROWS) {
+                return exported;
+            }
+        }
+    }
+
+    private static void updateProgress(@Nullable ProgressIndicator indicator, long exported, long total) {
+        if (Objects.isNull(indicator)) {
+            return;
+        }
+        indicator.setText2(String.format("%d rows exported", exported));
+        if (total > 0) {
+            indicator.setIndeterminate(false);
+            indicator.setFraction(Math.min(1.0, (double) exported / total));
+        }
+    }
+
+    @Nonnull
+    private static Duration max(@Nonnull Duration a, @Nonnull Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    @Nonnull
+    private static Instant max(@Nonnull Instant a, @Nonnull Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    @Nonnull
+    private static RowWriter createWriter(@Nonnull File target, @Nonnull List<String> columns) throws IOException {
+        String name = target.getName().toLowerCase(Locale.ROOT);
+        OutputStream output = Files.newOutputStream(target.toPath());
+        if (name.endsWith(".gz")) {
+            output = new GZIPOutputStream(output, 64 * 1024);
+            name = StringUtils.removeEnd(name, ".gz");
+        }
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        if (StringUtils.endsWithAny(name, ".json", ".ndjson", ".jsonl")) {
+            return new JsonRowWriter(writer);
+        }
+        return new CsvRowWriter(writer, columns);
+    }
+
+    private interface RowWriter extends Closeable {
+        void write(@Nonnull List<LogsTableCell> row) throws IOException;
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final CSVPrinter printer;
+
+        private CsvRowWriter(@Nonnull Writer writer, @Nonnull List<String> columns) throws IOException {
+            this.printer = new CSVPrinter(writer, CSVFormat.Builder.create().setHeader(columns.toArray(new String[0])).build());
+        }
+
+        @Override
+        public void write(@Nonnull List<LogsTableCell> row) throws IOException {
+            this.printer.printRecord(row.stream().map(LogsTableCell::getValueAsString).toList());
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.printer.close();
+        }
+    }
+
+    private static class JsonRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private JsonRowWriter(@Nonnull Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(@Nonnull List<LogsTableCell> row) throws IOException {
+            final Map<String, Object> record = new LinkedHashMap<>();
+            for (final LogsTableCell cell : row) {
+                record.put(cell.getColumnName(), getValue(cell));
+            }
+            this.writer.write(MAPPER.writeValueAsString(record));
+            this.writer.write('\n');
+        }
+
+        @Nullable
+        private static Object getValue(@Nonnull LogsTableCell cell) {
+            if (Objects.isNull(cell.getValueAsString())) {
+                return null;
+            }
+            final LogsColumnType type = cell.getColumnType();
+            if (LogsColumnType.BOOL.equals(type)) {
+                return cell.getValueAsBoolean();
+            } else if (LogsColumnType.INT.equals(type)) {
+                return cell.getValueAsInteger();
+            } else if (LogsColumnType.LONG.equals(type)) {
+                return cell.getValueAsLong();
+            } else if (LogsColumnType.REAL.equals(type)) {
+                return cell.getValueAsDouble();
+            } else if (LogsColumnType.DATETIME.equals(type)) {
+                return Optional.ofNullable(cell.getValueAsDateTime()).map(OffsetDateTime::toString).orElse(null);
+            }
+            return cell.getValueAsString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.writer.close();
+        }
+    }
+}
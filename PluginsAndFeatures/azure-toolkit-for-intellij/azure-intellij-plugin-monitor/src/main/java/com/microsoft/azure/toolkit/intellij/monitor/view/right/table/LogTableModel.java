@@ -6,47 +6,208 @@
 package com.microsoft.azure.toolkit.intellij.monitor.view.right.table;
 
 import com.azure.monitor.query.models.LogsColumnType;
+import com.azure.monitor.query.models.LogsTable;
 import com.azure.monitor.query.models.LogsTableCell;
 import com.azure.monitor.query.models.LogsTableRow;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTask;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import com.microsoft.azure.toolkit.lib.monitor.LogAnalyticsWorkspace;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nls;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
-import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
-
+/**
+ * Table model of a log analytics query result, which is paged on demand by row number windows of the serialized result.
+ * Only the first page is loaded in advance, other pages are loaded when they are rendered and at most {@link #MAX_CACHED_PAGES}
+ * pages are kept in memory, so the heap is steady no matter how many rows the query returns.
+ */
+@Slf4j
 public class LogTableModel implements TableModel {
+    public static final int MAX_CACHED_PAGES = 10;
+    public static final String TIME_COLUMN = "TimeGenerated";
+    private static final String COLUMN_PREFIX = "__azure_toolkit_";
+    private static final String ROW_NUMBER_COLUMN = COLUMN_PREFIX + "row";
+    private static final String SORT_KEY_COLUMN = COLUMN_PREFIX + "sort_key";
+    private static final String TIE_BREAKER_COLUMN = COLUMN_PREFIX + "tie_breaker";
+    private static final String SNAPSHOT = COLUMN_PREFIX + "snapshot";
+    private static final Pattern AGO = Pattern.compile("\\bago\\s*\\(");
+    private static final Pattern NOW = Pattern.compile("\\bnow\\s*\\(\\s*\\)");
+    // datetime literals of kusto support at most 7 fractional digits
+    private static final DateTimeFormatter DATE_TIME_LITERAL_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSS'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.n a");
     @Getter
     private final List<String> columnNames = new ArrayList<>();
     private final List<LogsColumnType> columnClasses = new ArrayList<>();
-    @Getter
-    private final List<LogsTableRow> logsTableRows = new ArrayList<>();
     private final List<TableModelListener> tableModelListenerList = new ArrayList<>();
-
+    @Getter
+    @Nullable
+    private final LogAnalyticsWorkspace workspace;
+    @Getter
+    @Nullable
+    private final String query;
+    @Getter
+    private final int pageSize;
+    private final Map<Integer, List<LogsTableRow>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<LogsTableRow>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // pages to load, the latest requested page is loaded first, since it's most likely to be visible
+    private final LinkedList<Integer> pendingPages = new LinkedList<>();
+    private boolean loading = false;
+    // only the first failure is reported until a page is loaded again, since failed pages are requested again when rendered
+    private volatile boolean failureReported = false;
+    private volatile int rowCount;
+    private volatile boolean disposed = false;
 
     public LogTableModel() {
+        this.workspace = null;
+        this.query = null;
+        this.pageSize = 0;
+    }
+
+    private LogTableModel(@Nonnull LogAnalyticsWorkspace workspace, @Nonnull String query, int pageSize, @Nonnull List<LogsTableRow> firstPage) {
+        this.workspace = workspace;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.columnClasses.addAll(firstPage.get(0).getRow().stream().map(LogsTableCell::getColumnType).toList());
+        this.columnNames.addAll(firstPage.get(0).getRow().stream().map(LogsTableCell::getColumnName).toList());
+        this.pages.put(0, firstPage);
+        // the exact count is unknown until counted, but there is at least one more page if the first page is full
+        this.rowCount = firstPage.size() < pageSize ? firstPage.size() : firstPage.size() + 1;
+    }
+
+    /**
+     * load the first page of the query result, which blocks the calling thread, and count the rows in background.
+     *
+     * @return {@code null} if there are no rows returned by the query
+     */
+    @Nullable
+    public static LogTableModel load(@Nonnull LogAnalyticsWorkspace workspace, @Nonnull String query, int pageSize) {
+        final List<LogsTableRow> firstPage = fetchPage(workspace, query, pageSize, 0);
+        if (firstPage.isEmpty()) {
+            return null;
+        }
+        final LogTableModel model = new LogTableModel(workspace, query, pageSize, firstPage);
+        if (firstPage.size() >= pageSize) {
+            AzureTaskManager.getInstance().runOnPooledThread(model::count);
+        }
+        return model;
+    }
+
+    /**
+     * pin {@code now()} and {@code ago()} of the query to the snapshot time and exclude the rows generated later, so that the
+     * query returns the same rows whenever it's executed again. A pinned query is returned as is.
+     */
+    @Nonnull
+    public static String pinTime(@Nonnull String query, @Nonnull Instant snapshot) {
+        if (isTimePinned(query)) {
+            return query;
+        }
+        final String pinned = NOW.matcher(AGO.matcher(query).replaceAll("(" + SNAPSHOT + " - ")).replaceAll(SNAPSHOT);
+        final String timeGenerated = String.format("column_ifexists('%s', datetime(null))", TIME_COLUMN);
+        // where keeps the order of the rows sorted by the query
+        return String.format("let %s = %s;\n%s | where isnull(%s) or %s <= %s",
+            SNAPSHOT, toDateTimeLiteral(snapshot), pinned, timeGenerated, timeGenerated, SNAPSHOT);
+    }
+
+    public static boolean isTimePinned(@Nonnull String query) {
+        return query.startsWith("let " + SNAPSHOT + " ");
+    }
+
+    /**
+     * sort the rows by the key (if any) and then a tie breaker hashed from the row content, so that the order is deterministic
+     * and pages cut by row numbers don't overlap or miss rows across executions.
+     *
+     * @param key expression of the sort key, e.g. {@code ['Column']}, {@code null} to sort by the tie breaker only
+     */
+    @Nonnull
+    public static String sortStably(@Nonnull String query, @Nullable String key, boolean ascending) {
+        final List<String> queryParams = new ArrayList<>(List.of(query));
+        String sortBy = String.format("%s asc", TIE_BREAKER_COLUMN);
+        if (Objects.nonNull(key)) {
+            queryParams.add(String.format("extend %s = %s", SORT_KEY_COLUMN, key));
+            sortBy = String.format("%s %s, %s", SORT_KEY_COLUMN, ascending ? "asc" : "desc", sortBy);
+        }
+        queryParams.add(String.format("extend %s = hash(tostring(pack_all()))", TIE_BREAKER_COLUMN));
+        queryParams.add(String.format("sort by %s", sortBy));
+        // project-away keeps the order of the rows
+        queryParams.add(String.format("project-away %s, %s*", TIE_BREAKER_COLUMN, SORT_KEY_COLUMN));
+        return StringUtils.join(queryParams, " | ");
     }
 
-    public LogTableModel(List<LogsTableRow> logsTableRows ) {
-        this.columnClasses.addAll(logsTableRows.get(0).getRow().stream().map(LogsTableCell::getColumnType).toList());
-        this.columnNames.addAll(logsTableRows.get(0).getRow().stream().map(LogsTableCell::getColumnName).toList());
-        this.logsTableRows.addAll(logsTableRows);
+    public static boolean isSortedStably(@Nonnull String query) {
+        return query.contains(TIE_BREAKER_COLUMN);
+    }
+
+    @Nonnull
+    public static String toDateTimeLiteral(@Nonnull Instant time) {
+        return String.format("datetime(%s)", DATE_TIME_LITERAL_FORMATTER.format(time));
+    }
+
+    /**
+     * fetch a page of the query result without caching it.
+     */
+    @Nonnull
+    public List<LogsTableRow> fetchPage(int page) {
+        if (Objects.isNull(this.workspace) || Objects.isNull(this.query)) {
+            return Collections.emptyList();
+        }
+        return fetchPage(this.workspace, this.query, this.pageSize, page);
+    }
+
+    @Nonnull
+    static List<LogsTableRow> fetchPage(@Nonnull LogAnalyticsWorkspace workspace, @Nonnull String query, int pageSize, int page) {
+        final long from = (long) page * pageSize + 1;
+        final long to = (long) (page + 1) * pageSize;
+        final String pageQuery = String.format("%s | serialize %s = row_number() | where %s between (%d .. %d) | project-away %s",
+            query, ROW_NUMBER_COLUMN, ROW_NUMBER_COLUMN, from, to, ROW_NUMBER_COLUMN);
+        return Optional.ofNullable(workspace.executeQuery(pageQuery)).map(LogsTable::getRows).orElse(Collections.emptyList());
+    }
+
+    private void count() {
+        try {
+            final LogsTable result = Objects.requireNonNull(this.workspace).executeQuery(String.format("%s | count", this.query));
+            final long count = Optional.ofNullable(result).map(LogsTable::getAllTableCells).filter(cells -> !cells.isEmpty())
+                .map(cells -> cells.get(0).getValueAsLong()).orElse((long) this.rowCount);
+            final int oldCount = this.rowCount;
+            final int newCount = (int) Math.min(count, Integer.MAX_VALUE);
+            this.rowCount = newCount;
+            if (newCount > oldCount) {
+                fireTableChanged(new TableModelEvent(this, oldCount, newCount - 1, TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT));
+            } else if (newCount < oldCount) {
+                fireTableChanged(new TableModelEvent(this, newCount, oldCount - 1, TableModelEvent.ALL_COLUMNS, TableModelEvent.DELETE));
+            }
+        } catch (final Exception e) {
+            log.warn("failed to count rows of query: {}", this.query, e);
+        }
     }
 
     @Override
     public int getRowCount() {
-        return this.logsTableRows.size();
+        return this.rowCount;
     }
 
     @Override
@@ -84,42 +245,40 @@ public class LogTableModel implements TableModel {
         return false;
     }
 
+    /**
+     * @return value of the cell, or {@code null}(empty string for string columns) if the page of the row is still loading.
+     */
     @Override
     @Nullable
     public Object getValueAt(int rowIndex, int columnIndex) {
         if (isRowInvalid(rowIndex)) {
             return null;
         }
+        final LogsTableRow row = this.getRow(rowIndex);
+        if (Objects.isNull(row) || columnIndex >= row.getRow().size()) {
+            return String.class.equals(getColumnClass(columnIndex)) ? StringUtils.EMPTY : null;
+        }
+        final LogsTableCell cell = row.getRow().get(columnIndex);
         final LogsColumnType type = this.columnClasses.get(columnIndex);
         if (LogsColumnType.BOOL.equals(type)) {
-            return this.logsTableRows.get(rowIndex).getRow().get(columnIndex).getValueAsBoolean();
+            return cell.getValueAsBoolean();
         }
         if (LogsColumnType.INT.equals(type)) {
-            return this.logsTableRows.get(rowIndex).getRow().get(columnIndex).getValueAsInteger();
+            return cell.getValueAsInteger();
         }
         if (LogsColumnType.LONG.equals(type)) {
-            return this.logsTableRows.get(rowIndex).getRow().get(columnIndex).getValueAsLong();
+            return cell.getValueAsLong();
         }
         if (LogsColumnType.DATETIME.equals(type)) {
-            final OffsetDateTime dateTime = this.logsTableRows.get(rowIndex).getRow().get(columnIndex).getValueAsDateTime();
-            final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.n a");
-            return Optional.ofNullable(dateTime).map(d -> dateTime.format(dateTimeFormatter)).orElse(StringUtils.EMPTY);
+            final OffsetDateTime dateTime = cell.getValueAsDateTime();
+            return Optional.ofNullable(dateTime).map(d -> d.format(DATE_TIME_FORMATTER)).orElse(StringUtils.EMPTY);
         }
-        return this.logsTableRows.get(rowIndex).getRow().get(columnIndex).getValueAsString();
+        return cell.getValueAsString();
     }
 
     @Override
     public void setValueAt(Object value, int rowIndex, int columnIndex) {
-        if (value != null && !(value instanceof String)) {
-            throw new IllegalArgumentException(message("function.appSettings.validate.illegalType"));
-        }
-        while (rowIndex >= this.logsTableRows.size()) {
-            final LogsTableCell newCell = new LogsTableCell(columnNames.get(columnIndex), LogsColumnType.STRING, columnIndex, rowIndex, value);
-            final LogsTableRow newRow = new LogsTableRow(rowIndex, List.of(newCell));
-            this.logsTableRows.add(newRow);
-        }
-        this.logsTableRows.get(rowIndex).getRow().add(columnIndex, new LogsTableCell(columnNames.get(columnIndex), LogsColumnType.STRING, columnIndex, rowIndex, value));
-        fireTableChanged();
+        // query result is read only
     }
 
     @Override
@@ -132,18 +291,98 @@ public class LogTableModel implements TableModel {
         tableModelListenerList.remove(l);
     }
 
-    public void clear() {
-        this.columnNames.clear();
-        this.logsTableRows.clear();
-        fireTableChanged();
+    /**
+     * stop loading pages and release the loaded pages.
+     */
+    public void dispose() {
+        this.disposed = true;
+        synchronized (this.pages) {
+            this.pages.clear();
+            this.pendingPages.clear();
+        }
+    }
+
+    @Nullable
+    private LogsTableRow getRow(int rowIndex) {
+        final int page = rowIndex / this.pageSize;
+        final List<LogsTableRow> rows;
+        synchronized (this.pages) {
+            rows = this.pages.get(page);
+            if (Objects.isNull(rows)) {
+                this.requestPage(page);
+                return null;
+            }
+        }
+        final int index = rowIndex % this.pageSize;
+        return index < rows.size() ? rows.get(index) : null;
+    }
+
+    private void requestPage(int page) {
+        if (this.disposed) {
+            return;
+        }
+        this.pendingPages.remove((Integer) page);
+        this.pendingPages.addLast(page);
+        while (this.pendingPages.size() > MAX_CACHED_PAGES) {
+            this.pendingPages.removeFirst(); // scrolled away before loaded
+        }
+        if (!this.loading) {
+            this.loading = true;
+            AzureTaskManager.getInstance().runOnPooledThread(this::loadPendingPages);
+        }
+    }
+
+    private void loadPendingPages() {
+        while (true) {
+            final int page;
+            synchronized (this.pages) {
+                if (this.disposed || this.pendingPages.isEmpty()) {
+                    this.loading = false;
+                    return;
+                }
+                page = this.pendingPages.removeLast();
+                if (this.pages.containsKey(page)) {
+                    continue;
+                }
+            }
+            final List<LogsTableRow> rows;
+            try {
+                rows = this.fetchPage(page);
+                this.failureReported = false;
+            } catch (final Exception e) {
+                // not cached, so that the page is requested again when rendered
+                log.warn("failed to load page {} of query: {}", page, this.query, e);
+                if (!this.disposed && !this.failureReported) {
+                    this.failureReported = true;
+                    AzureMessager.getMessager().error(e, "Failed to load rows of the query result, scroll to retry.");
+                }
+                continue;
+            }
+            synchronized (this.pages) {
+                if (this.disposed) {
+                    return;
+                }
+                this.pages.put(page, rows);
+            }
+            final int first = page * this.pageSize;
+            final int oldCount = this.rowCount;
+            if (rows.size() >= this.pageSize && first + this.pageSize >= oldCount) {
+                // rows are not counted yet, and there is at least one more page
+                this.rowCount = first + this.pageSize + 1;
+                fireTableChanged(new TableModelEvent(this, oldCount, this.rowCount - 1, TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT));
+            }
+            final int last = Math.min(first + this.pageSize, this.rowCount) - 1;
+            if (last >= first) {
+                fireTableChanged(new TableModelEvent(this, first, last));
+            }
+        }
     }
 
-    private void fireTableChanged() {
-        tableModelListenerList.forEach(listener ->
-                AzureTaskManager.getInstance().runLater(() -> listener.tableChanged(new TableModelEvent(this))));
+    private void fireTableChanged(@Nonnull TableModelEvent event) {
+        AzureTaskManager.getInstance().runLater(() -> tableModelListenerList.forEach(listener -> listener.tableChanged(event)), AzureTask.Modality.ANY);
     }
 
     private boolean isRowInvalid(int row) {
-        return row < 0 || row >= this.logsTableRows.size();
+        return row < 0 || row >= this.rowCount;
     }
 }
@@ -6,60 +6,61 @@
 package com.microsoft.azure.toolkit.intellij.redis.explorer;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.ColoredListCellRenderer;
+import com.intellij.ui.SimpleTextAttributes;
 import com.microsoft.azure.toolkit.intellij.common.AzureActionButton;
 import com.microsoft.azure.toolkit.intellij.common.properties.AzResourcePropertiesEditor;
 import com.microsoft.azure.toolkit.lib.common.action.Action;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
 import com.microsoft.azure.toolkit.redis.RedisCache;
-import org.apache.commons.lang3.tuple.Pair;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.ScanParams;
-import redis.clients.jedis.ScanResult;
-import redis.clients.jedis.Tuple;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.SafeEncoder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.Optional;
 import java.util.function.Function;
 
-import static redis.clients.jedis.ScanParams.SCAN_POINTER_START;
-
-
 public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
 
     public static final String ID = "com.microsoft.intellij.helpers.rediscache.RedisCacheExplorer";
     public static final String INSIGHT_NAME = "AzurePlugin.IntelliJ.Editor.RedisCacheExplorer";
     private final RedisCache redis;
 
-    private String currentCursor;
+    @Nullable
+    private RedisKeyScanner scanner;
+    // type, ttl and memory usage of the scanned keys
+    private final Map<String, RedisKeyScanner.KeyInfo> keyInfos = new HashMap<>();
     private String lastChosenKey;
-
-    private static final String[] LIST_TITLE = new String[]{" Index", " Item"};
-    private static final String[] SET_TITLE = new String[]{" Member"};
-    private static final String[] ZSET_TITLE = new String[]{" Score", " Member"};
-    private static final String[] HASH_TITLE = new String[]{" Field", " Value"};
+    @Nullable
+    private RedisValueTableModel valueModel;
+    // increased whenever the value area is changed, to stop streaming the string previously shown
+    private volatile int valueGeneration;
 
     private static final String TABLE_HEADER_FONT = "Segoe UI";
     private static final int TABLE_HEADER_FONT_SIZE = 16;
     private static final int SPLIT_PANE_DIVIDER_SIZE = 2;
     private static final double SPLIT_PANE_WEIGHT = 0.4;
-    private static final int DEFAULT_KEY_COUNT = 50;
+    private static final int DEFAULT_KEY_COUNT = 500;
+    private static final long SCAN_BUDGET_MILLIS = 3000;
     private static final int DEFAULT_REDIS_DB_NUMBER = 16;
     private static final int MAX_DATABASE_NUMBER = 64;
-    private static final long DEFAULT_RANGE_START = 0;
-    private static final int DEFAULT_VAL_COUNT = 500;
 
     private static final String DEFAULT_SCAN_PATTERN = "*";
     private static final String ACTION_GET = "GET";
@@ -87,8 +88,9 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
         this.redis = redis;
         final AzureTaskManager manager = AzureTaskManager.getInstance();
 
-        currentCursor = SCAN_POINTER_START;
         lastChosenKey = "";
+        lstKey.setModel(new DefaultListModel<>());
+        lstKey.setCellRenderer(new KeyCellRenderer());
 
         cbActionType.addItem(ACTION_SCAN);
         cbActionType.addItem(ACTION_GET);
@@ -123,7 +125,7 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
             RedisCacheExplorer.this.setWidgetEnableStatus(false);
             lastChosenKey = selectedKey;
             manager.runOnPooledThread(() -> {
-                final Pair<String, ArrayList<String[]>> data = doWithRedis(jedis -> getValueByKey(jedis, selectedKey));
+                final RedisValue data = doWithRedis(jedis -> getValueByKey(jedis, selectedKey));
                 manager.runLater(() -> RedisCacheExplorer.this.showContent(data));
             });
         });
@@ -139,14 +141,7 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
                 .withAuthRequired(true)
                 .withSource(this.redis)
                 .withIdParam(this.redis.getName())
-                .withHandler(ignore -> {
-                    RedisCacheExplorer.this.setWidgetEnableStatus(false);
-                    manager.runOnPooledThread(() -> {
-                        final ScanResult<String> r = doWithRedis(jedis -> jedis.scan(currentCursor, new ScanParams()
-                                .match(txtKeyPattern.getText()).count(DEFAULT_KEY_COUNT)));
-                        manager.runLater(() -> RedisCacheExplorer.this.showScanResult(r));
-                    });
-                });
+                .withHandler(ignore -> RedisCacheExplorer.this.scanMore());
         btnScanMore.setAction(scanMoreAction);
 
         txtKeyPattern.addActionListener(event -> onBtnSearchClick());
@@ -187,64 +182,134 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
         }
     }
 
-    public void showScanResult(ScanResult<String> result) {
-        lstKey.removeAll();
-        final DefaultListModel<String> listModel = new DefaultListModel<>();
-        final List<String> keys = result.getResult();
-        Collections.sort(keys);
-        for (final String key : keys) {
-            listModel.addElement(key);
-        }
-        lstKey.setModel(listModel);
-        currentCursor = result.getCursor();
-        setWidgetEnableStatus(true);
+    /**
+     * start a new scan of the keys matching the pattern in the selected database, keys scanned before are cleared.
+     */
+    private void startScan(@Nonnull String pattern) {
+        Optional.ofNullable(this.scanner).ifPresent(RedisKeyScanner::close);
+        this.scanner = new RedisKeyScanner(this.redis, cbDatabase.getSelectedIndex(), pattern);
+        ((DefaultListModel<String>) lstKey.getModel()).removeAllElements();
+        this.keyInfos.clear();
+        this.lastChosenKey = "";
         clearValueArea();
+        scanMore();
     }
 
-    public void showContent(Pair<String, ArrayList<String[]>> val) {
-        if (Objects.isNull(val)) {
-            setWidgetEnableStatus(true);
+    /**
+     * continue the current scan, keys are appended to the key list page by page as they are scanned.
+     */
+    private void scanMore() {
+        final RedisKeyScanner current = this.scanner;
+        if (Objects.isNull(current)) {
             return;
         }
-        final String type = val.getKey();
-        final ArrayList<String[]> value = val.getValue();
-        lblTypeValue.setText(type);
-        lblKeyValue.setText(lstKey.getSelectedValue());
-        if (Objects.equals(type, "STRING")) {
-            if (value.size() > 0 && value.get(0).length > 0) {
-                txtStringValue.setText(value.get(0)[0]);
+        setWidgetEnableStatus(false);
+        final AzureTaskManager manager = AzureTaskManager.getInstance();
+        manager.runOnPooledThread(() -> {
+            try {
+                current.scan(DEFAULT_KEY_COUNT, SCAN_BUDGET_MILLIS, keys -> manager.runLater(() -> this.appendKeys(current, keys)));
+            } catch (final RuntimeException e) {
+                if (current == this.scanner) {
+                    AzureMessager.getMessager().error(e);
+                }
+            } finally {
+                manager.runLater(() -> {
+                    if (current == this.scanner) {
+                        setWidgetEnableStatus(true);
+                    }
+                });
+            }
+        });
+    }
+
+    private void appendKeys(@Nonnull RedisKeyScanner source, @Nonnull List<RedisKeyScanner.KeyInfo> keys) {
+        if (source != this.scanner) {
+            return; // keys of a previous scan
+        }
+        final DefaultListModel<String> listModel = (DefaultListModel<String>) lstKey.getModel();
+        for (final RedisKeyScanner.KeyInfo key : keys) {
+            if (Objects.nonNull(this.keyInfos.put(key.name(), key))) {
+                continue; // SCAN may return a key more than once
             }
+            // keep the keys sorted by inserting them at their binary searched positions
+            int low = 0, high = listModel.getSize();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (listModel.getElementAt(mid).compareTo(key.name()) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            listModel.add(low, key.name());
+        }
+    }
+
+    private void showContent(@Nullable RedisValue value) {
+        clearValueArea();
+        if (Objects.isNull(value)) {
+            setWidgetEnableStatus(true);
+            return;
+        }
+        lblTypeValue.setText(value.describe());
+        lblKeyValue.setText(value.key());
+        if (Objects.isNull(value.model())) {
+            txtStringValue.setText("");
             setValueCompositeVisible(false);
+            streamString(value.key(), value.length());
         } else {
-            final String[] columnNames;
-            switch (type) {
-                case "LIST":
-                    columnNames = LIST_TITLE;
-                    break;
-                case "SET":
-                    columnNames = SET_TITLE;
-                    break;
-                case "ZSET":
-                    columnNames = ZSET_TITLE;
-                    break;
-                case "HASH":
-                    columnNames = HASH_TITLE;
-                    break;
-                default:
-                    return;
-            }
-            String[][] data = new String[value.size()][columnNames.length];
-            data = value.toArray(data);
-            final ReadOnlyTableModel tableModel = new ReadOnlyTableModel(data, columnNames);
+            this.valueModel = value.model();
             setValueCompositeVisible(true);
-            tblInnerValue.setModel(tableModel);
+            tblInnerValue.setModel(value.model());
         }
         setWidgetEnableStatus(true);
     }
 
+    /**
+     * append the string to the value area slice by slice with GETRANGE, at most {@link RedisStringPreview#MAX_PREVIEW_SIZE}
+     * bytes are shown.
+     */
+    private void streamString(@Nonnull String key, long length) {
+        final int generation = this.valueGeneration;
+        final int database = cbDatabase.getSelectedIndex();
+        final AzureTaskManager manager = AzureTaskManager.getInstance();
+        manager.runOnPooledThread(() -> doWithRedis(jedis -> {
+            jedis.select(database);
+            final byte[] rawKey = SafeEncoder.encode(key);
+            final long limit = Math.min(length, RedisStringPreview.MAX_PREVIEW_SIZE);
+            RedisStringPreview preview = null;
+            for (long offset = 0; offset < limit && generation == this.valueGeneration; ) {
+                final long end = Math.min(offset + RedisStringPreview.SLICE_SIZE, limit);
+                final byte[] slice = jedis.getrange(rawKey, offset, end - 1);
+                if (slice.length == 0) {
+                    break; // truncated after its length was read
+                }
+                preview = Objects.isNull(preview) ? new RedisStringPreview(slice) : preview;
+                offset += slice.length;
+                final String text = preview.append(slice, offset >= limit);
+                manager.runLater(() -> appendStringValue(generation, text));
+            }
+            if (length > limit) {
+                final String more = String.format("%n... %s more are not shown", StringUtil.formatFileSize(length - limit));
+                manager.runLater(() -> appendStringValue(generation, more));
+            }
+            return null;
+        }));
+    }
+
+    private void appendStringValue(int generation, @Nonnull String text) {
+        if (generation == this.valueGeneration) {
+            txtStringValue.append(text);
+        }
+    }
+
     public void updateKeyList() {
+        // the list shows the got key only, keys of the previous scan are not appended anymore
+        Optional.ofNullable(this.scanner).ifPresent(RedisKeyScanner::close);
+        this.scanner = null;
         final DefaultListModel<String> listModel = (DefaultListModel<String>) lstKey.getModel();
         listModel.removeAllElements();
+        keyInfos.clear();
         listModel.addElement(txtKeyPattern.getText());
         lstKey.setModel(listModel);
         lstKey.setSelectedIndex(0);
@@ -258,14 +323,7 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
     }
 
     private void onDataBaseSelect() {
-        final AzureTaskManager manager = AzureTaskManager.getInstance();
-        manager.runOnPooledThread(() -> {
-            final ScanResult<String> r = doWithRedis(jedis -> {
-                jedis.select(cbDatabase.getSelectedIndex());
-                return jedis.scan(SCAN_POINTER_START, new ScanParams().match(DEFAULT_SCAN_PATTERN).count(DEFAULT_KEY_COUNT));
-            });
-            manager.runLater(() -> RedisCacheExplorer.this.showScanResult(r));
-        });
+        startScan(DEFAULT_SCAN_PATTERN);
     }
 
     private void setWidgetEnableStatus(boolean enabled) {
@@ -276,10 +334,13 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
         lstKey.setEnabled(enabled);
         cbActionType.setEnabled(enabled);
         final String actionType = (String) cbActionType.getSelectedItem();
-        btnScanMore.setEnabled(enabled && Objects.equals(actionType, ACTION_SCAN));
+        btnScanMore.setEnabled(enabled && Objects.equals(actionType, ACTION_SCAN) && Objects.nonNull(scanner) && scanner.hasMore());
     }
 
     private void clearValueArea() {
+        this.valueGeneration++;
+        Optional.ofNullable(this.valueModel).ifPresent(RedisValueTableModel::dispose);
+        this.valueModel = null;
         lblKeyValue.setText("");
         lblTypeValue.setText("");
         pnlInnerValue.setVisible(false);
@@ -299,18 +360,15 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
         if (Objects.equals(actionType, ACTION_GET)) {
             final AzureTaskManager manager = AzureTaskManager.getInstance();
             manager.runOnPooledThread(() -> {
-                final Pair<String, ArrayList<String[]>> result = doWithRedis(jedis ->
-                    jedis.exists(key) ? getValueByKey(jedis, key) : Pair.of("", new ArrayList<>()));
-                this.updateKeyList();
-                this.showContent(result);
+                final RedisValue result = doWithRedis(jedis -> getValueByKey(jedis, key));
+                manager.runLater(() -> {
+                    this.lastChosenKey = key; // not to load the value again when the key is selected
+                    this.updateKeyList();
+                    this.showContent(result);
+                });
             });
         } else if (Objects.equals(actionType, ACTION_SCAN)) {
-            final AzureTaskManager manager = AzureTaskManager.getInstance();
-            manager.runOnPooledThread(() -> {
-                final ScanResult<String> r = doWithRedis(jedis -> jedis.scan(SCAN_POINTER_START, new ScanParams().match(key).count(DEFAULT_KEY_COUNT)));
-                manager.runLater(() -> RedisCacheExplorer.this.showScanResult(r));
-            });
-            currentCursor = SCAN_POINTER_START;
+            startScan(key);
         }
         lastChosenKey = "";
     }
@@ -320,14 +378,30 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
 
     }
 
-    private static class ReadOnlyTableModel extends DefaultTableModel {
-        ReadOnlyTableModel(Object[][] data, String[] columnNames) {
-            super(data, columnNames);
-        }
+    @Override
+    public void dispose() {
+        super.dispose();
+        Optional.ofNullable(this.scanner).ifPresent(RedisKeyScanner::close);
+        Optional.ofNullable(this.valueModel).ifPresent(RedisValueTableModel::dispose);
+        this.valueGeneration++;
+    }
 
+    private class KeyCellRenderer extends ColoredListCellRenderer<String> {
         @Override
-        public boolean isCellEditable(int row, int column) {
-            return false;
+        protected void customizeCellRenderer(@Nonnull JList<? extends String> list, String value, int index, boolean selected, boolean hasFocus) {
+            append(value);
+            final RedisKeyScanner.KeyInfo info = keyInfos.get(value);
+            if (Objects.isNull(info)) {
+                return;
+            }
+            final List<String> details = new ArrayList<>(List.of(info.type()));
+            if (info.ttl() >= 0) {
+                details.add("TTL " + StringUtil.formatDuration(info.ttl()));
+            }
+            if (info.memoryUsage() >= 0) {
+                details.add(StringUtil.formatFileSize(info.memoryUsage()));
+            }
+            append("  " + String.join(", ", details), SimpleTextAttributes.GRAYED_ATTRIBUTES);
         }
     }
 
@@ -362,46 +436,57 @@ public class RedisCacheExplorer extends AzResourcePropertiesEditor<RedisCache> {
         }
     }
 
+    /**
+     * read the type, size and memory usage of the value, and the first page of collections.
+     *
+     * @return {@code null} if the key doesn't exist or the type is not supported
+     */
     @Nullable
-    private Pair<String, ArrayList<String[]>> getValueByKey(Jedis jedis, String key) {
-        jedis.select(cbDatabase.getSelectedIndex());
-        final String type = jedis.type(key).toUpperCase();
-        final ArrayList<String[]> columnData = new ArrayList<>();
+    private RedisValue getValueByKey(Jedis jedis, String key) {
+        final int database = cbDatabase.getSelectedIndex();
+        jedis.select(database);
+        final Pipeline pipeline = jedis.pipelined();
+        final Response<String> typeResponse = pipeline.type(key);
+        final Response<Object> memoryUsageResponse = pipeline.sendCommand(Protocol.Command.MEMORY, "USAGE", key);
+        pipeline.sync();
+        final String type = typeResponse.get().toUpperCase();
+        long memoryUsage;
+        try {
+            memoryUsage = Objects.requireNonNullElse((Long) memoryUsageResponse.get(), -1L);
+        } catch (final JedisDataException e) {
+            memoryUsage = -1; // e.g. the command is disabled
+        }
+        final long length;
         switch (type) {
-            case "STRING":
-                final String stringVal = jedis.get(key);
-                columnData.add(new String[]{stringVal});
-                return Pair.of("STRING", columnData);
-            case "LIST":
-                final long listLength = jedis.llen(key);
-                final List<String> listVal = jedis.lrange(key, DEFAULT_RANGE_START,
-                    listLength < DEFAULT_VAL_COUNT ? listLength : DEFAULT_VAL_COUNT);
-                for (int i = 0; i < listVal.size(); i++) {
-                    columnData.add(new String[]{String.valueOf(i + 1), listVal.get(i)});
-                }
-                return Pair.of("LIST", columnData);
-            case "SET":
-                final ScanResult<String> setVal = jedis.sscan(key, SCAN_POINTER_START, new ScanParams().count(DEFAULT_VAL_COUNT));
-                for (final String row : setVal.getResult()) {
-                    columnData.add(new String[]{row});
-                }
-                return Pair.of("SET", columnData);
-            case "ZSET":
-                final long zsetLength = jedis.zcard(key);
-                final Set<Tuple> zsetVal = jedis.zrangeWithScores(key, DEFAULT_RANGE_START,
-                    zsetLength < DEFAULT_VAL_COUNT ? zsetLength : DEFAULT_VAL_COUNT);
-                for (final Tuple tuple : zsetVal) {
-                    columnData.add(new String[]{String.valueOf(tuple.getScore()), tuple.getElement()});
-                }
-                return Pair.of("ZSET", columnData);
-            case "HASH":
-                final ScanResult<Map.Entry<String, String>> hashVal = jedis.hscan(key, SCAN_POINTER_START, new ScanParams().count(DEFAULT_VAL_COUNT));
-                for (final Map.Entry<String, String> hash : hashVal.getResult()) {
-                    columnData.add(new String[]{hash.getKey(), hash.getValue()});
-                }
-                return Pair.of("HASH", columnData);
-            default:
+            case "STRING" -> length = jedis.strlen(key);
+            case "LIST" -> length = jedis.llen(key);
+            case "SET" -> length = jedis.scard(key);
+            case "ZSET" -> length = jedis.zcard(key);
+            case "HASH" -> length = jedis.hlen(key);
+            default -> {
                 return null;
+            }
+        }
+        final RedisValueTableModel model = RedisValueTableModel.load(this.redis, database, jedis, key, type, length);
+        return new RedisValue(key, type, length, memoryUsage, model);
+    }
+
+    /**
+     * @param length      bytes of strings, or count of members of collections
+     * @param memoryUsage bytes used by the key and its value, negative if unknown
+     * @param model       members of collections, {@code null} for strings
+     */
+    private record RedisValue(@Nonnull String key, @Nonnull String type, long length, long memoryUsage,
+                              @Nullable RedisValueTableModel model) {
+        @Nonnull
+        private String describe() {
+            final List<String> details = new ArrayList<>();
+            details.add(Objects.equals(this.type, "STRING") ? StringUtil.formatFileSize(this.length) :
+                String.format("%,d %s", this.length, this.length == 1 ? "member" : "members"));
+            if (this.memoryUsage >= 0) {
+                details.add(StringUtil.formatFileSize(this.memoryUsage) + " in memory");
+            }
+            return String.format("%s (%s)", this.type, String.join(", ", details));
         }
     }
 
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.redis.explorer;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import com.microsoft.azure.toolkit.redis.RedisCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static redis.clients.jedis.ScanParams.SCAN_POINTER_START;
+
+/**
+ * Scanner of the keys of a redis cache, which keeps the cursors between scans so that keys can be loaded page by page.
+ * - {@code COUNT} of SCAN is adapted to the measured latency: it grows while the round trip dominates and shrinks when
+ * the server spends too long on a single SCAN.
+ * - type, ttl and memory usage of the keys of a page are fetched in a single pipelined round trip.
+ * - shards of a clustered cache are scanned in parallel, each with its own cursor.
+ * - pages are passed to the consumer as soon as they are received.
+ */
+@Slf4j
+public class RedisKeyScanner implements Closeable {
+    private static final int MIN_COUNT = 50;
+    private static final int MAX_COUNT = 10_000;
+    private static final long TARGET_WORK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int NODE_TIMEOUT_MILLIS = 10_000;
+    private static final String TYPE_NONE = "none";
+    // bounded on the shared application pool, so no threads are kept after scans
+    private static final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Azure Redis Key Scanner", 8);
+
+    private final RedisCache redis;
+    private final int database;
+    private final String pattern;
+    @Nullable
+    private volatile List<Shard> shards;
+    private volatile boolean memoryUsageSupported = true;
+    private volatile boolean closed = false;
+
+    public RedisKeyScanner(@Nonnull RedisCache redis, int database, @Nonnull String pattern) {
+        this.redis = redis;
+        this.database = database;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @return {@code false} if all the keys matching the pattern are scanned.
+     */
+    public boolean hasMore() {
+        final List<Shard> shards = this.shards;
+        return !this.closed && (Objects.isNull(shards) || shards.stream().anyMatch(s -> !s.finished));
+    }
+
+    /**
+     * scan shards in parallel until at least {@code minKeys} keys are found, all keys are scanned or the time budget is used up,
+     * which blocks the calling thread.
+     *
+     * @param consumer accepts pages of keys, called from the scanning threads
+     * @return count of the keys found
+     */
+    public synchronized int scan(int minKeys, long budgetMillis, @Nonnull Consumer<List<KeyInfo>> consumer) {
+        if (Objects.isNull(this.shards)) {
+            this.shards = discoverShards();
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        final AtomicInteger found = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+        for (final Shard shard : this.shards) {
+            if (shard.finished) {
+                continue;
+            }
+            futures.add(executor.submit(() -> {
+                while (!this.closed && !shard.finished && found.get() < minKeys && System.nanoTime() < deadline) {
+                    final List<KeyInfo> keys = shard.scanPage();
+                    if (!keys.isEmpty() && !this.closed) {
+                        found.addAndGet(keys.size());
+                        consumer.accept(keys);
+                    }
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JedisException(e);
+            } catch (final ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new JedisException(e.getCause());
+            }
+        }
+        return found.get();
+    }
+
+    /**
+     * stop scanning without blocking the calling thread. The running scan (if any) stops after the pages being scanned, so the
+     * shard connections are closed by a pooled thread once it acquires the monitor of the scanner, i.e. at most one SCAN page
+     * later, which is bounded by the socket timeout of the connections.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        AzureTaskManager.getInstance().runOnPooledThread(() -> {
+            synchronized (this) {
+                Objects.requireNonNullElse(this.shards, Collections.<Shard>emptyList()).forEach(Shard::close);
+            }
+        });
+    }
+
+    /**
+     * SCAN of a clustered cache only covers the shard it's connected to, so the master nodes are scanned one by one. Since the
+     * nodes report their internal addresses, they are connected by the host name of the cache with the reported ports. If the
+     * shards can't be connected, only the default node is scanned and the user is warned that the keys are incomplete.
+     */
+    @Nonnull
+    private List<Shard> discoverShards() {
+        if (this.database != 0) {
+            return List.of(new Shard(null, 0, false)); // only database 0 is available in cluster mode
+        }
+        final List<Shard> result = new ArrayList<>();
+        try (final Jedis jedis = this.redis.getJedisPool().getResource()) {
+            if (!StringUtils.contains(jedis.info("cluster"), "cluster_enabled:1")) {
+                return List.of(new Shard(null, 0, false));
+            }
+            final String host = jedis.getClient().getHost();
+            // shards are connected the same way as the pool
+            final boolean ssl = jedis.getClient().getPort() == this.redis.getSSLPort();
+            for (final String line : StringUtils.split(jedis.clusterNodes(), "\n")) {
+                final String[] fields = StringUtils.split(line, " ");
+                if (fields.length < 3 || !fields[2].contains("master") || fields[2].contains("fail")) {
+                    continue;
+                }
+                final String address = StringUtils.substringBefore(StringUtils.substringBefore(fields[1], "@"), ",");
+                final int port = Integer.parseInt(StringUtils.substringAfterLast(address, ":"));
+                final Shard shard = new Shard(host, ssl ? toSslPort(port) : port, ssl);
+                result.add(shard);
+                shard.getConnection();
+            }
+            return result.isEmpty() ? List.of(new Shard(null, 0, false)) : result;
+        } catch (final JedisException | NumberFormatException e) {
+            log.warn("failed to connect shards of redis cache {}, scan the default node only", this.redis.getName(), e);
+            result.forEach(Shard::close);
+            AzureMessager.getMessager().warning(String.format("Failed to connect the shards of clustered Redis cache \"%s\", " +
+                "only the keys of one shard are listed. %s", this.redis.getName(), e.getMessage()));
+            return List.of(new Shard(null, 0, false));
+        }
+    }
+
+    @Nonnull
+    private List<KeyInfo> describe(@Nonnull Jedis jedis, @Nonnull List<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final boolean withMemoryUsage = this.memoryUsageSupported;
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<String>> types = new ArrayList<>(keys.size());
+        final List<Response<Long>> ttls = new ArrayList<>(keys.size());
+        final List<Response<Object>> memoryUsages = new ArrayList<>(keys.size());
+        for (final String key : keys) {
+            types.add(pipeline.type(key));
+            ttls.add(pipeline.pttl(key));
+            if (withMemoryUsage) {
+                memoryUsages.add(pipeline.sendCommand(Protocol.Command.MEMORY, "USAGE", key));
+            }
+        }
+        pipeline.sync();
+        final List<KeyInfo> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            final String type = get(types.get(i), TYPE_NONE);
+            if (TYPE_NONE.equals(type)) {
+                continue; // deleted or expired after scanned
+            }
+            long memoryUsage = -1;
+            if (withMemoryUsage) {
+                try {
+                    memoryUsage = Objects.requireNonNullElse((Long) memoryUsages.get(i).get(), -1L);
+                } catch (final JedisDataException e) {
+                    this.memoryUsageSupported = false; // e.g. the command is disabled
+                }
+            }
+            result.add(new KeyInfo(keys.get(i), type.toUpperCase(), get(ttls.get(i), -1L), memoryUsage));
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static <T> T get(@Nonnull Response<T> response, @Nonnull T defaultValue) {
+        try {
+            return Objects.requireNonNullElse(response.get(), defaultValue);
+        } catch (final JedisDataException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param ttl         time to live in milliseconds, negative if the key doesn't expire
+     * @param memoryUsage bytes used by the key and its value, negative if unknown
+     */
+    public record KeyInfo(@Nonnull String name, @Nonnull String type, long ttl, long memoryUsage) {
+    }
+
+    private class Shard {
+        // connection of a cluster node, the default node is connected by connections borrowed from the pool
+        @Nullable
+        private final String host;
+        private final int port;
+        private final boolean ssl;
+        @Nullable
+        private Jedis connection;
+        private String cursor = SCAN_POINTER_START;
+        private int count = MIN_COUNT;
+        private long roundTrip = Long.MAX_VALUE;
+        private volatile boolean finished = false;
+
+        private Shard(@Nullable String host, int port, boolean ssl) {
+            this.host = host;
+            this.port = port;
+            this.ssl = ssl;
+        }
+
+        @Nonnull
+        private List<KeyInfo> scanPage() {
+            if (Objects.isNull(this.host)) {
+                try (final Jedis jedis = redis.getJedisPool().getResource()) {
+                    jedis.select(database);
+                    return scanPage(jedis);
+                }
+            }
+            return scanPage(getConnection());
+        }
+
+        @Nonnull
+        private List<KeyInfo> scanPage(@Nonnull Jedis jedis) {
+            final long start = System.nanoTime();
+            final ScanResult<String> result = jedis.scan(this.cursor, new ScanParams().match(pattern).count(this.count));
+            adaptCount(System.nanoTime() - start);
+            this.cursor = result.getCursor();
+            this.finished = SCAN_POINTER_START.equals(this.cursor);
+            return describe(jedis, result.getResult());
+        }
+
+        private void adaptCount(long elapsed) {
+            // the fastest SCAN so far approximates the round trip, the rest of a SCAN is the work of the server
+            this.roundTrip = Math.min(this.roundTrip, elapsed);
+            final long work = elapsed - this.roundTrip;
+            final long budget = Math.max(this.roundTrip, TARGET_WORK_NANOS);
+            if (work < budget / 2) {
+                this.count = Math.min(MAX_COUNT, this.count * 2);
+            } else if (work > budget * 2) {
+                this.count = Math.max(MIN_COUNT, this.count / 2);
+            }
+        }
+
+        @Nonnull
+        private Jedis getConnection() {
+            if (Objects.isNull(this.connection)) {
+                final Jedis jedis = new Jedis(Objects.requireNonNull(this.host), this.port, NODE_TIMEOUT_MILLIS, this.ssl);
+                jedis.auth(redis.getPrimaryKey());
+                this.connection = jedis;
+            }
+            return this.connection;
+        }
+
+        private void close() {
+            if (Objects.nonNull(this.connection)) {
+                try {
+                    this.connection.close();
+                } catch (final JedisException e) {
+                    log.debug("failed to close connection of shard {}:{}", this.host, this.port, e);
+                }
+                this.connection = null;
+            }
+        }
+    }
+
+    /**
+     * shards of azure cache for redis are exposed on ports 13XXX without ssl and 15XXX with ssl, and CLUSTER NODES reports the
+     * non-ssl ones.
+     */
+    private static int toSslPort(int port) {
+        return port >= 13000 && port < 14000 ? port + 2000 : port;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.redis.explorer;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Preview of a redis string which is read slice by slice with {@code GETRANGE}, as UTF-8 text if the first slice is valid
+ * text, otherwise as hex dump. Multi-byte characters split between slices are decoded with the next slice.
+ */
+public class RedisStringPreview {
+    public static final int SLICE_SIZE = 64 * 1024;
+    public static final int MAX_PREVIEW_SIZE = 1024 * 1024;
+    private static final int HEX_BYTES_PER_LINE = 16;
+
+    private final boolean binary;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // bytes of the incomplete character (text) or line (hex) at the end of the previous slice
+    private byte[] carry = new byte[0];
+    private long offset = 0;
+
+    public RedisStringPreview(@Nonnull byte[] firstSlice) {
+        this.binary = isBinary(firstSlice);
+    }
+
+    /**
+     * @param last if it's the last slice to preview, so that no bytes are carried to the next slice
+     * @return text of the slice to append to the preview
+     */
+    @Nonnull
+    public String append(@Nonnull byte[] slice, boolean last) {
+        final byte[] bytes = new byte[this.carry.length + slice.length];
+        System.arraycopy(this.carry, 0, bytes, 0, this.carry.length);
+        System.arraycopy(slice, 0, bytes, this.carry.length, slice.length);
+        return this.binary ? appendHex(bytes, last) : appendText(bytes, last);
+    }
+
+    @Nonnull
+    private String appendText(@Nonnull byte[] bytes, boolean last) {
+        final ByteBuffer input = ByteBuffer.wrap(bytes);
+        final CharBuffer output = CharBuffer.allocate(bytes.length);
+        this.decoder.decode(input, output, last);
+        if (last) {
+            this.decoder.flush(output);
+        }
+        this.carry = Arrays.copyOfRange(bytes, input.position(), bytes.length);
+        return output.flip().toString();
+    }
+
+    @Nonnull
+    private String appendHex(@Nonnull byte[] bytes, boolean last) {
+        final int length = last ? bytes.length : bytes.length - bytes.length % HEX_BYTES_PER_LINE;
+        final StringBuilder result = new StringBuilder(length * 4 + 64);
+        for (int line = 0; line < length; line += HEX_BYTES_PER_LINE) {
+            final int end = Math.min(line + HEX_BYTES_PER_LINE, length);
+            result.append(String.format("%08x  ", this.offset + line));
+            for (int i = line; i < line + HEX_BYTES_PER_LINE; i++) {
+                result.append(i < end ? String.format("%02x ", bytes[i]) : "   ");
+            }
+            result.append(" |");
+            for (int i = line; i < end; i++) {
+                final int b = bytes[i] & 0xff;
+                result.append(b >= 0x20 && b < 0x7f ? (char) b : '.');
+            }
+            result.append("|\n");
+        }
+        this.offset += length;
+        this.carry = Arrays.copyOfRange(bytes, length, bytes.length);
+        return result.toString();
+    }
+
+    /**
+     * @return {@code true} if the bytes contain NUL/control characters or are not valid UTF-8.
+     */
+    private static boolean isBinary(@Nonnull byte[] bytes) {
+        for (final byte b : bytes) {
+            if ((b >= 0 && b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') || b == 0x7f) {
+                return true;
+            }
+        }
+        final CharsetDecoder validator = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // the slice may end in the middle of a character, which is not an error before the end of input
+        final CoderResult result = validator.decode(ByteBuffer.wrap(bytes), CharBuffer.allocate(bytes.length), false);
+        return result.isError();
+    }
+}
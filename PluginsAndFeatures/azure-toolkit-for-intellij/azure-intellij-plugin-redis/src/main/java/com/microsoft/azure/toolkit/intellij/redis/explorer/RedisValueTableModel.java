@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.redis.explorer;
+
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTask;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import com.microsoft.azure.toolkit.redis.RedisCache;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static redis.clients.jedis.ScanParams.SCAN_POINTER_START;
+
+/**
+ * Table model of the members of a redis list, set, sorted set or hash, which is loaded lazily page by page while rendered.
+ * - lists and sorted sets are paged by index windows ({@code LRANGE}/{@code ZRANGE}), so any page can be loaded directly and
+ * at most {@link #MAX_CACHED_PAGES} pages are kept in memory.
+ * - sets and hashes can only be iterated with cursors ({@code SSCAN}/{@code HSCAN}), so the next page is loaded when the
+ * last row is rendered.
+ */
+@Slf4j
+public class RedisValueTableModel extends AbstractTableModel {
+    public static final int PAGE_SIZE = 500;
+    public static final int MAX_CACHED_PAGES = 20;
+    private static final String[] LIST_TITLE = new String[]{" Index", " Item"};
+    private static final String[] SET_TITLE = new String[]{" Member"};
+    private static final String[] ZSET_TITLE = new String[]{" Score", " Member"};
+    private static final String[] HASH_TITLE = new String[]{" Field", " Value"};
+
+    private final RedisCache redis;
+    private final int database;
+    private final String key;
+    @Getter
+    private final String type;
+    private final String[] columnNames;
+    // count of members of lists and sorted sets
+    private final long length;
+    private final Map<Integer, List<String[]>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<String[]>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // pages to load, the latest requested page is loaded first, since it's most likely to be visible
+    private final LinkedList<Integer> pendingPages = new LinkedList<>();
+    // members of sets and hashes iterated so far
+    private final List<String[]> rows = new ArrayList<>();
+    private String cursor = SCAN_POINTER_START;
+    private volatile boolean finished = false;
+    private boolean loading = false;
+    // only the first failure is reported until a page is loaded again, since failed pages are requested again when rendered
+    private volatile boolean failureReported = false;
+    private volatile boolean disposed = false;
+
+    private RedisValueTableModel(@Nonnull RedisCache redis, int database, @Nonnull String key, @Nonnull String type, long length) {
+        this.redis = redis;
+        this.database = database;
+        this.key = key;
+        this.type = type;
+        this.length = length;
+        this.columnNames = switch (type) {
+            case "LIST" -> LIST_TITLE;
+            case "ZSET" -> ZSET_TITLE;
+            case "HASH" -> HASH_TITLE;
+            default -> SET_TITLE;
+        };
+    }
+
+    /**
+     * load the first page of the value with the given connection, which blocks the calling thread.
+     *
+     * @param type   one of LIST, SET, ZSET and HASH
+     * @param length count of the members of the value
+     * @return {@code null} if the type is not a collection
+     */
+    @Nullable
+    public static RedisValueTableModel load(@Nonnull RedisCache redis, int database, @Nonnull Jedis jedis, @Nonnull String key,
+                                            @Nonnull String type, long length) {
+        if (!StringUtils.equalsAny(type, "LIST", "SET", "ZSET", "HASH")) {
+            return null;
+        }
+        final RedisValueTableModel model = new RedisValueTableModel(redis, database, key, type, length);
+        if (model.isIndexed()) {
+            model.pages.put(0, model.fetchPage(jedis, 0));
+        } else {
+            model.rows.addAll(model.fetchNext(jedis));
+        }
+        return model;
+    }
+
+    @Override
+    public int getRowCount() {
+        if (this.isIndexed()) {
+            return (int) Math.min(this.length, Integer.MAX_VALUE);
+        }
+        synchronized (this.rows) {
+            // an extra row to trigger loading of the next page when rendered
+            return this.rows.size() + (this.finished ? 0 : 1);
+        }
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return this.columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    /**
+     * @return value of the cell, or empty string if the page of the row is still loading.
+     */
+    @Override
+    @Nonnull
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        final String[] row = this.getRow(rowIndex);
+        return Objects.nonNull(row) && columnIndex < row.length ? StringUtils.defaultString(row[columnIndex]) : StringUtils.EMPTY;
+    }
+
+    /**
+     * stop loading pages and release the loaded pages.
+     */
+    public void dispose() {
+        this.disposed = true;
+        synchronized (this.pages) {
+            this.pages.clear();
+            this.pendingPages.clear();
+        }
+        synchronized (this.rows) {
+            this.rows.clear();
+        }
+    }
+
+    private boolean isIndexed() {
+        return StringUtils.equalsAny(this.type, "LIST", "ZSET");
+    }
+
+    @Nullable
+    private String[] getRow(int rowIndex) {
+        if (!this.isIndexed()) {
+            synchronized (this.rows) {
+                if (rowIndex < this.rows.size()) {
+                    return this.rows.get(rowIndex);
+                }
+            }
+            this.requestPage(-1);
+            return null;
+        }
+        final int page = rowIndex / PAGE_SIZE;
+        final List<String[]> pageRows;
+        synchronized (this.pages) {
+            pageRows = this.pages.get(page);
+            if (Objects.isNull(pageRows)) {
+                this.requestPage(page);
+                return null;
+            }
+        }
+        final int index = rowIndex % PAGE_SIZE;
+        return index < pageRows.size() ? pageRows.get(index) : null;
+    }
+
+    /**
+     * @param page page of lists and sorted sets, ignored for sets and hashes since their next page is always loaded
+     */
+    private void requestPage(int page) {
+        synchronized (this.pages) {
+            if (this.disposed || this.finished) {
+                return;
+            }
+            if (this.isIndexed()) {
+                this.pendingPages.remove((Integer) page);
+                this.pendingPages.addLast(page);
+                while (this.pendingPages.size() > MAX_CACHED_PAGES) {
+                    this.pendingPages.removeFirst(); // scrolled away before loaded
+                }
+            }
+            if (!this.loading) {
+                this.loading = true;
+                AzureTaskManager.getInstance().runOnPooledThread(this::loadPendingPages);
+            }
+        }
+    }
+
+    private void loadPendingPages() {
+        try (final Jedis jedis = this.redis.getJedisPool().getResource()) {
+            jedis.select(this.database);
+            if (this.isIndexed()) {
+                loadIndexedPages(jedis);
+            } else {
+                loadNextPage(jedis);
+            }
+        } catch (final Exception e) {
+            log.warn("failed to load value of key {}", this.key, e);
+            this.reportFailure(e);
+            synchronized (this.pages) {
+                this.pendingPages.clear(); // requested again when rendered
+            }
+        } finally {
+            synchronized (this.pages) {
+                this.loading = false;
+                if (!this.disposed && !this.pendingPages.isEmpty()) {
+                    this.requestPage(this.pendingPages.removeLast()); // requested after the loop stopped
+                }
+            }
+        }
+    }
+
+    private void loadIndexedPages(@Nonnull Jedis jedis) {
+        while (true) {
+            final int page;
+            synchronized (this.pages) {
+                if (this.disposed || this.pendingPages.isEmpty()) {
+                    return;
+                }
+                page = this.pendingPages.removeLast();
+                if (this.pages.containsKey(page)) {
+                    continue;
+                }
+            }
+            final List<String[]> pageRows;
+            try {
+                pageRows = this.fetchPage(jedis, page);
+                this.failureReported = false;
+            } catch (final Exception e) {
+                // not cached, so that the page is requested again when rendered
+                log.warn("failed to load page {} of key {}", page, this.key, e);
+                this.reportFailure(e);
+                continue;
+            }
+            synchronized (this.pages) {
+                if (this.disposed) {
+                    return;
+                }
+                this.pages.put(page, pageRows);
+            }
+            final int first = page * PAGE_SIZE;
+            final int last = Math.min(first + PAGE_SIZE, this.getRowCount()) - 1;
+            if (last >= first) {
+                fireTableChanged(() -> this.fireTableRowsUpdated(first, last));
+            }
+        }
+    }
+
+    private void loadNextPage(@Nonnull Jedis jedis) {
+        final List<String[]> next;
+        try {
+            next = this.fetchNext(jedis);
+            this.failureReported = false;
+        } catch (final Exception e) {
+            // the cursor is kept, so the page is requested again when the placeholder row is rendered
+            log.warn("failed to iterate key {}", this.key, e);
+            this.reportFailure(e);
+            return;
+        }
+        final int oldCount;
+        final int newCount;
+        synchronized (this.rows) {
+            if (this.disposed) {
+                return;
+            }
+            oldCount = this.rows.size() + 1;
+            this.rows.addAll(next);
+            newCount = this.getRowCount();
+        }
+        // the last row was the placeholder of the loaded page
+        fireTableChanged(() -> {
+            if (newCount > oldCount) {
+                this.fireTableRowsUpdated(oldCount - 1, oldCount - 1);
+                this.fireTableRowsInserted(oldCount, newCount - 1);
+            } else if (newCount < oldCount) {
+                this.fireTableRowsDeleted(newCount, oldCount - 1);
+            } else {
+                this.fireTableRowsUpdated(oldCount - 1, oldCount - 1);
+            }
+        });
+    }
+
+    @Nonnull
+    private List<String[]> fetchPage(@Nonnull Jedis jedis, int page) {
+        final long start = (long) page * PAGE_SIZE;
+        final long end = start + PAGE_SIZE - 1;
+        final List<String[]> result = new ArrayList<>(PAGE_SIZE);
+        if (Objects.equals(this.type, "LIST")) {
+            final List<String> items = jedis.lrange(this.key, start, end);
+            for (int i = 0; i < items.size(); i++) {
+                result.add(new String[]{String.valueOf(start + i + 1), items.get(i)});
+            }
+        } else {
+            for (final Tuple tuple : jedis.zrangeWithScores(this.key, start, end)) {
+                result.add(new String[]{String.valueOf(tuple.getScore()), tuple.getElement()});
+            }
+        }
+        return result;
+    }
+
+    @Nonnull
+    private List<String[]> fetchNext(@Nonnull Jedis jedis) {
+        if (this.finished) {
+            return Collections.emptyList();
+        }
+        final ScanParams params = new ScanParams().count(PAGE_SIZE);
+        final List<String[]> result = new ArrayList<>(PAGE_SIZE);
+        final String next;
+        if (Objects.equals(this.type, "HASH")) {
+            final ScanResult<Map.Entry<String, String>> page = jedis.hscan(this.key, this.cursor, params);
+            page.getResult().forEach(e -> result.add(new String[]{e.getKey(), e.getValue()}));
+            next = page.getCursor();
+        } else {
+            final ScanResult<String> page = jedis.sscan(this.key, this.cursor, params);
+            page.getResult().forEach(m -> result.add(new String[]{m}));
+            next = page.getCursor();
+        }
+        this.cursor = next;
+        this.finished = SCAN_POINTER_START.equals(next);
+        return result;
+    }
+
+    private void reportFailure(@Nonnull Exception e) {
+        if (!this.disposed && !this.failureReported) {
+            this.failureReported = true;
+            AzureMessager.getMessager().error(e, String.format("Failed to load value of key %s, scroll to retry.", this.key));
+        }
+    }
+
+    private void fireTableChanged(@Nonnull Runnable fire) {
+        AzureTaskManager.getInstance().runLater(() -> {
+            if (!this.disposed) {
+                fire.run();
+            }
+        }, AzureTask.Modality.ANY);
+    }
+}
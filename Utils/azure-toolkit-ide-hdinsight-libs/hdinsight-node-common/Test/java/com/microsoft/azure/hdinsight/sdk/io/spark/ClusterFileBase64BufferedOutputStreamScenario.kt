@@ -55,6 +55,19 @@ class ClusterFileBase64BufferedOutputStreamScenario {
         }
     }
 
+    @Then("^writing the BASE64 string '(.+)' and flushing$")
+    fun writeAndFlush(base64Code: String) {
+        clusterFileBase64OutputStream!!.write(base64Code.toByteArray(Charsets.UTF_8))
+        clusterFileBase64OutputStream!!.flush()
+    }
+
+    @Then("^writing the BASE64 string '(.+)' and closing$")
+    fun writeAndClose(base64Code: String) {
+        clusterFileBase64OutputStream.use {   // autoclose resource
+            it!!.write(base64Code.toByteArray(Charsets.UTF_8))
+        }
+    }
+
     @Given("^create a mocked Livy session for ClusterFileBase64KBBufferedOutputStream$")
     fun mockLivySessionForClusterFileBase64OutputStream() {
         sessionMock = mock(SparkSession::class.java)
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common.log;
+
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.regex.Matcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SparkLogUtilsScenario {
+    private String message;
+
+    @Given("^the log message '(.*)'$")
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Given("^the log message of (\\d+) spaces followed by '(.*)'$")
+    public void setPaddedMessage(int spaces, String message) {
+        this.message = StringUtils.repeat(' ', spaces) + message;
+    }
+
+    @Given("^a null log message$")
+    public void setNullMessage() {
+        this.message = null;
+    }
+
+    @Then("^the log4j level found in (\\d+) chars should be '(.+)'$")
+    public void checkLevelFound(int window, String expectedLevel) {
+        assertEquals(expectedLevel, SparkLogUtils.findLog4jLevel(message, window));
+    }
+
+    @Then("^no log4j level should be found in (\\d+) chars$")
+    public void checkLevelNotFound(int window) {
+        assertNull(SparkLogUtils.findLog4jLevel(message, window));
+    }
+
+    @Then("^the log4j level found in (\\d+) chars should be the same as the regex matched$")
+    public void checkLevelSameAsRegex(int window) {
+        final String head = message.substring(0, Math.min(message.length(), window));
+        final Matcher matcher = SparkLogUtils.log4jLevelRegex.matcher(head);
+        final String expectedLevel = matcher.find() ? matcher.group("level").toUpperCase() : null;
+
+        assertEquals(expectedLevel, SparkLogUtils.findLog4jLevel(message, window));
+    }
+}
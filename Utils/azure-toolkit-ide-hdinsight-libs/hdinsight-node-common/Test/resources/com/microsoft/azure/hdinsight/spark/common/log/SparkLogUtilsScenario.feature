@@ -0,0 +1,41 @@
+Feature: SparkLogUtils unit test
+
+  Scenario: The log4j level in the head of a log line is found
+    Given the log message '21/01/01 12:00:00 INFO SparkContext: Running Spark version 3.1.2'
+    Then the log4j level found in 256 chars should be 'INFO'
+    And the log4j level found in 256 chars should be the same as the regex matched
+
+  Scenario: The lowercase log4j level is found in upper case
+    Given the log message '21/01/01 12:00:00 warn TaskSetManager: Lost task 0.0 in stage 1.0'
+    Then the log4j level found in 256 chars should be 'WARN'
+    And the log4j level found in 256 chars should be the same as the regex matched
+
+  Scenario: The first log4j level is found
+    Given the log message '21/01/01 12:00:00 ERROR Executor: INFO about DEBUG'
+    Then the log4j level found in 256 chars should be 'ERROR'
+    And the log4j level found in 256 chars should be the same as the regex matched
+
+  Scenario: The log4j level keyword must be a whole word
+    Given the log message 'INFORMATION: MY_ERROR, WARNING2 and xDEBUG'
+    Then no log4j level should be found in 256 chars
+    And the log4j level found in 256 chars should be the same as the regex matched
+
+  Scenario: The log4j level beyond the scan window is not found
+    Given the log message of 300 spaces followed by 'ERROR Executor: Exception in task'
+    Then no log4j level should be found in 256 chars
+    And the log4j level found in 1024 chars should be 'ERROR'
+
+  Scenario: The log4j level ending at the scan window is found
+    Given the log message of 251 spaces followed by 'FATAL'
+    Then the log4j level found in 256 chars should be 'FATAL'
+    And no log4j level should be found in 255 chars
+
+  Scenario: The word cut by the scan window is not taken as a log4j level
+    Given the log message of 251 spaces followed by 'ERRORS in the tail'
+    Then no log4j level should be found in 256 chars
+
+  Scenario: No log4j level is found in an empty or null message
+    Given the log message ''
+    Then no log4j level should be found in 256 chars
+    Given a null log message
+    Then no log4j level should be found in 256 chars
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.http.HttpHost;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide HTTP connection pools shared by all {@link HttpObservable} instances.
+ *
+ * Pools are keyed by the authentication scheme and the SSL socket factory profile of the observable, and
+ * every pool keeps its own per-route (host) connections, so that the Spark job submission, Livy session polling
+ * and storage operations against the same host reuse the keep-alive connections instead of paying new TLS
+ * handshakes for each request. Idle and expired connections are evicted by a background daemon thread per pool.
+ *
+ * The limits can be configured by the following system properties:
+ * <ul>
+ *     <li>{@value #MAX_TOTAL_PROPERTY}, the max connections of a pool, 200 by default</li>
+ *     <li>{@value #MAX_PER_ROUTE_PROPERTY}, the max connections per route (host) of a pool, 20 by default</li>
+ *     <li>{@value #KEEP_ALIVE_SECONDS_PROPERTY}, the max keep-alive seconds of a connection, 60 by default</li>
+ *     <li>{@value #MAX_IDLE_SECONDS_PROPERTY}, the idle seconds before a connection is evicted, 30 by default</li>
+ *     <li>{@value #LEASE_TIMEOUT_SECONDS_PROPERTY}, the max seconds to wait for a free connection of the pool, 60 by
+ *     default, so that an exhausted route fails the request instead of blocking it forever</li>
+ * </ul>
+ */
+public final class HttpConnectionPoolManager implements ILogger {
+    public static final String MAX_TOTAL_PROPERTY = "azure.hdinsight.http.pool.maxTotal";
+    public static final String MAX_PER_ROUTE_PROPERTY = "azure.hdinsight.http.pool.maxPerRoute";
+    public static final String KEEP_ALIVE_SECONDS_PROPERTY = "azure.hdinsight.http.pool.keepAliveSeconds";
+    public static final String MAX_IDLE_SECONDS_PROPERTY = "azure.hdinsight.http.pool.maxIdleSeconds";
+    public static final String LEASE_TIMEOUT_SECONDS_PROPERTY = "azure.hdinsight.http.pool.leaseTimeoutSeconds";
+
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+    private static final long EVICTOR_SLEEP_SECONDS = 5;
+
+    private static final HttpConnectionPoolManager INSTANCE = new HttpConnectionPoolManager();
+
+    @NotNull
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    @NotNull
+    private final Map<HttpHost, Integer> maxPerRouteOverrides = new ConcurrentHashMap<>();
+
+    private volatile int maxTotal = Integer.getInteger(MAX_TOTAL_PROPERTY, 200);
+
+    private volatile int defaultMaxPerRoute = Integer.getInteger(MAX_PER_ROUTE_PROPERTY, 20);
+
+    private volatile long keepAliveSeconds = Long.getLong(KEEP_ALIVE_SECONDS_PROPERTY, 60);
+
+    private volatile long maxIdleSeconds = Long.getLong(MAX_IDLE_SECONDS_PROPERTY, 30);
+
+    private volatile long leaseTimeoutSeconds = Long.getLong(LEASE_TIMEOUT_SECONDS_PROPERTY, 60);
+
+    private HttpConnectionPoolManager() {
+    }
+
+    @NotNull
+    public static HttpConnectionPoolManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Create a lightweight HTTP client over the shared pool, closing the client won't close the pooled connections.
+     *
+     * @param authScheme the authentication scheme name of the pool, such as Basic or Bearer
+     * @param sslSocketFactory the customized SSL socket factory, null for the system default one
+     * @param cookieStore the cookie store owned by the caller
+     * @param requestConfig the default request config owned by the caller, the lease timeout of the pool is applied
+     *                      if it has no connection request timeout
+     * @return the HTTP client sharing connections with all clients of the same pool
+     */
+    @NotNull
+    public CloseableHttpClient createHttpClient(@NotNull final String authScheme,
+                                                @Nullable final SSLConnectionSocketFactory sslSocketFactory,
+                                                @NotNull final CookieStore cookieStore,
+                                                @NotNull final RequestConfig requestConfig) {
+        final Pool pool = getPool(authScheme, sslSocketFactory);
+
+        return HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(pool.connectionManager)
+                .setConnectionManagerShared(true)
+                .setKeepAliveStrategy(pool.keepAliveStrategy)
+                .setDefaultCookieStore(cookieStore)
+                .setDefaultRequestConfig(withLeaseTimeout(requestConfig))
+                .build();
+    }
+
+    @NotNull
+    private RequestConfig withLeaseTimeout(@NotNull final RequestConfig requestConfig) {
+        if (requestConfig.getConnectionRequestTimeout() > 0) {
+            return requestConfig;
+        }
+
+        return RequestConfig.copy(requestConfig)
+                .setConnectionRequestTimeout((int) TimeUnit.SECONDS.toMillis(leaseTimeoutSeconds))
+                .build();
+    }
+
+    @NotNull
+    private Pool getPool(@NotNull final String authScheme,
+                         @Nullable final SSLConnectionSocketFactory sslSocketFactory) {
+        // The SSL socket factory is bound to the pool when it's created, the customized factories are
+        // distinguished by the SSL certificate validation setting which is the only variable of them
+        final String sslProfile = sslSocketFactory == null
+                ? "system"
+                : (HttpObservable.isSSLCertificateValidationDisabled() ? "custom-noverify" : "custom");
+        final String key = authScheme.toLowerCase() + "/" + sslProfile;
+
+        return pools.computeIfAbsent(key, k -> new Pool(k, sslSocketFactory));
+    }
+
+    /*
+     * Limits
+     */
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(final int maxTotal) {
+        this.maxTotal = maxTotal;
+        pools.values().forEach(pool -> pool.connectionManager.setMaxTotal(maxTotal));
+    }
+
+    public int getDefaultMaxPerRoute() {
+        return defaultMaxPerRoute;
+    }
+
+    public void setDefaultMaxPerRoute(final int defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+        pools.values().forEach(pool -> pool.connectionManager.setDefaultMaxPerRoute(defaultMaxPerRoute));
+    }
+
+    /**
+     * Set the max connections to a host for all pools, such as a shared HDInsight gateway with throttling.
+     *
+     * @param host the target host
+     * @param max the max connections to the host in each pool
+     */
+    public void setMaxPerRoute(@NotNull final HttpHost host, final int max) {
+        maxPerRouteOverrides.put(host, max);
+        pools.values().forEach(pool -> pool.connectionManager.setMaxPerRoute(toRoute(host), max));
+    }
+
+    @NotNull
+    private static HttpRoute toRoute(@NotNull final HttpHost host) {
+        return new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName()));
+    }
+
+    public void setKeepAliveSeconds(final long keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    /**
+     * Set the max seconds to wait for a free connection, which is applied to the clients created afterwards.
+     *
+     * @param leaseTimeoutSeconds the max seconds to wait, the request fails with ConnectionPoolTimeoutException then
+     */
+    public void setLeaseTimeoutSeconds(final long leaseTimeoutSeconds) {
+        this.leaseTimeoutSeconds = leaseTimeoutSeconds;
+    }
+
+    /**
+     * Set the idle seconds before a connection is evicted, which is applied to the pools created afterwards.
+     *
+     * @param maxIdleSeconds the max idle seconds
+     */
+    public void setMaxIdleSeconds(final long maxIdleSeconds) {
+        this.maxIdleSeconds = maxIdleSeconds;
+    }
+
+    /*
+     * Metrics
+     */
+
+    /**
+     * Get the leased, pending, available and max connections of every pool.
+     *
+     * @return the pool key and the total stats of the pool
+     */
+    @NotNull
+    public Map<String, PoolStats> getTotalStats() {
+        final Map<String, PoolStats> stats = new LinkedHashMap<>();
+        pools.forEach((key, pool) -> stats.put(key, pool.connectionManager.getTotalStats()));
+
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Get the leased, pending, available and max connections of every route (host) in a pool.
+     *
+     * @param poolKey the pool key got from {@link #getTotalStats()}
+     * @return the route and the stats of it, empty if the pool doesn't exist
+     */
+    @NotNull
+    public Map<HttpRoute, PoolStats> getRouteStats(@NotNull final String poolKey) {
+        final Pool pool = pools.get(poolKey);
+        if (pool == null) {
+            return Collections.emptyMap();
+        }
+
+        final Map<HttpRoute, PoolStats> stats = new LinkedHashMap<>();
+        pool.connectionManager.getRoutes()
+                .forEach(route -> stats.put(route, pool.connectionManager.getStats(route)));
+
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Close all idle connections of all pools, e.g. after the network or proxy settings are changed.
+     */
+    public void closeIdleConnections() {
+        pools.values().forEach(pool -> {
+            pool.connectionManager.closeExpiredConnections();
+            pool.connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private final class Pool {
+        @NotNull
+        private final PoolingHttpClientConnectionManager connectionManager;
+
+        @NotNull
+        private final ConnectionKeepAliveStrategy keepAliveStrategy;
+
+        @NotNull
+        private final IdleConnectionEvictor evictor;
+
+        private Pool(@NotNull final String key, @Nullable final SSLConnectionSocketFactory sslSocketFactory) {
+            final Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", sslSocketFactory != null
+                            ? sslSocketFactory
+                            : SSLConnectionSocketFactory.getSystemSocketFactory())
+                    .build();
+
+            this.connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            this.connectionManager.setMaxTotal(maxTotal);
+            this.connectionManager.setDefaultMaxPerRoute(defaultMaxPerRoute);
+            this.connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+            maxPerRouteOverrides.forEach((host, max) -> connectionManager.setMaxPerRoute(toRoute(host), max));
+
+            // Respect the server Keep-Alive header, but never keep a connection longer than the configured seconds
+            this.keepAliveStrategy = (response, context) -> {
+                final long maxKeepAliveMs = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+                final long serverKeepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE
+                        .getKeepAliveDuration(response, context);
+
+                return serverKeepAliveMs > 0 ? Math.min(serverKeepAliveMs, maxKeepAliveMs) : maxKeepAliveMs;
+            };
+
+            this.evictor = new IdleConnectionEvictor(
+                    connectionManager,
+                    EVICTOR_SLEEP_SECONDS, TimeUnit.SECONDS,
+                    maxIdleSeconds, TimeUnit.SECONDS);
+            this.evictor.start();
+
+            log().debug("Created HTTP connection pool " + key);
+        }
+    }
+}
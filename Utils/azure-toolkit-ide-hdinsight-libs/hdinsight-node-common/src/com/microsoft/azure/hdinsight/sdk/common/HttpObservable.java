@@ -24,13 +24,13 @@ import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.HeaderGroup;
 import org.apache.http.protocol.BasicHttpContext;
@@ -108,12 +108,7 @@ public class HttpObservable implements ILogger {
                 .setProxyPreferredAuthSchemes(Collections.singletonList(AuthSchemes.BASIC))
                 .build();
 
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
-                .setDefaultCookieStore(getCookieStore())
-                .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
-                .build();
+        this.httpClient = createPooledHttpClient(AuthSchemes.KERBEROS, createSSLSocketFactory());
     }
 
     /**
@@ -132,12 +127,7 @@ public class HttpObservable implements ILogger {
                     HttpHeaders.AUTHORIZATION, String.format("%s %s", "Basic", new String(encodedAuth))));
         }
 
-        this.httpClient = HttpClients.custom()
-                .useSystemProperties()
-                .setDefaultCookieStore(getCookieStore())
-                .setDefaultRequestConfig(getDefaultRequestConfig())
-                .setSSLSocketFactory(createSSLSocketFactory())
-                .build();
+        this.httpClient = createPooledHttpClient(AuthSchemes.BASIC, createSSLSocketFactory());
     }
 
     /*
@@ -243,6 +233,22 @@ public class HttpObservable implements ILogger {
         }
     }
 
+    /**
+     * Create the HTTP client over the process-wide connection pool of the auth scheme, with the cookie store and
+     * the default request config of this observable.
+     *
+     * @param authScheme the authentication scheme of the pool
+     * @param sslSocketFactory the customized SSL socket factory, null for the system default one
+     * @return the pooled HTTP client
+     */
+    @NotNull
+    protected CloseableHttpClient createPooledHttpClient(@NotNull final String authScheme,
+                                                         @Nullable final SSLConnectionSocketFactory sslSocketFactory) {
+        return HttpConnectionPoolManager.getInstance().createHttpClient(
+                authScheme, sslSocketFactory, getCookieStore(), getDefaultRequestConfig());
+    }
+
+    @Nullable
     private SSLConnectionSocketFactory createSSLSocketFactory() {
         TrustStrategy ts = ServiceManager.getServiceProvider(TrustStrategy.class);
         SSLConnectionSocketFactory sslSocketFactory = null;
@@ -352,6 +358,11 @@ public class HttpObservable implements ILogger {
     /*
      * Core request
      */
+
+    /**
+     * Execute the request over the pooled connections, the caller owns the emitted response and must close or consume
+     * it, otherwise its connection is never returned to the pool.
+     */
     public Observable<CloseableHttpResponse> request(@NotNull final HttpRequestBase httpRequest,
                                                      @Nullable final HttpEntity entity,
                                                      final List<NameValuePair> parameters,
@@ -443,6 +454,10 @@ public class HttpObservable implements ILogger {
                 .map(resp -> this.convertJsonResponseToObject(resp, clazz));
     }
 
+    /**
+     * Execute the request and check the response status, the response is closed if the status isn't the expected one,
+     * otherwise the caller owns the emitted response and must close it.
+     */
     public Observable<CloseableHttpResponse> executeReqAndCheckStatus(HttpRequestBase httpRequest,
                                                                       @Nullable HttpEntity entity,
                                                                       List<NameValuePair> parameters,
@@ -452,7 +467,9 @@ public class HttpObservable implements ILogger {
                 .doOnNext(resp -> {
                     int statusCode = resp.getStatusLine().getStatusCode();
                     if (statusCode != validStatueCode) {
-                        Exceptions.propagate(new UnknownServiceException(
+                        // release the pooled connection, since the response isn't emitted to the caller
+                        HttpClientUtils.closeQuietly(resp);
+                        throw Exceptions.propagate(new UnknownServiceException(
                                 String.format("Exceute request with unexpected code %s and resp %s", statusCode, resp)
                         ));
                     }
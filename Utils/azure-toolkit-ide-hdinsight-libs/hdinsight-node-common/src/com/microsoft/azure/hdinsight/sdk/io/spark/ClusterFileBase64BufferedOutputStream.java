@@ -8,20 +8,62 @@ package com.microsoft.azure.hdinsight.sdk.io.spark;
 import com.microsoft.azure.hdinsight.sdk.common.livy.interactive.Session;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import org.apache.commons.codec.binary.Base64;
+import rx.schedulers.Schedulers;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URI;
-import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * The output stream to write BASE64 encoded content into a cluster file through Livy interactive session statements.
+ *
+ * The content is sent by pages, each page is a statement with a sequence number. Several statements are kept in
+ * flight, and the cluster side writes the pages in the sequence order. The page size is adapted by the measured
+ * statement latency between the min and max page size, and the writing is blocked when the max in-flight statements
+ * are outstanding.
+ */
 public class ClusterFileBase64BufferedOutputStream extends OutputStream {
-    private static final int DEFAULT_BLOCK_SIZE_KB = 32;      // 32KB block size
+    private static final int DEFAULT_MIN_PAGE_SIZE_KB = 1024;       // 1MB min page size
+    private static final int DEFAULT_MAX_PAGE_SIZE_KB = 4096;       // 4MB max page size
+    private static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    // The page is split into string literals, since the Scala string constant can't exceed 64KB
+    private static final int LITERAL_SIZE = 32 * 1024;
+
+    // The statement latency range to keep, the page size is grown below it and shrunk above it
+    private static final long GROW_LATENCY_MS = TimeUnit.SECONDS.toMillis(3);
+    private static final long SHRINK_LATENCY_MS = TimeUnit.SECONDS.toMillis(10);
 
     @NotNull
     private final Session session;
 
+    private final int minPageSize;
+
+    private final int maxPageSize;
+
+    private final int maxInFlight;
+
+    @NotNull
+    private final Semaphore inFlight;
+
     @NotNull
-    private final ByteBuffer buf;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    @NotNull
+    private byte[] buf;
+
+    private int count = 0;
+
+    private volatile int pageSize;
+
+    private long nextSeq = 0;
+
+    private boolean closed = false;
 
     private final String preloadedCodes = String.join("\n",
             "import java.io._",
@@ -31,18 +73,46 @@ public class ClusterFileBase64BufferedOutputStream extends OutputStream {
             "val fs = org.apache.hadoop.fs.FileSystem.get(sc.hadoopConfiguration)",
             "val jarFileOutput = fs.create(new org.apache.hadoop.fs.Path(jarOutput), true)",
             "val out = new DataOutputStream(new BufferedOutputStream(jarFileOutput))",
+            "val pendingPages = scala.collection.mutable.Map[Long, Array[Byte]]()",
+            "var nextPageSeq = 0L",
+            "",
+            "def writePage(seq: Long, encodedBase64: Array[String]) = synchronized {",
+            "    pendingPages(seq) = Base64.getDecoder.decode(encodedBase64.mkString)",
             "",
-            "def writePage(encodedBase64: String) = {",
-            "    val pageBytes = Base64.getDecoder.decode(encodedBase64)",
+            "    while (pendingPages.contains(nextPageSeq)) {",
+            "        val pageBytes = pendingPages.remove(nextPageSeq).get",
+            "        out.write(pageBytes, 0, pageBytes.size)",
+            "        nextPageSeq += 1",
+            "    }",
+            "}",
             "",
-            "    out.write(pageBytes, 0, pageBytes.size)",
+            "def closeOutput(pages: Long) = synchronized {",
+            "    out.close()",
+            "",
+            "    if (nextPageSeq != pages) {",
+            "        throw new IOException(s\"Only $nextPageSeq of $pages pages are written into $jarOutput\")",
+            "    }",
             "}");
 
-
-    public ClusterFileBase64BufferedOutputStream(@NotNull Session session, @NotNull URI destination, final int blockSizeKB) {
+    /**
+     * @param session the Livy interactive session
+     * @param destination the cluster file URI
+     * @param minPageSizeKB the min page size in KB, which is aligned to 4 bytes due to BASE64 requirement
+     * @param maxPageSizeKB the max page size in KB
+     * @param maxInFlight the max statements in flight
+     */
+    public ClusterFileBase64BufferedOutputStream(@NotNull Session session,
+                                                 @NotNull URI destination,
+                                                 final int minPageSizeKB,
+                                                 final int maxPageSizeKB,
+                                                 final int maxInFlight) {
         this.session = session;
-        this.buf = ByteBuffer.allocate(blockSizeKB * 1024); // Due to BASE64 requirement, the block size
-                                                            // must be aligned to 4 bytes
+        this.minPageSize = minPageSizeKB * 1024;
+        this.maxPageSize = Math.max(minPageSize, maxPageSizeKB * 1024);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.pageSize = minPageSize;
+        this.buf = new byte[minPageSize];
 
         // Pre-load
         session.runCodes(String.format(preloadedCodes, destination.toString()))
@@ -50,44 +120,157 @@ public class ClusterFileBase64BufferedOutputStream extends OutputStream {
                 .singleOrDefault(null);
     }
 
+    public ClusterFileBase64BufferedOutputStream(@NotNull Session session, @NotNull URI destination, final int blockSizeKB) {
+        this(session, destination, blockSizeKB, blockSizeKB, DEFAULT_MAX_IN_FLIGHT);
+    }
+
     public ClusterFileBase64BufferedOutputStream(@NotNull Session session, @NotNull URI destination) {
-        this(session, destination, DEFAULT_BLOCK_SIZE_KB);
+        this(session, destination, DEFAULT_MIN_PAGE_SIZE_KB, DEFAULT_MAX_PAGE_SIZE_KB, DEFAULT_MAX_IN_FLIGHT);
     }
 
     @Override
     public void close() throws IOException {
-        flush();
+        if (closed) {
+            return;
+        }
 
-        session.runCodes("out.close()")
-                .toBlocking()
-                .singleOrDefault(null);
+        closed = true;
+
+        try {
+            sendPage(count);
+            awaitAllPages();
 
-        session.close();
-        super.close();
+            session.runCodes(String.format("closeOutput(%dL)", nextSeq))
+                    .toBlocking()
+                    .singleOrDefault(null);
+        } finally {
+            session.close();
+            super.close();
+        }
     }
 
     @Override
     public void write(int b) throws IOException {
-        if (!buf.hasRemaining()) {
-            flush();
+        if (Base64.isBase64((byte) b)) {
+            if (count >= buf.length) {
+                sendPage(count);
+            }
+
+            buf[count++] = (byte) b;
         }
+    }
 
-        if (Base64.isBase64((byte) b)) {
-            buf.put((byte) b);
+    @Override
+    public void write(@NotNull byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            if (!Base64.isBase64(b[i])) {
+                continue;
+            }
+
+            if (count >= buf.length) {
+                sendPage(count);
+            }
+
+            buf[count++] = b[i];
         }
     }
 
+    /**
+     * Send the buffered content aligned to 4 bytes, and wait for all sent pages written
+     */
     @Override
     public void flush() throws IOException {
-        if (buf.position() > 0) {
-            String codesPage = new String(buf.array(), 0, buf.position());
+        sendPage(count - count % 4);
+        awaitAllPages();
 
-            buf.clear();
-            session.runCodes(String.format("writePage(\"%s\")", codesPage))
-                    .toBlocking()
-                    .singleOrDefault(null);
+        super.flush();
+    }
+
+    private void sendPage(final int length) throws IOException {
+        checkFailure();
+
+        if (length <= 0) {
+            return;
         }
 
-        super.flush();
+        final String codes = toPageCodes(nextSeq++, length);
+
+        // Keep the remaining bytes not aligned to 4 for the next page
+        final int remaining = count - length;
+        final byte[] next = new byte[pageSize];
+        System.arraycopy(buf, length, next, 0, remaining);
+        buf = next;
+        count = remaining;
+
+        try {
+            inFlight.acquire();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted in waiting for the Livy statements to write pages");
+        }
+
+        final long startTime = System.currentTimeMillis();
+        session.runCodes(codes)
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        ignored -> { },
+                        err -> {
+                            failure.compareAndSet(null, err);
+                            inFlight.release();
+                        },
+                        () -> {
+                            adaptPageSize(System.currentTimeMillis() - startTime);
+                            inFlight.release();
+                        });
+    }
+
+    @NotNull
+    private String toPageCodes(final long seq, final int length) {
+        final StringBuilder codes = new StringBuilder(length + length / LITERAL_SIZE * 4 + 64);
+        codes.append("writePage(").append(seq).append("L, Array(");
+
+        for (int start = 0; start < length; start += LITERAL_SIZE) {
+            if (start > 0) {
+                codes.append(", ");
+            }
+
+            codes.append('"')
+                 .append(new String(buf, start, Math.min(LITERAL_SIZE, length - start), StandardCharsets.US_ASCII))
+                 .append('"');
+        }
+
+        return codes.append("))").toString();
+    }
+
+    private void adaptPageSize(final long latencyMs) {
+        final int current = pageSize;
+
+        if (latencyMs < GROW_LATENCY_MS && current < maxPageSize) {
+            pageSize = Math.min(maxPageSize, current * 2);
+        } else if (latencyMs > SHRINK_LATENCY_MS && current > minPageSize) {
+            pageSize = Math.max(minPageSize, current / 2);
+        }
+    }
+
+    private void awaitAllPages() throws IOException {
+        try {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted in waiting for the Livy statements to write pages");
+        }
+
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable err = failure.get();
+
+        if (err != null) {
+            throw err instanceof IOException
+                    ? (IOException) err
+                    : new IOException("Failed to write page into cluster file: " + err.getMessage(), err);
+        }
     }
 }
@@ -152,6 +152,20 @@ public class StorageClientSDKManager {
         }
     }
 
+    public boolean isBlobExisting(@NotNull String connectionString,
+                                  @NotNull String containerName,
+                                  @NotNull String filePath)
+            throws AzureCmdException {
+        try {
+            return getCloudBlobClient(connectionString)
+                    .getBlobContainerClient(containerName)
+                    .getBlobClient(filePath)
+                    .exists();
+        } catch (Throwable t) {
+            throw new AzureCmdException("Error checking the Blob File existence", t);
+        }
+    }
+
     public static String getEndpointSuffix() {
         return StorageAccoutUtils.getEndpointSuffix();
     }
@@ -59,6 +59,16 @@ public class WebHDFSUtils {
         return iAuthenticationResult.accessToken();
     }
 
+    public static boolean isFileExistingInADLS(@NotNull IHDIStorageAccount storageAccount, @NotNull String remotePath) throws Exception {
+        if (!(storageAccount instanceof ADLSStorageAccount)) {
+            throw new HDIException("the storage type should be ADLS");
+        }
+
+        String accessToken = getAccessTokenFromCertificate((ADLSStorageAccount) storageAccount);
+        ADLStoreClient client = ADLStoreClient.createClient(String.format("%s.azuredatalakestore.net", storageAccount.getName()), accessToken);
+        return client.checkExists(remotePath);
+    }
+
     public static void uploadFileToADLS(@NotNull IHDIStorageAccount storageAccount, @NotNull File localFile, @NotNull String remotePath, boolean overWrite) throws Exception {
         if (!(storageAccount instanceof ADLSStorageAccount)) {
             throw new HDIException("the storage type should be ADLS");
@@ -13,26 +13,45 @@ import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.message.BasicHeader;
 import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.functions.Action2;
+import rx.schedulers.Schedulers;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.net.UnknownServiceException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * ADLS Gen2 file system operations, the chunks of an upload can be tuned by the following system properties:
+ * <ul>
+ *     <li>{@value #CHUNK_SIZE_PROPERTY}, the bytes of a ranged append, 8 MB by default</li>
+ *     <li>{@value #CHUNK_CONCURRENCY_PROPERTY}, the max ranged appends in parallel, 4 by default</li>
+ *     <li>{@value #CHUNK_RETRIES_PROPERTY}, the retries of a failed ranged append, 3 by default</li>
+ * </ul>
+ */
 public class ADLSGen2FSOperation {
     public static final String DEFAULT_UMASK = "0000";
     public static final String PERMISSIONS_HEADER = "x-ms-permissions";
     public static final String UMASK_HEADER = "x-ms-umask";
+    public static final String CHUNK_SIZE_PROPERTY = "azure.hdinsight.adlsgen2.upload.chunkSize";
+    public static final String CHUNK_CONCURRENCY_PROPERTY = "azure.hdinsight.adlsgen2.upload.chunkConcurrency";
+    public static final String CHUNK_RETRIES_PROPERTY = "azure.hdinsight.adlsgen2.upload.chunkRetries";
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_CHUNK_CONCURRENCY = 4;
+    public static final int DEFAULT_CHUNK_RETRIES = 3;
 
     private HttpObservable http;
 
@@ -42,15 +61,18 @@ public class ADLSGen2FSOperation {
     @NotNull
     private List<NameValuePair> createFileReqParams;
 
-    @NotNull
-    private List<NameValuePair> appendReqParams;
-
     @NotNull
     private ADLSGen2ParamsBuilder listReqBuilder;
 
     @NotNull
     private ADLSGen2ParamsBuilder flushReqParamsBuilder;
 
+    private final int chunkSize = Math.max(1, Integer.getInteger(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE));
+
+    private final int chunkConcurrency = Math.max(1, Integer.getInteger(CHUNK_CONCURRENCY_PROPERTY, DEFAULT_CHUNK_CONCURRENCY));
+
+    private final int chunkRetries = Math.max(0, Integer.getInteger(CHUNK_RETRIES_PROPERTY, DEFAULT_CHUNK_RETRIES));
+
     public ADLSGen2FSOperation(@NotNull HttpObservable http) {
         this.http = http;
         this.createDirReqParams = new ADLSGen2ParamsBuilder()
@@ -61,11 +83,6 @@ public class ADLSGen2FSOperation {
                 .setResource("file")
                 .build();
 
-        this.appendReqParams = new ADLSGen2ParamsBuilder()
-                .setAction("append")
-                .setPosition(0)
-                .build();
-
         this.flushReqParamsBuilder = new ADLSGen2ParamsBuilder()
                 .setAction("flush");
     }
@@ -86,7 +103,7 @@ public class ADLSGen2FSOperation {
                                      ? ImmutableList.of(new BasicHeader(PERMISSIONS_HEADER, permission),
                                                         new BasicHeader(UMASK_HEADER, uMask))
                                      : Collections.emptyList();
-        return http.executeReqAndCheckStatus(req, null, this.createDirReqParams, headers, 201)
+        return executeAndRelease(req, null, this.createDirReqParams, headers, 201)
                    .map(ignore -> true);
     }
 
@@ -106,15 +123,50 @@ public class ADLSGen2FSOperation {
                                      ? ImmutableList.of(new BasicHeader(PERMISSIONS_HEADER, permission),
                                                         new BasicHeader(UMASK_HEADER, uMask))
                                      : Collections.emptyList();
-        return http.executeReqAndCheckStatus(req, null, this.createFileReqParams, headers, 201)
+        return executeAndRelease(req, null, this.createFileReqParams, headers, 201)
                 .map(ignore -> true);
     }
 
     public Observable<Boolean> uploadData(String destFilePath, File src) {
-        return appendData(destFilePath, src)
+        return uploadData(destFilePath, src, null);
+    }
+
+    /**
+     * Upload the file with parallel ranged appends and one final flush
+     *
+     * @param destFilePath the destination file path, which should be created before
+     * @param src the source file
+     * @param onProgress the callback with uploaded bytes and total bytes after each chunk is appended
+     * @return Observable: true when the data is flushed
+     */
+    public Observable<Boolean> uploadData(String destFilePath, File src, @Nullable Action2<Long, Long> onProgress) {
+        return appendData(destFilePath, src, onProgress)
                 .flatMap(len -> flushData(destFilePath, len));
     }
 
+    /**
+     * Check if the file exists by getting the file properties
+     *
+     * @param filePath the file path
+     * @return Observable: true if the file exists, false if not found
+     */
+    public Observable<Boolean> exists(String filePath) {
+        return http.request(new HttpHead(filePath), null, Collections.emptyList(), Collections.emptyList())
+                .map(resp -> {
+                    final int statusCode = resp.getStatusLine().getStatusCode();
+                    HttpClientUtils.closeQuietly(resp);
+
+                    if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                        return false;
+                    } else if (statusCode != HttpStatus.SC_OK) {
+                        throw Exceptions.propagate(new UnknownServiceException(String.format(
+                                "Failed to get the properties of %s with unexpected code %s", filePath, statusCode)));
+                    }
+
+                    return true;
+                });
+    }
+
     public Observable<RemoteFile> list(String rootPath, String relativePath) {
         this.listReqBuilder = new ADLSGen2ParamsBuilder()
                 .enableRecursive(false)
@@ -128,25 +180,48 @@ public class ADLSGen2FSOperation {
                 .flatMap(pathList -> Observable.from(pathList.getRemoteFiles()));
     }
 
-    private Observable<Long> appendData(String filePath, File src) {
-        try {
-            InputStreamEntity reqEntity = new InputStreamEntity(
-                    new FileInputStream(src),
-                    -1,
-                    ContentType.APPLICATION_OCTET_STREAM);
-            BufferedHttpEntity entity = new BufferedHttpEntity(reqEntity);
-            long len = entity.getContentLength();
-
-            HttpPatch req = new HttpPatch(filePath);
-            http.setContentType("application/octet-stream");
-
-            return http.executeReqAndCheckStatus(req, entity, this.appendReqParams, Collections.emptyList(), 202)
-                    .map(ignore -> len);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not find the aritifact"));
-        } catch (IOException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not read the aritfact"));
+    private Observable<Long> appendData(String filePath, File src, @Nullable Action2<Long, Long> onProgress) {
+        if (!src.isFile()) {
+            return Observable.error(new IllegalArgumentException("Can not find the aritifact"));
         }
+
+        final long len = src.length();
+        final long chunks = (len + chunkSize - 1) / chunkSize;
+        final AtomicLong uploaded = new AtomicLong(0);
+
+        http.setContentType("application/octet-stream");
+
+        // The appended data at different positions are committed together by the flush
+        return Observable.range(0, (int) chunks)
+                .flatMap(index -> {
+                    final long position = (long) index * chunkSize;
+
+                    return appendChunk(filePath, src, position, Math.min(chunkSize, len - position))
+                            .subscribeOn(Schedulers.io())
+                            .doOnNext(chunkLen -> {
+                                if (onProgress != null) {
+                                    onProgress.call(uploaded.addAndGet(chunkLen), len);
+                                }
+                            });
+                }, chunkConcurrency)
+                .reduce(0L, Long::sum)
+                .map(ignore -> len);
+    }
+
+    private Observable<Long> appendChunk(String filePath, File src, long position, long length) {
+        return Observable.defer(() -> {
+                    HttpPatch req = new HttpPatch(filePath);
+                    List<NameValuePair> appendReqParams = new ADLSGen2ParamsBuilder()
+                            .setAction("append")
+                            .setPosition(position)
+                            .build();
+                    FileRangeEntity entity = new FileRangeEntity(
+                            src, position, length, ContentType.APPLICATION_OCTET_STREAM);
+
+                    return executeAndRelease(req, entity, appendReqParams, Collections.emptyList(), 202);
+                })
+                .map(ignore -> length)
+                .retry(chunkRetries);
     }
 
     private Observable<Boolean> flushData(String filePath, long flushLen) {
@@ -154,7 +229,32 @@ public class ADLSGen2FSOperation {
         List<NameValuePair> flushReqParams = this.flushReqParamsBuilder.setPosition(flushLen).build();
         http.setContentType("application/json");
 
-        return http.executeReqAndCheckStatus(req, null, flushReqParams, Collections.emptyList(), 200)
+        return executeAndRelease(req, null, flushReqParams, Collections.emptyList(), 200)
                 .map(ignore -> true);
     }
+
+    /**
+     * Execute the request and close its response on both success and failure, so that every attempt (including the
+     * retried ones) returns its pooled connection.
+     *
+     * @return Observable: the status code of the closed response
+     */
+    private Observable<Integer> executeAndRelease(HttpRequestBase req,
+                                                  @Nullable HttpEntity entity,
+                                                  List<NameValuePair> params,
+                                                  List<Header> headers,
+                                                  int validStatusCode) {
+        return http.request(req, entity, params, headers)
+                .map(resp -> {
+                    final int statusCode = resp.getStatusLine().getStatusCode();
+                    HttpClientUtils.closeQuietly(resp);
+
+                    if (statusCode != validStatusCode) {
+                        throw Exceptions.propagate(new UnknownServiceException(String.format(
+                                "Execute request %s with unexpected code %s", req.getRequestLine(), statusCode)));
+                    }
+
+                    return statusCode;
+                });
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
+
+import com.google.common.io.ByteStreams;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The repeatable HTTP entity of a file range, which is streamed from the file channel when it's sent, instead of
+ * being loaded into heap.
+ */
+public class FileRangeEntity extends AbstractHttpEntity {
+    @NotNull
+    private final File file;
+
+    private final long position;
+
+    private final long length;
+
+    public FileRangeEntity(@NotNull File file, long position, long length, @NotNull ContentType contentType) {
+        this.file = file;
+        this.position = position;
+        this.length = length;
+
+        setContentType(contentType.toString());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        channel.position(position);
+
+        return ByteStreams.limit(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        // The target channel shouldn't be closed, since the output stream is managed by HTTP client
+        final WritableByteChannel target = Channels.newChannel(outStream);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long current = position;
+            long remaining = length;
+
+            while (remaining > 0) {
+                final long transferred = channel.transferTo(current, remaining, target);
+                if (transferred <= 0) {
+                    throw new EOFException("Unexpected end of file " + file + " at position " + current);
+                }
+
+                current += transferred;
+                remaining -= transferred;
+            }
+        }
+
+        outStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -8,9 +8,12 @@ package com.microsoft.azure.hdinsight.spark.common;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.http.client.utils.URIBuilder;
+import rx.Observable;
 
+import java.net.URI;
 import java.net.URISyntaxException;
 
 // for cluster with adls account to deploy using webhdfs storage account type
@@ -27,4 +30,13 @@ public class ADLSGen1HDFSDeploy extends WebHDFSDeploy {
         builder.setScheme(cluster.getStorageAccount().getDefaultStorageSchema());
         return builder.build().toString();
     }
+
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String artifactUri) {
+        // convert adl://xx/hdi-root/SparkSubmission/artifact.jar back to https://xx/webhdfs/v1/hdi-root/SparkSubmission/artifact.jar
+        final URI remote = URI.create(artifactUri);
+
+        return super.isDeployed(URI.create(destinationRootPath).resolve("/webhdfs/v1" + remote.getPath()).toString());
+    }
 }
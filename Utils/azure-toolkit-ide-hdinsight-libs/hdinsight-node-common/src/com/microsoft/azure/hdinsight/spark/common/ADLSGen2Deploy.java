@@ -19,9 +19,15 @@ import org.apache.http.HttpStatus;
 import rx.Observable;
 import rx.Observer;
 import rx.exceptions.Exceptions;
+import rx.functions.Action2;
+import rx.observers.SerializedObserver;
 
 import java.io.File;
 import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
+import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
 
 public class ADLSGen2Deploy implements Deployable, ILogger {
     @NotNull
@@ -76,11 +82,44 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
                  })
                  .doOnNext(ignore -> log().info(String.format("Create filesystem %s successfully.", dirPath)))
                  .flatMap(ignore -> op.createFile(filePath, "0755"))
-                 .flatMap(ignore -> op.uploadData(filePath, src))
+                 .flatMap(ignore -> op.uploadData(filePath, src, createProgressReporter(src, logSubject)))
                  .doOnNext(ignore -> log().info(String.format("Append data to file %s successfully.", filePath)))
                  .map(ignored -> AbfsUri.parse(filePath).getUri().toString());
     }
 
+    @NotNull
+    @Override
+    public String getDestination() {
+        return destinationRootPath;
+    }
+
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String artifactUri) {
+        return Observable.defer(() -> new ADLSGen2FSOperation(this.http)
+                .exists(AbfsUri.parse(artifactUri).getUrl().toString()));
+    }
+
+    /**
+     * Create the upload progress reporter, which prints the progress every 10 percent of the artifact uploaded.
+     * The ranges are appended in parallel, so the log lines are emitted through a serialized observer.
+     */
+    @NotNull
+    private Action2<Long, Long> createProgressReporter(@NotNull File src, @NotNull Observer<SparkLogLine> logObserver) {
+        final AtomicLong reportedPercent = new AtomicLong(0);
+        final Observer<SparkLogLine> logSubject = new SerializedObserver<>(logObserver);
+
+        return (uploaded, total) -> {
+            final long percent = total == 0 ? 100 : uploaded * 100 / total;
+            final long lastReported = reportedPercent.get();
+
+            if (percent / 10 > lastReported / 10 && reportedPercent.compareAndSet(lastReported, percent)) {
+                logSubject.onNext(new SparkLogLine(TOOL, Info, String.format(
+                        "Uploading %s: %d%% (%d of %d bytes)", src.getName(), percent, uploaded, total)));
+            }
+        };
+    }
+
     public static String getForbiddenErrorHints(String fileSystemRootPath) {
         final String signInUserEmail = Azure.az(AzureAccount.class).account().getUsername();
         return " Please verify if\n"
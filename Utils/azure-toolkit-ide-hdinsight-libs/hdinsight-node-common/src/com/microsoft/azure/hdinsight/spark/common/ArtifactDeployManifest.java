@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The local manifest of the deployed Spark job artifacts, which maps the artifact content hash in a deploying
+ * destination to the remote artifact URI, so that an unchanged artifact can be reused instead of uploading again.
+ *
+ * The manifest is persisted as a JSON file in the Azure Toolkit settings folder, and only the latest
+ * {@value #MAX_ENTRIES} artifacts are kept.
+ */
+public final class ArtifactDeployManifest implements ILogger {
+    private static final String MANIFEST_FILE_NAME = "hdinsight-artifact-deploy-manifest.json";
+    private static final int MAX_ENTRIES = 500;
+
+    private static final ArtifactDeployManifest INSTANCE = new ArtifactDeployManifest();
+
+    @Nullable
+    private Map<String, Entry> entries = null;
+
+    private ArtifactDeployManifest() {
+    }
+
+    @NotNull
+    public static ArtifactDeployManifest getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the SHA-256 hex digest of the artifact content
+     *
+     * @param artifact the local artifact
+     * @return the content hash
+     * @throws IOException exceptions in reading the artifact
+     */
+    @NotNull
+    public static String digest(@NotNull File artifact) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(artifact))) {
+            return DigestUtils.sha256Hex(in);
+        }
+    }
+
+    /**
+     * Find the remote URI of the artifact deployed before
+     *
+     * @param destination the deploying destination, such as the storage account and root path
+     * @param artifactName the artifact file name
+     * @param contentHash the artifact content hash
+     * @return the deployed artifact URI, null if not found
+     */
+    @Nullable
+    public synchronized String find(@NotNull String destination,
+                                    @NotNull String artifactName,
+                                    @NotNull String contentHash) {
+        final Entry entry = load().get(toKey(destination, artifactName, contentHash));
+
+        return entry == null ? null : entry.getUri();
+    }
+
+    public synchronized void record(@NotNull String destination,
+                                    @NotNull String artifactName,
+                                    @NotNull String contentHash,
+                                    @NotNull String uri) {
+        final Map<String, Entry> loaded = load();
+        final Entry entry = new Entry();
+        entry.destination = destination;
+        entry.name = artifactName;
+        entry.hash = contentHash;
+        entry.uri = uri;
+        entry.deployedTime = System.currentTimeMillis();
+
+        loaded.put(toKey(destination, artifactName, contentHash), entry);
+
+        if (loaded.size() > MAX_ENTRIES) {
+            loaded.values().stream()
+                    .sorted(Comparator.comparingLong(Entry::getDeployedTime))
+                    .limit(loaded.size() - MAX_ENTRIES)
+                    .map(evicted -> toKey(evicted.getDestination(), evicted.getName(), evicted.getHash()))
+                    .forEach(loaded::remove);
+        }
+
+        save(loaded);
+    }
+
+    public synchronized void remove(@NotNull String destination,
+                                    @NotNull String artifactName,
+                                    @NotNull String contentHash) {
+        final Map<String, Entry> loaded = load();
+
+        if (loaded.remove(toKey(destination, artifactName, contentHash)) != null) {
+            save(loaded);
+        }
+    }
+
+    @NotNull
+    private static String toKey(@NotNull String destination, @NotNull String artifactName, @NotNull String hash) {
+        return StringUtils.stripEnd(destination, "/") + "|" + artifactName + "|" + hash;
+    }
+
+    @NotNull
+    private Path getManifestPath() {
+        final String baseDir = StringUtils.isNotBlank(CommonSettings.getSettingsBaseDir())
+                ? CommonSettings.getSettingsBaseDir()
+                : System.getProperty("user.home");
+
+        return Paths.get(baseDir, MANIFEST_FILE_NAME);
+    }
+
+    @NotNull
+    private Map<String, Entry> load() {
+        if (entries != null) {
+            return entries;
+        }
+
+        entries = new LinkedHashMap<>();
+
+        final Path manifestPath = getManifestPath();
+        if (!Files.isRegularFile(manifestPath)) {
+            return entries;
+        }
+
+        try {
+            final String json = new String(Files.readAllBytes(manifestPath), StandardCharsets.UTF_8);
+
+            ObjectConvertUtils.convertJsonToObject(json, Manifest.class)
+                    .ifPresent(manifest -> manifest.getArtifacts().forEach(entry ->
+                            entries.put(toKey(entry.getDestination(), entry.getName(), entry.getHash()), entry)));
+        } catch (final IOException | RuntimeException ex) {
+            // A broken manifest only costs the artifacts uploading again
+            log().warn("Failed to load the artifact deploy manifest " + manifestPath, ex);
+        }
+
+        return entries;
+    }
+
+    private void save(@NotNull Map<String, Entry> toSave) {
+        final Path manifestPath = getManifestPath();
+        final Manifest manifest = new Manifest();
+        manifest.artifacts = new ArrayList<>(toSave.values());
+
+        try {
+            final String json = ObjectConvertUtils.convertObjectToJsonString(manifest)
+                    .orElseThrow(() -> new IOException("Can't serialize the artifact deploy manifest"));
+            final Path tempPath = manifestPath.resolveSibling(MANIFEST_FILE_NAME + ".tmp");
+
+            Files.createDirectories(manifestPath.getParent());
+            Files.write(tempPath, json.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ex) {
+            log().warn("Failed to save the artifact deploy manifest " + manifestPath, ex);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Manifest {
+        private List<Entry> artifacts;
+
+        public List<Entry> getArtifacts() {
+            return artifacts == null ? new ArrayList<>() : artifacts;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        private String destination;
+        private String name;
+        private String hash;
+        private String uri;
+        private long deployedTime;
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public long getDeployedTime() {
+            return deployedTime;
+        }
+    }
+}
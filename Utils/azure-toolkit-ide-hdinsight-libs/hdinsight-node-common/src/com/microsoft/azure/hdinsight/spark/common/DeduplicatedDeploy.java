@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
+import rx.Observer;
+
+import java.io.File;
+
+import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
+import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
+
+/**
+ * The deploy decorator to skip uploading the unchanged artifacts.
+ *
+ * The artifact content hash and the deployed URI are recorded in {@link ArtifactDeployManifest} per destination of
+ * the delegated deploy. Before uploading, the recorded URI of the same artifact content is verified by the delegated
+ * deploy's remote existence check, and is reused if it still exists. Every deployed file, such as the job JAR and
+ * each dependency JAR, is deduplicated separately, so only the changed ones are uploaded.
+ */
+public class DeduplicatedDeploy implements Deployable, ILogger {
+    public static final String DISABLED_PROPERTY = "azure.hdinsight.deploy.deduplication.disabled";
+
+    @NotNull
+    private final Deployable delegate;
+
+    @NotNull
+    private final ArtifactDeployManifest manifest;
+
+    public DeduplicatedDeploy(@NotNull Deployable delegate) {
+        this(delegate, ArtifactDeployManifest.getInstance());
+    }
+
+    public DeduplicatedDeploy(@NotNull Deployable delegate, @NotNull ArtifactDeployManifest manifest) {
+        this.delegate = delegate;
+        this.manifest = manifest;
+    }
+
+    @NotNull
+    public Deployable getDelegate() {
+        return delegate;
+    }
+
+    @Nullable
+    @Override
+    public String getDestination() {
+        return delegate.getDestination();
+    }
+
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String artifactUri) {
+        return delegate.isDeployed(artifactUri);
+    }
+
+    @Override
+    public Observable<String> deploy(File src, Observer<SparkLogLine> logSubject) {
+        final String destination = delegate.getDestination();
+        if (destination == null || Boolean.getBoolean(DISABLED_PROPERTY)) {
+            return delegate.deploy(src, logSubject);
+        }
+
+        return Observable.fromCallable(() -> ArtifactDeployManifest.digest(src))
+                .flatMap(hash -> {
+                    final String deployedUri = manifest.find(destination, src.getName(), hash);
+                    final Observable<Boolean> reusable = deployedUri == null
+                            ? Observable.just(false)
+                            : delegate.isDeployed(deployedUri)
+                                      .onErrorReturn(err -> {
+                                          log().debug("Failed to check the deployed artifact " + deployedUri, err);
+                                          return false;
+                                      })
+                                      .defaultIfEmpty(false);
+
+                    return reusable.flatMap(reuse -> {
+                        if (reuse) {
+                            logSubject.onNext(new SparkLogLine(TOOL, Info, String.format(
+                                    "Artifact %s is unchanged, reuse the deployed one %s", src.getName(), deployedUri)));
+
+                            return Observable.just(deployedUri);
+                        }
+
+                        if (deployedUri != null) {
+                            manifest.remove(destination, src.getName(), hash);
+                        }
+
+                        return delegate.deploy(src, logSubject)
+                                .doOnNext(uri -> manifest.record(destination, src.getName(), hash, uri));
+                    });
+                });
+    }
+}
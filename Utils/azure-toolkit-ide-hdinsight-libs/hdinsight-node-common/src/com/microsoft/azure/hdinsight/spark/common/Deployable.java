@@ -6,6 +6,8 @@
 package com.microsoft.azure.hdinsight.spark.common;
 
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import rx.Observable;
 import rx.Observer;
 
@@ -21,4 +23,26 @@ public interface Deployable {
      * Observable Error: IOException;
      */
     Observable<String> deploy(File src, Observer<SparkLogLine> logSubject);
+
+    /**
+     * Get the destination of deploying, such as the storage account and root path, which identifies where the
+     * deployed artifacts can be reused by {@link DeduplicatedDeploy}
+     *
+     * @return the destination, null if the deployed artifacts can't be reused
+     */
+    @Nullable
+    default String getDestination() {
+        return null;
+    }
+
+    /**
+     * Check if the deployed artifact still exists
+     *
+     * @param artifactUri the artifact URI returned by {@link #deploy(File, Observer)}
+     * @return Observable: true if the artifact exists
+     */
+    @NotNull
+    default Observable<Boolean> isDeployed(@NotNull String artifactUri) {
+        return Observable.just(false);
+    }
 }
@@ -6,13 +6,20 @@
 package com.microsoft.azure.hdinsight.spark.common;
 
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.storage.StorageAccountType;
+import com.microsoft.azure.hdinsight.sdk.storage.StorageClientSDKManager;
+import com.microsoft.azure.hdinsight.sdk.storage.adls.WebHDFSUtils;
+import com.microsoft.azure.hdinsight.sdk.storage.implementation.HDStorageAccount;
 import com.microsoft.azure.hdinsight.sdk.storage.model.IHDIStorageAccount;
 import com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import org.apache.commons.lang3.StringUtils;
 import rx.Observable;
 import rx.Observer;
 
 import java.io.File;
+import java.net.URI;
 
 // for cluster with blob/adls gen1 account to deploy using default storage account type
 // will be replaced by AdlsDeploy/ADLSGen1HDFSDeploy
@@ -27,4 +34,33 @@ public class LegacySDKDeploy implements Deployable, ILogger {
     public Observable<String> deploy(File src, Observer<SparkLogLine> logSubject) {
         return JobUtils.deployArtifact(src.getAbsolutePath(), storageAccount, logSubject);
     }
+
+    @NotNull
+    @Override
+    public String getDestination() {
+        return String.format("%s://%s/%s",
+                             storageAccount.getAccountType(),
+                             storageAccount.getName(),
+                             storageAccount.getDefaultContainerOrRootPath());
+    }
+
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String artifactUri) {
+        return Observable.fromCallable(() -> {
+            // Sample: wasbs://container@account.blob.core.windows.net/SparkSubmission/2019/01/01/uuid/a.jar
+            //         adl://account.azuredatalakestore.net/root/SparkSubmission/2019/01/01/uuid/a.jar
+            final URI remote = URI.create(artifactUri);
+            final String path = StringUtils.removeStart(remote.getPath(), "/");
+
+            if (storageAccount.getAccountType() == StorageAccountType.BLOB) {
+                return StorageClientSDKManager.getManager().isBlobExisting(
+                        ((HDStorageAccount) storageAccount).getConnectionString(), remote.getUserInfo(), path);
+            } else if (storageAccount.getAccountType() == StorageAccountType.ADLS) {
+                return WebHDFSUtils.isFileExistingInADLS(storageAccount, path);
+            }
+
+            return false;
+        });
+    }
 }
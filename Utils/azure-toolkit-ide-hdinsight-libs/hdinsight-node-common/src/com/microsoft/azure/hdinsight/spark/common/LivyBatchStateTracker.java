@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import rx.Observable;
+import rx.Subscription;
+import rx.subjects.BehaviorSubject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.UnknownServiceException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cluster level Livy batch state tracker.
+ *
+ * All Spark batch jobs tracked on the same Livy endpoint share one polling, which lists the batches with one paged
+ * GET /batches?from=&size= per tick and fans the state changes out to the subscribers of each batch. Only the
+ * tracked batches not found in the page, or tracked with their own status fetchers, are fetched one by one. So N
+ * tracked jobs cost one request per tick for a cluster, instead of N requests.
+ *
+ * The trackers are shared by the endpoint and the submission (which holds the credentials), and evicted once idle.
+ */
+public class LivyBatchStateTracker implements ILogger {
+    private static final int MIN_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Set<String> DONE_STATES = new HashSet<>(Arrays.asList(
+            SparkBatchJobState.SHUTTING_DOWN.toString(),
+            SparkBatchJobState.ERROR.toString(),
+            SparkBatchJobState.DEAD.toString(),
+            SparkBatchJobState.SUCCESS.toString()));
+
+    private static final Map<TrackerKey, LivyBatchStateTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    @NotNull
+    private final TrackerKey key;
+
+    @NotNull
+    private final String connectUrl;
+
+    @NotNull
+    private final SparkBatchSubmission submission;
+
+    @NotNull
+    private final Map<Integer, TrackedBatch> trackedBatches = new HashMap<>();
+
+    @Nullable
+    private Subscription polling;
+
+    private volatile int lastTotal = MIN_PAGE_SIZE;
+
+    private LivyBatchStateTracker(@NotNull TrackerKey key) {
+        this.key = key;
+        this.connectUrl = key.connectUrl;
+        this.submission = key.submission;
+    }
+
+    /**
+     * Get the tracker of the Livy batches endpoint with the submission
+     *
+     * @param connectUri the Livy batches URI, such as: http://livy:8998/batches
+     * @param submission the submission for RestAPI transaction
+     * @return the tracker shared by the jobs of the endpoint with the same submission
+     */
+    @NotNull
+    public static LivyBatchStateTracker getInstance(@NotNull URI connectUri, @NotNull SparkBatchSubmission submission) {
+        final TrackerKey key = new TrackerKey(StringUtils.stripEnd(connectUri.toString(), "/"), submission);
+
+        return TRACKERS.computeIfAbsent(key, LivyBatchStateTracker::new);
+    }
+
+    /**
+     * Track the Livy batch state until it's done
+     *
+     * @param batchId the Livy batch ID
+     * @return the batch status observable, emitting the latest known status to new subscribers at first
+     */
+    @NotNull
+    public Observable<SparkSubmitResponse> track(final int batchId) {
+        return track(batchId, null);
+    }
+
+    /**
+     * Track the batch state until it's done
+     *
+     * @param batchId the Livy batch ID
+     * @param statusFetcher the blocking fetcher of the batch status to use instead of the batches page, such as
+     *                      the overridden status getter of a job, null to find the batch in the page
+     * @return the batch status observable, emitting the latest known status to new subscribers at first
+     */
+    @NotNull
+    public Observable<SparkSubmitResponse> track(final int batchId,
+                                                 @Nullable Callable<? extends SparkSubmitResponse> statusFetcher) {
+        return Observable.defer(() -> {
+            final TrackedBatch batch = register(batchId, statusFetcher);
+
+            return batch.subject.asObservable().doOnUnsubscribe(() -> unregister(batchId, batch));
+        });
+    }
+
+    public static boolean isDone(@Nullable String state) {
+        return state != null && DONE_STATES.contains(state.toLowerCase());
+    }
+
+    @NotNull
+    private synchronized TrackedBatch register(final int batchId,
+                                              @Nullable Callable<? extends SparkSubmitResponse> statusFetcher) {
+        final TrackedBatch batch = trackedBatches.computeIfAbsent(batchId, id -> new TrackedBatch(statusFetcher));
+        batch.subscribers++;
+
+        if (polling == null || polling.isUnsubscribed()) {
+            final SparkBatchJobPollingScheduler pollingScheduler = SparkBatchJobPollingScheduler.getInstance();
+
+            // Share the tracker again if it has been evicted while idle
+            TRACKERS.putIfAbsent(key, this);
+
+            polling = pollingScheduler
+                    .poll(this::tick,
+                          (lastChanged, changed) -> changed,
+                          ignored -> isIdle(),
+                          new SparkBatchJobPollingScheduler.Backoff(
+                                  TimeUnit.SECONDS.toMillis(1), TimeUnit.SECONDS.toMillis(20), 3))
+                    .subscribe(ignored -> { }, this::failAll);
+        }
+
+        return batch;
+    }
+
+    private synchronized void unregister(final int batchId, @NotNull TrackedBatch batch) {
+        if (--batch.subscribers <= 0) {
+            trackedBatches.remove(batchId, batch);
+        }
+    }
+
+    private synchronized boolean isIdle() {
+        if (trackedBatches.isEmpty()) {
+            polling = null;
+            TRACKERS.remove(key, this);
+            return true;
+        }
+
+        return false;
+    }
+
+    @NotNull
+    private synchronized Map<Integer, Callable<? extends SparkSubmitResponse>> getTrackedBatchFetchers() {
+        final Map<Integer, Callable<? extends SparkSubmitResponse>> fetchers = new HashMap<>();
+        trackedBatches.forEach((batchId, batch) -> fetchers.put(batchId, batch.statusFetcher));
+
+        return fetchers;
+    }
+
+    /**
+     * One tick of polling: list the batches page and fetch the missing ones, then fan out the changed states
+     *
+     * @return whether any tracked batch state is changed in the tick
+     * @throws IOException exceptions when no tracked batch status could be got
+     */
+    private boolean tick() throws IOException {
+        final Map<Integer, Callable<? extends SparkSubmitResponse>> fetchers = getTrackedBatchFetchers();
+        if (fetchers.isEmpty()) {
+            return false;
+        }
+
+        final Map<Integer, SparkSubmitResponse> statuses = new HashMap<>();
+        if (fetchers.containsValue(null)) {
+            listBatches(fetchers.keySet(), statuses);
+        }
+
+        // Fall back to get the batches out of the page one by one
+        Exception lastError = null;
+        for (final Map.Entry<Integer, Callable<? extends SparkSubmitResponse>> entry : fetchers.entrySet()) {
+            final Integer batchId = entry.getKey();
+            if (statuses.containsKey(batchId)) {
+                continue;
+            }
+
+            try {
+                final SparkSubmitResponse status = entry.getValue() != null
+                                                   ? entry.getValue().call()
+                                                   : getBatch(batchId);
+                if (status != null) {
+                    statuses.put(batchId, status);
+                }
+            } catch (final Exception ex) {
+                log().debug("Got exception " + ex + " when getting Livy batch " + batchId, ex);
+                lastError = ex;
+            }
+        }
+
+        if (statuses.isEmpty()) {
+            // Let the polling scheduler retry with backoff, and fail the subscribers after too many errors
+            throw new UnknownServiceException("Failed to get any tracked Livy batch from " + connectUrl
+                                                      + (lastError == null ? "" : ": " + lastError));
+        }
+
+        return fanOut(statuses);
+    }
+
+    /**
+     * List the latest batches page, since the tracked batches are most likely the recently created ones
+     *
+     * @param batchIds the tracked batch IDs to find in the page
+     * @param statuses the statuses found in the page to put into
+     */
+    private void listBatches(@NotNull Set<Integer> batchIds, @NotNull Map<Integer, SparkSubmitResponse> statuses) {
+        final int size = Math.min(MAX_PAGE_SIZE, Math.max(MIN_PAGE_SIZE, lastTotal));
+        // Livy pages the batches in the ascending order of IDs, the extra page covers the ones created since last tick
+        final int from = Math.max(0, lastTotal - size);
+
+        try {
+            final HttpResponse pageResponse = submission.getAllBatchesSparkJobs(
+                    String.format("%s?from=%d&size=%d", connectUrl, from, size + MIN_PAGE_SIZE));
+
+            if (pageResponse.getCode() < 200 || pageResponse.getCode() >= 300) {
+                log().debug("Failed to list Livy batches from " + connectUrl + ": " + pageResponse.getMessage());
+                return;
+            }
+
+            final Optional<SparkBatchesResponse> page = ObjectConvertUtils.convertJsonToObject(
+                    pageResponse.getMessage(), SparkBatchesResponse.class);
+            if (!page.isPresent()) {
+                log().debug("Bad Livy batches response: " + pageResponse.getMessage());
+                return;
+            }
+
+            lastTotal = page.get().getTotal();
+            page.get().getSessions().stream()
+                    .filter(status -> batchIds.contains(status.getId()))
+                    .forEach(status -> statuses.put(status.getId(), status));
+        } catch (final IOException ex) {
+            log().debug("Got exception " + ex + " when listing Livy batches from " + connectUrl, ex);
+        }
+    }
+
+    @Nullable
+    private SparkSubmitResponse getBatch(final int batchId) throws IOException {
+        final HttpResponse httpResponse = submission.getBatchSparkJobStatus(connectUrl, batchId);
+
+        if (httpResponse.getCode() < 200 || httpResponse.getCode() >= 300) {
+            throw new UnknownServiceException("Failed to get Livy batch " + batchId + ": " + httpResponse.getMessage());
+        }
+
+        return ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(), SparkSubmitResponse.class)
+                                 .orElse(null);
+    }
+
+    private synchronized boolean fanOut(@NotNull Map<Integer, SparkSubmitResponse> statuses) {
+        boolean changed = false;
+
+        for (final Map.Entry<Integer, SparkSubmitResponse> entry : statuses.entrySet()) {
+            final TrackedBatch batch = trackedBatches.get(entry.getKey());
+            if (batch == null) {
+                continue;
+            }
+
+            final SparkSubmitResponse last = batch.subject.getValue();
+            final SparkSubmitResponse current = entry.getValue();
+
+            if (last == null
+                    || !StringUtils.equals(last.getState(), current.getState())
+                    || last.getLog().size() != current.getLog().size()) {
+                changed = true;
+                batch.subject.onNext(current);
+            }
+
+            if (isDone(current.getState())) {
+                batch.subject.onCompleted();
+                trackedBatches.remove(entry.getKey());
+            }
+        }
+
+        return changed;
+    }
+
+    private synchronized void failAll(@NotNull Throwable err) {
+        log().warn("Failed to track Livy batches of " + connectUrl, err);
+
+        trackedBatches.values().forEach(batch -> batch.subject.onError(err));
+        trackedBatches.clear();
+        polling = null;
+        TRACKERS.remove(key, this);
+    }
+
+    private static class TrackedBatch {
+        @NotNull
+        private final BehaviorSubject<SparkSubmitResponse> subject = BehaviorSubject.create();
+
+        @Nullable
+        private final Callable<? extends SparkSubmitResponse> statusFetcher;
+
+        private int subscribers = 0;
+
+        private TrackedBatch(@Nullable Callable<? extends SparkSubmitResponse> statusFetcher) {
+            this.statusFetcher = statusFetcher;
+        }
+    }
+
+    /**
+     * The tracker key of the endpoint and the submission, the submissions are compared by identity since they hold
+     * the credentials
+     */
+    private static final class TrackerKey {
+        @NotNull
+        private final String connectUrl;
+
+        @NotNull
+        private final SparkBatchSubmission submission;
+
+        private TrackerKey(@NotNull String connectUrl, @NotNull SparkBatchSubmission submission) {
+            this.connectUrl = connectUrl;
+            this.submission = submission;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof TrackerKey)) {
+                return false;
+            }
+
+            final TrackerKey other = (TrackerKey) o;
+
+            return connectUrl.equals(other.connectUrl) && submission == other.submission;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * connectUrl.hashCode() + System.identityHashCode(submission);
+        }
+    }
+}
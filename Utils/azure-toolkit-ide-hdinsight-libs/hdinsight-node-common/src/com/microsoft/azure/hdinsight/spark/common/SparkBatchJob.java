@@ -37,6 +37,7 @@ import java.net.URI;
 import java.net.UnknownServiceException;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,7 +46,6 @@ import static com.microsoft.azure.hdinsight.common.MessageInfoType.Error;
 import static com.microsoft.azure.hdinsight.common.MessageInfoType.*;
 import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.LIVY;
 import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
-import static java.lang.Thread.sleep;
 import static rx.exceptions.Exceptions.propagate;
 
 public class SparkBatchJob implements ISparkBatchJob, ILogger {
@@ -498,34 +498,7 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
                     "please configure Spark cluster which the Spark job will be submitted.");
         }
 
-        int retries = 0;
-
-        do {
-            try {
-                final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                        this.getConnectUri().toString(), batchId);
-
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                          .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
-
-                    return jobResp.getState();
-                }
-            } catch (final IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
-
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (final InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
-            }
-        } while (++retries < this.getRetriesMax());
-
-        throw new UnknownServiceException("Failed to get job state: Unknown service error after " + --retries + " retries");
+        return getStatusWithRetries("Failed to get job state").getState();
     }
 
     /**
@@ -537,40 +510,19 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
      * @throws IOException exceptions in transaction
      */
     String getSparkJobApplicationId(URI batchBaseUri, int batchId) throws IOException {
-        int retries = 0;
+        return awaitWithRetries(() -> {
+            final SparkSubmitResponse jobResp = fetchStatus(batchBaseUri, batchId);
 
-        do {
-            try {
-                final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                        batchBaseUri.toString(), batchId);
-
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                          .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
-
-                    if (jobResp.getAppId() != null) {
-                        return jobResp.getAppId();
-                    }
-                }
-            } catch (final IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
-
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (final InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
+            if (jobResp.getAppId() == null) {
+                throw new UnknownServiceException("The application ID of Livy batch " + batchId + " is not allocated");
             }
-        } while (++retries < this.getRetriesMax());
 
-        throw new UnknownServiceException("Failed to get job Application ID: Unknown service error after " + --retries + " retries");
+            return jobResp.getAppId();
+        }, "Failed to get job Application ID");
     }
 
     /**
-     * Get Spark Job Yarn application with retries
+     * Get Spark Job Yarn application in a single attempt, the callers retry it by the polling scheduler
      *
      * @param yarnConnectUri the connection URI of HDInsight Livy batch job, http://livy:8998/batches, the function will help translate it to Yarn connection URI.
      * @param applicationID the Yarn application ID
@@ -578,43 +530,25 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
      * @throws IOException exceptions in transaction
      */
     @Nullable
-    private App getSparkJobYarnApplication(URI yarnConnectUri, String applicationID) throws Exception {
+    private App getSparkJobYarnApplication(URI yarnConnectUri, String applicationID) throws IOException {
         if (yarnConnectUri == null) {
             return null;
         }
 
-        int retries = 0;
+        // TODO: An issue here when the yarnui not sharing root with Livy batch job URI
+        final URI getYarnClusterAppURI = URI.create(yarnConnectUri.toString() + applicationID);
+        final HttpResponse httpResponse = this.getSubmission().getHttpResponseViaGet(getYarnClusterAppURI.toString());
 
-        do {
-            // TODO: An issue here when the yarnui not sharing root with Livy batch job URI
-            final URI getYarnClusterAppURI = URI.create(yarnConnectUri.toString() + applicationID);
-
-            try {
-                final HttpResponse httpResponse = this.getSubmission()
-                                                      .getHttpResponseViaGet(getYarnClusterAppURI.toString());
-
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    final Optional<AppResponse> appResponse = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), AppResponse.class);
-                    return appResponse
-                            .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad response when getting from " + getYarnClusterAppURI + ", " +
-                                            "response " + httpResponse.getMessage()))
-                            .getApp();
-                }
-            } catch (final IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
-
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (final InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
-            }
-        } while (++retries < this.getRetriesMax());
+        if (httpResponse.getCode() < 200 || httpResponse.getCode() >= 300) {
+            throw new UnknownServiceException("Failed to get job Yarn application from " + getYarnClusterAppURI
+                                                      + ", response " + httpResponse.getMessage());
+        }
 
-        throw new UnknownServiceException("Failed to get job Yarn application: Unknown service error after " + --retries + " retries");
+        return ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(), AppResponse.class)
+                .orElseThrow(() -> new UnknownServiceException(
+                        "Bad response when getting from " + getYarnClusterAppURI + ", " +
+                                "response " + httpResponse.getMessage()))
+                .getApp();
     }
 
     /**
@@ -710,37 +644,15 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
     @Nullable
     @Deprecated
     public String getSparkJobDriverLogUrl(URI batchBaseUri, int batchId) throws IOException {
-        int retries = 0;
-
-        do {
-            final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                    batchBaseUri.toString(), batchId);
-
-            try {
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                          .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
-
-                    if (jobResp.getAppId() != null && jobResp.getAppInfo().get("driverLogUrl") != null) {
-                        return jobResp.getAppInfo().get("driverLogUrl").toString();
-                    }
-                }
-            } catch (final IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
-
+        return awaitWithRetries(() -> {
+            final SparkSubmitResponse jobResp = fetchStatus(batchBaseUri, batchId);
 
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (final InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
+            if (jobResp.getAppId() == null || jobResp.getAppInfo().get("driverLogUrl") == null) {
+                throw new UnknownServiceException("The driver log URL of Livy batch " + batchId + " is not allocated");
             }
-        } while (++retries < this.getRetriesMax());
 
-        throw new UnknownServiceException("Failed to get job driver log URL: Unknown service error after " + --retries + " retries");
+            return jobResp.getAppInfo().get("driverLogUrl").toString();
+        }, "Failed to get job driver log URL");
     }
 
     /**
@@ -758,7 +670,9 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
 
             final String applicationId = this.getSparkJobApplicationId(this.getConnectUri(), this.getBatchId());
 
-            final App yarnApp = this.getSparkJobYarnApplication(this.getYarnNMConnectUri(), applicationId);
+            final App yarnApp = awaitWithRetries(
+                    () -> this.getSparkJobYarnApplication(this.getYarnNMConnectUri(), applicationId),
+                    "Failed to get job Yarn application");
 
             if (yarnApp == null) {
                 throw new Exception("Can not access yarn applicaition since yarnConnectUri is null");
@@ -802,55 +716,64 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
                 "stderr:",
                 "yarn diagnostics:"));
 
-        return Observable.create(ob -> {
-            try {
-                final int maxLinesPerGet = 128;
-                int linesGot;
-                boolean isFetching = true;
-
-                while (isFetching) {
-                    final int start = nextLivyLogOffset;
-                    final boolean isAppIdAllocated = !this.getSparkJobApplicationIdObservable().isEmpty().toBlocking()
-                            .lastOrDefault(true);
-                    final String logUrl = String.format("%s/%d/log?from=%d&size=%d",
-                                                        this.getConnectUri().toString(), batchId, start, maxLinesPerGet);
-
-                    final HttpResponse httpResponse = this.getSubmission().getHttpResponseViaGet(logUrl);
-
-                    final SparkJobLog sparkJobLog = ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(),
-                                                                                           SparkJobLog.class)
-                                                                      .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark log response: " + httpResponse.getMessage()));
-
-                    synchronized (livyLogOffsetLock) {
-                        if (start != nextLivyLogOffset) {
-                            // The offset is moved by another fetching thread, re-do it with new offset
-                            continue;
-                        }
+        // Fetch the next page immediately while there are new log lines, and back off while there is none
+        final SparkBatchJobPollingScheduler.Backoff backoff = new SparkBatchJobPollingScheduler.Backoff(
+                0, getPollingBackoff().getMaxDelayMs(), getRetriesMax());
+
+        return SparkBatchJobPollingScheduler.getInstance().poll(
+                        this::fetchNextLivyLog,
+                        (last, current) -> !current.getKey().isEmpty(),
+                        linesFetchingPair -> !linesFetchingPair.getValue(),
+                        backoff)
+                .flatMapIterable(SimpleImmutableEntry::getKey)
+                .filter(line -> !ignoredEmptyLines.contains(line.trim().toLowerCase()))
+                .map(line -> new SparkLogLine(LIVY, Log, line))
+                .onErrorReturn(err -> new SparkLogLine(TOOL, Error, err.getMessage()));
+    }
 
-                        // To subscriber
-                        sparkJobLog.getLog().stream()
-                                .filter(line -> !ignoredEmptyLines.contains(line.trim().toLowerCase()))
-                                .forEach(line -> ob.onNext(new SparkLogLine(LIVY, Log, line)));
+    /**
+     * Fetch the next Livy log lines from the offset in Spark Batch Job context
+     *
+     * @return the log lines fetched and whether the fetching should be continued
+     * @throws IOException exceptions in transaction
+     */
+    @NotNull
+    private SimpleImmutableEntry<List<String>, Boolean> fetchNextLivyLog() throws IOException {
+        final int maxLinesPerGet = 128;
 
-                        linesGot = sparkJobLog.getLog().size();
-                        nextLivyLogOffset += linesGot;
-                    }
+        while (true) {
+            final int start = nextLivyLogOffset;
+            final String logUrl = String.format("%s/%d/log?from=%d&size=%d",
+                                                this.getConnectUri().toString(), batchId, start, maxLinesPerGet);
 
-                    // Retry interval
-                    if (linesGot == 0) {
-                        isFetching = "starting".equals(this.getState()) && !isAppIdAllocated;
+            final HttpResponse httpResponse = this.getSubmission().getHttpResponseViaGet(logUrl);
 
-                        sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-                    }
+            final SparkJobLog sparkJobLog = ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(),
+                                                                                   SparkJobLog.class)
+                                                              .orElseThrow(() -> new UnknownServiceException(
+                            "Bad spark log response: " + httpResponse.getMessage()));
+
+            synchronized (livyLogOffsetLock) {
+                if (start != nextLivyLogOffset) {
+                    // The offset is moved by another fetching thread, re-do it with new offset
+                    continue;
                 }
-            } catch (final IOException ex) {
-                ob.onNext(new SparkLogLine(TOOL, Error, ex.getMessage()));
-            } catch (final InterruptedException ignored) {
-            } finally {
-                ob.onCompleted();
+
+                nextLivyLogOffset += sparkJobLog.getLog().size();
             }
-        });
+
+            final List<String> lines = sparkJobLog.getLog();
+            if (!lines.isEmpty()) {
+                return new SimpleImmutableEntry<>(lines, true);
+            }
+
+            // Keep fetching while the job is starting without application allocated, the failures of the single
+            // status getting attempt are retried by the polling scheduler
+            final SparkSubmitResponse status = fetchStatus(this.getConnectUri(), batchId);
+            final boolean isFetching = "starting".equals(status.getState()) && status.getAppId() == null;
+
+            return new SimpleImmutableEntry<>(lines, isFetching);
+        }
     }
 
     public boolean isActive() throws IOException {
@@ -859,89 +782,140 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
                     "please configure Spark cluster which the Spark job will be submitted.");
         }
 
-        int retries = 0;
+        return getStatusWithRetries("Failed to detect job activity").isAlive();
+    }
 
-        do {
-            try {
-                final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                        this.getConnectUri().toString(), batchId);
+    /**
+     * Get the job status from Livy with retries, for the callers out of the polling threads
+     *
+     * @param failureMessage the message prefix of the exception thrown after all retries failed
+     * @return the job status got
+     * @throws IOException exceptions after all retries failed
+     */
+    @NotNull
+    private SparkSubmitResponse getStatusWithRetries(@NotNull String failureMessage) throws IOException {
+        return awaitWithRetries(() -> getStatus().toBlocking().single(), failureMessage);
+    }
 
-                if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                    final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                            httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                          .orElseThrow(() -> new UnknownServiceException(
-                                    "Bad spark job response: " + httpResponse.getMessage()));
+    /**
+     * Get the job status from Livy in a single attempt
+     *
+     * @param batchBaseUri the connection URI
+     * @param batchId the Livy batch job ID
+     * @return the job status got
+     * @throws IOException exceptions in transaction or a non-2xx response
+     */
+    @NotNull
+    private SparkSubmitResponse fetchStatus(URI batchBaseUri, int batchId) throws IOException {
+        final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(batchBaseUri.toString(), batchId);
 
-                    return jobResp.isAlive();
-                }
-            } catch (final IOException e) {
-                log().debug("Got exception " + e.toString() + ", waiting for a while to try", e);
-            }
+        if (httpResponse.getCode() < 200 || httpResponse.getCode() >= 300) {
+            throw new UnknownServiceException("Failed to get Livy batch " + batchId + ": " + httpResponse.getMessage());
+        }
 
-            try {
-                // Retry interval
-                sleep(TimeUnit.SECONDS.toMillis(this.getDelaySeconds()));
-            } catch (final InterruptedException ex) {
-                throw new IOException("Interrupted in retry attempting", ex);
-            }
-        } while (++retries < this.getRetriesMax());
+        return ObjectConvertUtils.convertJsonToObject(httpResponse.getMessage(), SparkSubmitResponse.class)
+                .orElseThrow(() -> new UnknownServiceException("Bad spark job response: " + httpResponse.getMessage()));
+    }
 
-        throw new UnknownServiceException("Failed to detect job activity: Unknown service error after " + --retries + " retries");
+    /**
+     * Retry the single attempt every delay seconds by the polling scheduler timers, instead of sleeping in a thread
+     *
+     * @param attempt the single attempt, throwing exceptions to retry
+     * @param <T> the result type
+     * @return the observable of the first successful result, error after the max retries
+     */
+    @NotNull
+    private <T> Observable<T> retryByPollingScheduler(@NotNull Callable<T> attempt) {
+        final long delayMs = TimeUnit.SECONDS.toMillis(getDelaySeconds());
+
+        return SparkBatchJobPollingScheduler.getInstance().poll(
+                attempt,
+                (last, current) -> false,
+                ignored -> true,
+                new SparkBatchJobPollingScheduler.Backoff(delayMs, delayMs, Math.max(0, getRetriesMax() - 1)));
     }
 
-    protected Observable<SimpleImmutableEntry<String, String>> getJobDoneObservable() {
+    /**
+     * Wait for the attempt retried by the polling scheduler, the caller mustn't be a polling thread
+     *
+     * @param attempt the single attempt, throwing exceptions to retry
+     * @param failureMessage the message prefix of the exception thrown after all retries failed
+     * @param <T> the result type
+     * @return the first successful result
+     * @throws IOException exceptions after all retries failed
+     */
+    private <T> T awaitWithRetries(@NotNull Callable<T> attempt, @NotNull String failureMessage) throws IOException {
+        try {
+            return retryByPollingScheduler(attempt).toBlocking().single();
+        } catch (final RuntimeException ex) {
+            throw new UnknownServiceException(failureMessage + ": Unknown service error after "
+                                                      + (getRetriesMax() - 1) + " retries, "
+                                                      + ExceptionUtils.getRootCauseMessage(ex));
+        }
+    }
+
+    /**
+     * Get the polling backoff for the Livy batch, which polls every second while the job state or log is changing,
+     * and slows down to twice of the delay seconds while it's stable.
+     *
+     * @return the polling backoff
+     */
+    @NotNull
+    protected SparkBatchJobPollingScheduler.Backoff getPollingBackoff() {
+        return new SparkBatchJobPollingScheduler.Backoff(
+                TimeUnit.SECONDS.toMillis(1), TimeUnit.SECONDS.toMillis(2L * getDelaySeconds()), getRetriesMax());
+    }
+
+    /**
+     * New RxAPI: Poll the job status (from livy) until it's done, tracked with all other jobs of the same Livy endpoint
+     *
+     * @return the job status observable, emitting the latest polled status to new subscribers at first
+     */
+    @NotNull
+    protected Observable<? extends SparkSubmitResponse> pollStatus() {
         if (getConnectUri() == null) {
             return Observable.error(new SparkJobNotConfiguredException("Can't get Spark job connection URI, " +
                     "please configure Spark cluster which the Spark job will be submitted."));
         }
 
-        return Observable.create((Subscriber<? super SimpleImmutableEntry<String, String>> ob) -> {
-            try {
-                boolean isJobActive;
-                SparkBatchJobState state = SparkBatchJobState.NOT_STARTED;
-                String diagnostics = "";
-
-                do {
-                    final HttpResponse httpResponse = this.getSubmission().getBatchSparkJobStatus(
-                            this.getConnectUri().toString(), batchId);
-
-                    if (httpResponse.getCode() >= 200 && httpResponse.getCode() < 300) {
-                        final SparkSubmitResponse jobResp = ObjectConvertUtils.convertJsonToObject(
-                                httpResponse.getMessage(), SparkSubmitResponse.class)
-                                                                              .orElseThrow(() -> new UnknownServiceException(
-                                        "Bad spark job response: " + httpResponse.getMessage()));
-
-                        state = SparkBatchJobState.valueOf(jobResp.getState().toUpperCase());
-                        diagnostics = String.join("\n", jobResp.getLog());
-
-                        isJobActive = !isDone(state.toString());
-                    } else {
-                        isJobActive = false;
-                    }
+        final LivyBatchStateTracker tracker = LivyBatchStateTracker.getInstance(getConnectUri(), getSubmission());
 
+        // The batches page only carries the plain Livy status, so the overridden status getter is polled per job
+        return isStatusGetterOverridden()
+               ? tracker.track(getBatchId(), () -> getStatus().toBlocking().single())
+               : tracker.track(getBatchId());
+    }
 
-                    // Retry interval
-                    sleep(1000);
-                } while (isJobActive);
+    private boolean isStatusGetterOverridden() {
+        try {
+            return getClass().getMethod("getStatus").getDeclaringClass() != SparkBatchJob.class;
+        } catch (final NoSuchMethodException ignored) {
+            return false;
+        }
+    }
 
-                ob.onNext(new SimpleImmutableEntry<>(state.toString(), diagnostics));
-                ob.onCompleted();
-            } catch (final IOException ex) {
-                ob.onError(ex);
-            } catch (final InterruptedException ignored) {
-                ob.onCompleted();
-            }
-        });
+    protected Observable<SimpleImmutableEntry<String, String>> getJobDoneObservable() {
+        return pollStatus()
+                .takeUntil(status -> isDone(status.getState()))
+                .last()
+                .map(status -> new SimpleImmutableEntry<>(
+                        SparkBatchJobState.valueOf(status.getState().toUpperCase()).toString(),
+                        String.join("\n", status.getLog())));
     }
 
     protected Observable<String> getJobLogAggregationDoneObservable() {
         return getSparkJobApplicationIdObservable()
                 .flatMap(applicationId ->
-                        Observable.fromCallable(() ->
-                                getSparkJobYarnApplication(this.getYarnNMConnectUri(), applicationId))
-                                .repeatWhen(ob -> ob.delay(getDelaySeconds(), TimeUnit.SECONDS))
-                                .filter(Objects::nonNull)
-                                .takeUntil(this::isYarnAppLogAggregationDone)
+                        SparkBatchJobPollingScheduler.getInstance().poll(
+                                () -> Optional.ofNullable(
+                                        getSparkJobYarnApplication(this.getYarnNMConnectUri(), applicationId)),
+                                (last, current) -> !StringUtils.equalsIgnoreCase(
+                                        last.map(App::getLogAggregationStatus).orElse(null),
+                                        current.map(App::getLogAggregationStatus).orElse(null)),
+                                app -> app.map(this::isYarnAppLogAggregationDone).orElse(false),
+                                getPollingBackoff())
+                                .filter(Optional::isPresent)
+                                .map(Optional::get)
                                 .filter(this::isYarnAppLogAggregationDone))
                 .map(yarnApp -> yarnApp.getLogAggregationStatus().toUpperCase());
     }
@@ -949,9 +923,8 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
     public Observable<Integer> getYarnContainerLogUrlPort() {
         final int DEFAULT_YARN_CONTAINER_LOG_URL_PORT = 30060;
         return getSparkJobApplicationIdObservable()
-                .flatMap(applicationId ->
-                        Observable.fromCallable(() ->
-                                getSparkJobYarnApplication(this.getYarnNMConnectUri(), applicationId)))
+                .flatMap(applicationId -> retryByPollingScheduler(() ->
+                        getSparkJobYarnApplication(this.getYarnNMConnectUri(), applicationId)))
                 .doOnError(err -> log().warn("Error getting yarn application. " + ExceptionUtils.getStackTrace(err)))
                 .map(app -> {
                     String amHostHttpAddress = app.getAmHostHttpAddress();
@@ -1165,12 +1138,13 @@ public class SparkBatchJob implements ISparkBatchJob, ILogger {
     @NotNull
     @Override
     public Observable<String> awaitStarted() {
-        return getStatus()
+        return pollStatus()
                 .map(status -> new SimpleImmutableEntry<>(status.getState(), String.join("\n", status.getLog())))
-                .retry(getRetriesMax())
-                .repeatWhen(ob -> ob.doOnNext(ignored -> getCtrlSubject().onNext(
-                        new SparkLogLine(TOOL, Info, "The Spark job is starting...")))
-                                    .delay(getDelaySeconds(), TimeUnit.SECONDS))
+                .doOnNext(stateLogPair -> {
+                    if (!isDone(stateLogPair.getKey()) && !isRunning(stateLogPair.getKey())) {
+                        getCtrlSubject().onNext(new SparkLogLine(TOOL, Info, "The Spark job is starting..."));
+                    }
+                })
                 .takeUntil(stateLogPair -> isDone(stateLogPair.getKey()) || isRunning(stateLogPair.getKey()))
                 .filter(stateLogPair -> isDone(stateLogPair.getKey()) || isRunning(stateLogPair.getKey()))
                 .flatMap(stateLogPair -> {
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The shared polling scheduler for Spark batch job state, log and Yarn application polling.
+ *
+ * Instead of holding a sleeping thread per job, each polling is a chain of delayed tasks on a small scheduled
+ * thread pool. The delay is adaptive: it's reset to the minimum when the polled value changes, and grows
+ * exponentially up to the maximum when the value is stable, with jitter to avoid all jobs hitting the cluster at
+ * the same time.
+ */
+public final class SparkBatchJobPollingScheduler implements ILogger {
+    private static final int POLLING_THREADS = 4;
+
+    private static final SparkBatchJobPollingScheduler INSTANCE = new SparkBatchJobPollingScheduler();
+
+    @NotNull
+    private final Scheduler scheduler;
+
+    private SparkBatchJobPollingScheduler() {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        this.scheduler = Schedulers.from(Executors.newScheduledThreadPool(POLLING_THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "spark-batch-job-poller-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }));
+    }
+
+    @NotNull
+    public static SparkBatchJobPollingScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    @NotNull
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Poll the value until it's completed, the polling is cancelled once all subscribers unsubscribe.
+     *
+     * @param fetcher the blocking fetcher of the value, running in the polling threads
+     * @param isChanged the function to check if the value is changed from the previous one
+     * @param isCompleted the function to check if the value is the last one to emit
+     * @param backoff the polling delay policy
+     * @param <T> the polled value type
+     * @return the polled values observable, error if the fetcher failed more than the backoff max retries in a row
+     */
+    @NotNull
+    public <T> Observable<T> poll(@NotNull final Callable<T> fetcher,
+                                  @NotNull final Func2<T, T, Boolean> isChanged,
+                                  @NotNull final Func1<T, Boolean> isCompleted,
+                                  @NotNull final Backoff backoff) {
+        return Observable.create(subscriber -> {
+            final Scheduler.Worker worker = scheduler.createWorker();
+            subscriber.add(worker);
+
+            worker.schedule(new Action0() {
+                @Nullable
+                private T last = null;
+                private long delayMs = backoff.getMinDelayMs();
+                private int errors = 0;
+
+                @Override
+                public void call() {
+                    if (subscriber.isUnsubscribed()) {
+                        return;
+                    }
+
+                    final T current;
+                    try {
+                        current = fetcher.call();
+                        errors = 0;
+                    } catch (final Exception ex) {
+                        if (++errors > backoff.getMaxErrorRetries()) {
+                            subscriber.onError(ex);
+                            return;
+                        }
+
+                        log().debug("Got exception " + ex + " in polling, waiting for a while to try", ex);
+                        delayMs = backoff.next(delayMs);
+                        worker.schedule(this, backoff.withJitter(delayMs), TimeUnit.MILLISECONDS);
+                        return;
+                    }
+
+                    final boolean changed;
+                    final boolean completed;
+                    try {
+                        changed = last == null || isChanged.call(last, current);
+                        completed = isCompleted.call(current);
+                    } catch (final RuntimeException ex) {
+                        subscriber.onError(ex);
+                        return;
+                    }
+
+                    last = current;
+                    subscriber.onNext(current);
+
+                    if (completed) {
+                        subscriber.onCompleted();
+                        return;
+                    }
+
+                    delayMs = changed ? backoff.getMinDelayMs() : backoff.next(delayMs);
+                    worker.schedule(this, backoff.withJitter(delayMs), TimeUnit.MILLISECONDS);
+                }
+            });
+        });
+    }
+
+    /**
+     * The adaptive polling delay policy.
+     */
+    public static class Backoff {
+        private static final long MIN_BACKOFF_STEP_MS = 500;
+        private static final double JITTER_RATIO = 0.2;
+
+        private final long minDelayMs;
+        private final long maxDelayMs;
+        private final int maxErrorRetries;
+
+        /**
+         * @param minDelayMs the delay while the polled value is changing, 0 to poll the next one immediately
+         * @param maxDelayMs the max delay while the polled value is stable
+         * @param maxErrorRetries the max retries for fetching failures in a row
+         */
+        public Backoff(final long minDelayMs, final long maxDelayMs, final int maxErrorRetries) {
+            this.minDelayMs = minDelayMs;
+            this.maxDelayMs = Math.max(minDelayMs, maxDelayMs);
+            this.maxErrorRetries = maxErrorRetries;
+        }
+
+        public long getMinDelayMs() {
+            return minDelayMs;
+        }
+
+        public long getMaxDelayMs() {
+            return maxDelayMs;
+        }
+
+        public int getMaxErrorRetries() {
+            return maxErrorRetries;
+        }
+
+        long next(final long delayMs) {
+            return Math.min(maxDelayMs, Math.max(delayMs * 2, MIN_BACKOFF_STEP_MS));
+        }
+
+        long withJitter(final long delayMs) {
+            if (delayMs <= 0) {
+                return 0;
+            }
+
+            final long jitter = (long) (delayMs * JITTER_RATIO);
+
+            return delayMs - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Livy batches page response of GET /batches?from=&size=
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SparkBatchesResponse {
+    private int from;
+    private int total;
+    private List<SparkSubmitResponse> sessions;
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<SparkSubmitResponse> getSessions() {
+        return sessions == null ? Collections.emptyList() : sessions;
+    }
+}
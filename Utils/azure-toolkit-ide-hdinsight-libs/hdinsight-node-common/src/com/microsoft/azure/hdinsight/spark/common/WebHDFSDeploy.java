@@ -14,9 +14,13 @@ import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.entity.BufferedHttpEntity;
@@ -80,27 +84,34 @@ public class WebHDFSDeploy implements Deployable, ILogger {
         // 3.put redirect request with file content as setEntity
         final URI dest = getUploadDir();
         final HttpPut req = new HttpPut(dest.toString());
+        // every response is closed once its status or headers are read, so that its pooled connection is released
         return http.request(req, null, this.createDirReqParams, null)
-                .doOnNext(
-                        resp -> {
-                            if (resp.getStatusLine().getStatusCode() != 200) {
-                                Exceptions.propagate(new UnknownServiceException("Can not create directory to save artifact using webHDFS storage type"));
-                            }
-                        }
-                )
-                .map(ignored -> new HttpPut(dest.resolve(src.getName()).toString()))
+                .map(resp -> {
+                    final int statusCode = resp.getStatusLine().getStatusCode();
+                    HttpClientUtils.closeQuietly(resp);
+
+                    if (statusCode != HttpStatus.SC_OK) {
+                        throw Exceptions.propagate(new UnknownServiceException("Can not create directory to save artifact using webHDFS storage type"));
+                    }
+
+                    return new HttpPut(dest.resolve(src.getName()).toString());
+                })
                 .flatMap(put -> http.request(put, null, this.uploadReqParams, null))
-                .map(resp -> resp.getFirstHeader("Location").getValue())
-                .doOnNext(redirectedUri -> {
-                    if (StringUtils.isBlank(redirectedUri)) {
-                        Exceptions.propagate(new UnknownServiceException("Can not get valid redirect uri using webHDFS storage type"));
+                .map(resp -> {
+                    final Header location = resp.getFirstHeader("Location");
+                    HttpClientUtils.closeQuietly(resp);
+
+                    if (location == null || StringUtils.isBlank(location.getValue())) {
+                        throw Exceptions.propagate(new UnknownServiceException("Can not get valid redirect uri using webHDFS storage type"));
                     }
+
+                    return location.getValue();
                 })
                 .map(HttpPut::new)
                 .flatMap(put -> {
-                    try {
+                    try (final FileInputStream in = new FileInputStream(src)) {
                         InputStreamEntity reqEntity = new InputStreamEntity(
-                                new FileInputStream(src),
+                                in,
                                 -1,
                                 ContentType.APPLICATION_OCTET_STREAM);
                         reqEntity.setChunked(true);
@@ -110,7 +121,9 @@ public class WebHDFSDeploy implements Deployable, ILogger {
                         throw new RuntimeException(new IllegalArgumentException("Can not get local artifact when uploading" + ex.toString()));
                     }
                 })
-                .map(ignored -> {
+                .map(resp -> {
+                    HttpClientUtils.closeQuietly(resp);
+
                     try {
                         return getArtifactUploadedPath(dest.resolve(src.getName()).toString());
                     } catch (final URISyntaxException ex) {
@@ -119,6 +132,35 @@ public class WebHDFSDeploy implements Deployable, ILogger {
                 });
     }
 
+    @NotNull
+    @Override
+    public String getDestination() {
+        return destinationRootPath;
+    }
+
+    @NotNull
+    @Override
+    public Observable<Boolean> isDeployed(@NotNull String artifactUri) {
+        return Observable.defer(() -> {
+                    final String filePath = StringUtils.substringBefore(artifactUri, "?");
+
+                    return http.request(new HttpGet(filePath), null, new WebHdfsParamsBuilder("GETFILESTATUS").build(), null);
+                })
+                .map(resp -> {
+                    final int statusCode = resp.getStatusLine().getStatusCode();
+                    HttpClientUtils.closeQuietly(resp);
+
+                    if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                        return false;
+                    } else if (statusCode != HttpStatus.SC_OK) {
+                        throw Exceptions.propagate(new UnknownServiceException(
+                                "Can not get the artifact status using webHDFS storage type, code " + statusCode));
+                    }
+
+                    return true;
+                });
+    }
+
     @Nullable
     public String getArtifactUploadedPath(String rootPath) throws URISyntaxException {
         final List<NameValuePair> params = new WebHdfsParamsBuilder("OPEN").build();
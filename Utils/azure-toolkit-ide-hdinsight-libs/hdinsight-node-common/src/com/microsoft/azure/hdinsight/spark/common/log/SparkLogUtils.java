@@ -5,9 +5,11 @@
 
 package com.microsoft.azure.hdinsight.spark.common.log;
 
+import com.microsoft.azure.hdinsight.common.MessageInfoType;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -28,32 +30,113 @@ public class SparkLogUtils {
                     + log4jAllLevels.stream().collect(Collectors.joining("|")) + ")\\b",
             Pattern.CASE_INSENSITIVE);
 
+    // The level is in the head of a log4j line, such as `21/01/01 12:00:00 INFO SparkContext: ...`
+    public static final int LOG4J_LEVEL_SCAN_WINDOW = 256;
+
     public static SparkLogLine mapTypedMessageByLog4jLevels(
             final SparkLogLine previous,
             final SparkLogLine current) {
         if (current.getMessageInfoType() == Log) {
             final String msg = current.getRawLog();
-            final Matcher matcher = log4jLevelRegex.matcher(msg);
+            final String level = findLog4jLevel(msg, LOG4J_LEVEL_SCAN_WINDOW);
+            final MessageInfoType type;
 
-            if (matcher.find()) {
-                final String level = matcher.group("level");
-                switch (level.toUpperCase()) {
+            if (level != null) {
+                switch (level) {
                     case "FATAL": case "ERROR":
-                        return new SparkLogLine(current.getLogSource(), Error, msg);
+                        type = Error;
+                        break;
                     case "WARN":
-                        return new SparkLogLine(current.getLogSource(), Warning, msg);
+                        type = Warning;
+                        break;
                     case "INFO":
-                        return new SparkLogLine(current.getLogSource(), Info, msg);
+                        type = Info;
+                        break;
                     // Keep the current level by default
                     default:
                         return current;
                 }
+            } else {
+                // No level keyword found, use the previous's level
+                type = previous.getMessageInfoType();
             }
 
-            // No level keyword found, use the previous's level
-            return new SparkLogLine(current.getLogSource(), previous.getMessageInfoType(), msg);
+            // Reuse the current line if the level isn't changed
+            return type == current.getMessageInfoType() ? current : new SparkLogLine(current.getLogSource(), type, msg);
         }
 
         return current;
     }
+
+    /**
+     * Find the first log4j level keyword as a whole word, case-insensitively, which is the same as
+     * {@link #log4jLevelRegex} but without regex matching and limited in the head window.
+     *
+     * @param msg the log message
+     * @param window the max chars to scan from the head
+     * @return the upper case level found in {@link #log4jAllLevels}, null if not found
+     */
+    @Nullable
+    public static String findLog4jLevel(@Nullable final CharSequence msg, final int window) {
+        if (msg == null) {
+            return null;
+        }
+
+        final int end = Math.min(msg.length(), window);
+
+        for (int start = 0; start < end; start++) {
+            // A word starts only after a non-word char
+            if (start > 0 && isWordChar(msg.charAt(start - 1))) {
+                continue;
+            }
+
+            final String level = matchLevelAt(msg, start, end);
+            if (level != null) {
+                return level;
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static String matchLevelAt(final CharSequence msg, final int start, final int end) {
+        switch (Character.toUpperCase(msg.charAt(start))) {
+            case 'F':
+                return matchWordAt(msg, start, end, "FATAL");
+            case 'E':
+                return matchWordAt(msg, start, end, "ERROR");
+            case 'W':
+                return matchWordAt(msg, start, end, "WARN");
+            case 'I':
+                return matchWordAt(msg, start, end, "INFO");
+            case 'D':
+                return matchWordAt(msg, start, end, "DEBUG");
+            case 'T':
+                return matchWordAt(msg, start, end, "TRACE");
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static String matchWordAt(final CharSequence msg, final int start, final int end, final String word) {
+        final int wordEnd = start + word.length();
+        if (wordEnd > end) {
+            return null;
+        }
+
+        for (int i = 1; i < word.length(); i++) {
+            if (Character.toUpperCase(msg.charAt(start + i)) != word.charAt(i)) {
+                return null;
+            }
+        }
+
+        // A word ends before a non-word char, or the end of message
+        return wordEnd < msg.length() && isWordChar(msg.charAt(wordEnd)) ? null : word;
+    }
+
+    private static boolean isWordChar(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
 }
@@ -85,6 +85,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.UnknownServiceException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
 import java.util.AbstractMap.SimpleImmutableEntry;
@@ -113,9 +114,10 @@ public class JobUtils {
 
     public static void setResponse(@NotNull HttpExchange httpExchange, @NotNull String message, int code) {
         try {
-            httpExchange.sendResponseHeaders(code, message.length());
+            final byte[] content = message.getBytes(StandardCharsets.UTF_8);
+            httpExchange.sendResponseHeaders(code, content.length);
             final OutputStream stream = httpExchange.getResponseBody();
-            stream.write(message.getBytes());
+            stream.write(content);
             stream.flush();
             httpExchange.close();
         } catch (final IOException e) {
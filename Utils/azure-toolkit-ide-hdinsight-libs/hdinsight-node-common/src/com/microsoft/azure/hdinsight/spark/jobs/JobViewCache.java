@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Job View cache of a data type.
+ *
+ * The mutable values, such as the ones of running applications, are expired after write and refreshed in background
+ * after write, the stale value is returned during refreshing. The immutable values, such as the ones of finished
+ * applications, are moved into a size bounded cache without expiry, and optionally saved in the disk store to be
+ * reused after the IDE restarts.
+ *
+ * @param <K> the cache key type
+ * @param <V> the cache value type
+ */
+public class JobViewCache<K, V> implements ILogger {
+    public static final String DISK_STORE_DISABLED_PROPERTY = "azure.hdinsight.jobview.diskstore.disabled";
+
+    private static final String DISK_STORE_FOLDER = "hdinsight-job-view-cache";
+    private static final int MAX_DISK_STORE_FILES = 1000;
+    private static final int REFRESH_THREADS = 4;
+
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newFixedThreadPool(REFRESH_THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "job-view-cache-refresher");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private static final ObjectMapper DISK_STORE_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @NotNull
+    private final String name;
+
+    @NotNull
+    private final LoadingCache<K, V> mutableCache;
+
+    @NotNull
+    private final Cache<K, V> immutableCache;
+
+    @Nullable
+    private final Func2<K, V, Boolean> isImmutable;
+
+    @Nullable
+    private final Func1<K, String> diskStoreKey;
+
+    @Nullable
+    private final JavaType diskStoreType;
+
+    @NotNull
+    private final AtomicLong diskHitCount = new AtomicLong();
+
+    private JobViewCache(@NotNull Builder<K, V> builder) {
+        this.name = builder.name;
+        this.isImmutable = builder.isImmutable;
+        this.diskStoreKey = builder.diskStoreKey;
+        this.diskStoreType = builder.diskStoreType;
+
+        final CacheBuilder<Object, Object> mutableCacheBuilder = CacheBuilder.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .initialCapacity(20)
+                .expireAfterWrite(builder.expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats();
+
+        if (builder.refreshAfterWriteSeconds > 0) {
+            mutableCacheBuilder.refreshAfterWrite(builder.refreshAfterWriteSeconds, TimeUnit.SECONDS);
+        }
+
+        this.mutableCache = mutableCacheBuilder.build(CacheLoader.asyncReloading(builder.loader, REFRESH_EXECUTOR));
+        this.immutableCache = CacheBuilder.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @NotNull
+    public static <K, V> Builder<K, V> builder(@NotNull String name, @NotNull CacheLoader<K, V> loader) {
+        return new Builder<>(name, loader);
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    @NotNull
+    public V get(@NotNull K key) throws ExecutionException {
+        final V immutable = immutableCache.getIfPresent(key);
+        if (immutable != null) {
+            return immutable;
+        }
+
+        final V cached = mutableCache.getIfPresent(key);
+        if (cached == null) {
+            final V stored = readDiskStore(key);
+
+            if (stored != null) {
+                diskHitCount.incrementAndGet();
+                immutableCache.put(key, stored);
+
+                return stored;
+            }
+        }
+
+        V value = cached != null ? cached : mutableCache.get(key);
+
+        if (isImmutable != null && isImmutable.call(key, value)) {
+            if (cached != null) {
+                // The cached value may be loaded before it becomes immutable, reload it to get the final one
+                mutableCache.invalidate(key);
+                value = mutableCache.get(key);
+            }
+
+            immutableCache.put(key, value);
+            mutableCache.invalidate(key);
+            writeDiskStore(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Get the value if it's cached in memory, without loading.
+     */
+    @Nullable
+    public V getIfPresent(@NotNull K key) {
+        final V immutable = immutableCache.getIfPresent(key);
+
+        return immutable != null ? immutable : mutableCache.getIfPresent(key);
+    }
+
+    public void invalidate(@NotNull K key) {
+        mutableCache.invalidate(key);
+        immutableCache.invalidate(key);
+    }
+
+    /**
+     * Get the memory cache stats, including both mutable and immutable values
+     */
+    @NotNull
+    public CacheStats getStats() {
+        return mutableCache.stats().plus(immutableCache.stats());
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    private boolean isDiskStoreEnabled() {
+        return diskStoreKey != null && diskStoreType != null && !Boolean.getBoolean(DISK_STORE_DISABLED_PROPERTY);
+    }
+
+    @Nullable
+    private Path getDiskStorePath(@NotNull K key) {
+        final String baseDir = StringUtils.isNotBlank(CommonSettings.getSettingsBaseDir())
+                ? CommonSettings.getSettingsBaseDir()
+                : System.getProperty("user.home");
+
+        return diskStoreKey == null
+                ? null
+                : Paths.get(baseDir, DISK_STORE_FOLDER, name, DigestUtils.sha256Hex(diskStoreKey.call(key)) + ".json");
+    }
+
+    @Nullable
+    private V readDiskStore(@NotNull K key) {
+        if (!isDiskStoreEnabled()) {
+            return null;
+        }
+
+        final Path path = getDiskStorePath(key);
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try {
+            return DISK_STORE_MAPPER.readValue(path.toFile(), diskStoreType);
+        } catch (final IOException ex) {
+            log().warn("Failed to read Job View cache " + name + " from " + path, ex);
+
+            return null;
+        }
+    }
+
+    private void writeDiskStore(@NotNull K key, @NotNull V value) {
+        if (!isDiskStoreEnabled()) {
+            return;
+        }
+
+        final Path path = getDiskStorePath(key);
+        if (path == null) {
+            return;
+        }
+
+        try {
+            final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+            Files.createDirectories(path.getParent());
+            DISK_STORE_MAPPER.writeValue(tempPath.toFile(), value);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            evictDiskStore(path.getParent());
+        } catch (final IOException ex) {
+            log().warn("Failed to write Job View cache " + name + " into " + path, ex);
+        }
+    }
+
+    private void evictDiskStore(@NotNull Path dir) {
+        final File[] files = dir.toFile().listFiles((parent, fileName) -> fileName.endsWith(".json"));
+        if (files == null || files.length <= MAX_DISK_STORE_FILES) {
+            return;
+        }
+
+        Arrays.stream(files)
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .limit(files.length - MAX_DISK_STORE_FILES)
+                .forEach(File::delete);
+    }
+
+    public static class Builder<K, V> {
+        @NotNull
+        private final String name;
+
+        @NotNull
+        private final CacheLoader<K, V> loader;
+
+        private long maximumSize = 100;
+        private long expireAfterWriteSeconds = TimeUnit.MINUTES.toSeconds(10);
+        private long refreshAfterWriteSeconds = 0;
+
+        @Nullable
+        private Func2<K, V, Boolean> isImmutable;
+
+        @Nullable
+        private Func1<K, String> diskStoreKey;
+
+        @Nullable
+        private JavaType diskStoreType;
+
+        private Builder(@NotNull String name, @NotNull CacheLoader<K, V> loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(long duration, @NotNull TimeUnit unit) {
+            this.expireAfterWriteSeconds = unit.toSeconds(duration);
+            return this;
+        }
+
+        public Builder<K, V> refreshAfterWrite(long duration, @NotNull TimeUnit unit) {
+            this.refreshAfterWriteSeconds = unit.toSeconds(duration);
+            return this;
+        }
+
+        /**
+         * @param isImmutable the function to check if the loaded value won't change anymore
+         */
+        public Builder<K, V> immutableWhen(@NotNull Func2<K, V, Boolean> isImmutable) {
+            this.isImmutable = isImmutable;
+            return this;
+        }
+
+        /**
+         * Save the immutable values into disk store
+         *
+         * @param diskStoreKey the function to get the unique string of a key, which is hashed as the stored file name
+         * @param diskStoreType the Jackson type of the value
+         */
+        public Builder<K, V> diskStore(@NotNull Func1<K, String> diskStoreKey, @NotNull JavaType diskStoreType) {
+            this.diskStoreKey = diskStoreKey;
+            this.diskStoreType = diskStoreType;
+            return this;
+        }
+
+        @NotNull
+        public JobViewCache<K, V> build() {
+            return new JobViewCache<>(this);
+        }
+    }
+}
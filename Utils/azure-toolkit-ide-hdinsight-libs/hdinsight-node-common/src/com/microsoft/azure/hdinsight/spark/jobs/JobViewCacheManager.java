@@ -5,9 +5,10 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
-import com.google.common.cache.CacheBuilder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
 import com.microsoft.azure.hdinsight.common.JobViewManager;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
@@ -19,99 +20,175 @@ import com.microsoft.azure.hdinsight.sdk.rest.spark.task.Task;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.App;
 import com.microsoft.azure.hdinsight.sdk.rest.yarn.rm.ApplicationMasterLogs;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
+import rx.schedulers.Schedulers;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The Job View data caches. The data of running applications is refreshed in background and expired, while the data
+ * of finished applications is immutable, which is cached without expiry and saved into disk store.
+ */
 public class JobViewCacheManager {
-    private static final LoadingCache<ApplicationKey, List<Job>> sparkJobLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Job>>() {
+    private static final int MAX_CONCURRENT_STAGE_TASKS_FETCHING = 8;
+
+    private static final JobViewCache<ApplicationKey, App> yarnApplicationLocalCache = JobViewCache
+            .builder("yarnApp", new CacheLoader<ApplicationKey, App>() {
+                @Override
+                public App load(ApplicationKey key) throws Exception {
+                    return YarnRestUtil.getApp(key);
+                }
+            })
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .refreshAfterWrite(15, TimeUnit.SECONDS)
+            .immutableWhen((key, app) -> app.isFinished())
+            .diskStore(JobViewCacheManager::toDiskStoreKey, TypeFactory.defaultInstance().constructType(App.class))
+            .build();
+
+    private static final JobViewCache<ApplicationKey, List<Job>> sparkJobLocalCache = JobViewCache
+            .builder("sparkJobs", new CacheLoader<ApplicationKey, List<Job>>() {
                 @Override
                 public List<Job> load(ApplicationKey key) throws Exception {
                     return SparkRestUtil.getLastAttemptJobsFromApp(key);
                 }
-            });
-
-    private static final LoadingCache<ApplicationKey, List<Stage>> sparkStageLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Stage>>() {
+            })
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .immutableWhen((key, jobs) -> isApplicationFinished(key))
+            .diskStore(JobViewCacheManager::toDiskStoreKey, listTypeOf(Job.class))
+            .build();
+
+    private static final JobViewCache<ApplicationKey, List<Stage>> sparkStageLocalCache = JobViewCache
+            .builder("sparkStages", new CacheLoader<ApplicationKey, List<Stage>>() {
                 @Override
                 public List<Stage> load(ApplicationKey key) throws Exception {
                     return SparkRestUtil.getAllStageFromApp(key);
                 }
-            });
-
-    private static final LoadingCache<ApplicationKey, List<Executor>> sparkExecutorLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Executor>>() {
+            })
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .immutableWhen((key, stages) -> isApplicationFinished(key))
+            .diskStore(JobViewCacheManager::toDiskStoreKey, listTypeOf(Stage.class))
+            .build();
+
+    private static final JobViewCache<ApplicationKey, List<Executor>> sparkExecutorLocalCache = JobViewCache
+            .builder("sparkExecutors", new CacheLoader<ApplicationKey, List<Executor>>() {
                 @Override
                 public List<Executor> load(ApplicationKey key) throws Exception {
                     return SparkRestUtil.getAllExecutorFromApp(key);
                 }
-            });
-
-    private static final LoadingCache<String, List<Application>> sparkApplicationsLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<String, List<Application>>() {
+            })
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .immutableWhen((key, executors) -> isApplicationFinished(key))
+            .diskStore(JobViewCacheManager::toDiskStoreKey, listTypeOf(Executor.class))
+            .build();
+
+    private static final JobViewCache<String, List<Application>> sparkApplicationsLocalCache = JobViewCache
+            .builder("sparkApplications", new CacheLoader<String, List<Application>>() {
                 @Override
                 public List<Application> load(String key) throws Exception {
                     return SparkRestUtil.getSparkApplications(JobViewManager.getCluster(key));
                 }
-            });
+            })
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .refreshAfterWrite(30, TimeUnit.SECONDS)
+            .build();
 
-    private static final LoadingCache<ApplicationKey, List<Task>> sparkTasksSummaryLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<Task>>() {
+    private static final JobViewCache<ApplicationKey, List<Task>> sparkTasksSummaryLocalCache = JobViewCache
+            .builder("sparkTasks", new CacheLoader<ApplicationKey, List<Task>>() {
                 @Override
                 public List<Task> load(ApplicationKey key) throws Exception {
-                    List<Task> allTasks = new ArrayList<>();
-                    List<Stage> stages = sparkStageLocalCache.get(key);
-                    for (Stage stage: stages) {
-                        int stageId = stage.getStageId();
-                        int attemptedId = stage.getAttemptId();
-                        List<Task> tasks = SparkRestUtil.getSparkTasks(key, stageId, attemptedId);
-                        allTasks.addAll(tasks);
-                    }
-                    return allTasks;
+                    final List<Stage> stages = sparkStageLocalCache.get(key);
+
+                    // Fetch the tasks of stages in parallel, and keep the stages order
+                    return Observable.from(stages)
+                            .concatMapEager(stage -> Observable
+                                            .fromCallable(() -> SparkRestUtil.getSparkTasks(
+                                                    key, stage.getStageId(), stage.getAttemptId()))
+                                            .subscribeOn(Schedulers.io()),
+                                            stages.size() + 1,
+                                            MAX_CONCURRENT_STAGE_TASKS_FETCHING)
+                            .concatMapIterable(tasks -> tasks)
+                            .toList()
+                            .toBlocking()
+                            .singleOrDefault(Collections.emptyList());
                 }
-            });
-
-    private static final LoadingCache<ApplicationKey, ApplicationMasterLogs> yarnAppLogLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, ApplicationMasterLogs>() {
+            })
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .immutableWhen((key, tasks) -> isApplicationFinished(key))
+            .diskStore(JobViewCacheManager::toDiskStoreKey, listTypeOf(Task.class))
+            .build();
+
+    private static final JobViewCache<ApplicationKey, ApplicationMasterLogs> yarnAppLogLocalCache = JobViewCache
+            .builder("yarnAppLogs", new CacheLoader<ApplicationKey, ApplicationMasterLogs>() {
                 @Override
                 public ApplicationMasterLogs load(ApplicationKey key) throws Exception {
                     return JobUtils.getYarnLogs(key);
                 }
-            });
-
-    private static final LoadingCache<ApplicationKey, App> yarnApplicationLocalCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, App>() {
-                @Override
-                public App load(ApplicationKey key) throws Exception {
-                    return YarnRestUtil.getApp(key);
-                }
-            });
-
-    private static final LoadingCache<ApplicationKey, List<JobStartEventLog>> sparkJobStartEventLogCache = CacheBuilder.newBuilder()
-            .maximumSize(100)
-            .initialCapacity(20)
-            .build(new CacheLoader<ApplicationKey, List<JobStartEventLog>>() {
+            })
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .immutableWhen((key, logs) -> isApplicationFinished(key))
+            .build();
+
+    private static final JobViewCache<ApplicationKey, List<JobStartEventLog>> sparkJobStartEventLogCache = JobViewCache
+            .builder("sparkJobStartEventLogs", new CacheLoader<ApplicationKey, List<JobStartEventLog>>() {
                 @Override
                 public List<JobStartEventLog> load(ApplicationKey key) throws Exception {
                     return SparkRestUtil.getSparkEventLogs(key);
                 }
-            });
+            })
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .immutableWhen((key, eventLogs) -> isApplicationFinished(key))
+            .diskStore(JobViewCacheManager::toDiskStoreKey, listTypeOf(JobStartEventLog.class))
+            .build();
+
+    @NotNull
+    private static JavaType listTypeOf(@NotNull Class<?> elementClass) {
+        return TypeFactory.defaultInstance().constructCollectionType(List.class, elementClass);
+    }
+
+    @NotNull
+    private static String toDiskStoreKey(@NotNull ApplicationKey key) {
+        return key.getClusterConnString().toLowerCase() + "/" + key.getAppId().toLowerCase();
+    }
+
+    /**
+     * Check if the Yarn application is finished, whose Spark data won't change anymore
+     */
+    private static boolean isApplicationFinished(@NotNull ApplicationKey key) {
+        try {
+            return yarnApplicationLocalCache.get(key).isFinished();
+        } catch (final ExecutionException | RuntimeException ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the hit and miss stats of all Job View caches
+     *
+     * @return the cache name and its stats
+     */
+    @NotNull
+    public static Map<String, CacheStats> getCacheStats() {
+        final Map<String, CacheStats> stats = new LinkedHashMap<>();
+
+        Arrays.asList(yarnApplicationLocalCache,
+                      sparkJobLocalCache,
+                      sparkStageLocalCache,
+                      sparkExecutorLocalCache,
+                      sparkApplicationsLocalCache,
+                      sparkTasksSummaryLocalCache,
+                      yarnAppLogLocalCache,
+                      sparkJobStartEventLogCache)
+              .forEach(cache -> stats.put(cache.getName(), cache.getStats()));
+
+        return Collections.unmodifiableMap(stats);
+    }
 
     public static List<JobStartEventLog> getJobStartEventLogs(@NotNull ApplicationKey key) throws ExecutionException {
         return sparkJobStartEventLogCache.get(key);
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The Job View JSON response with ETag and gzip support.
+ *
+ * The serialized body is kept per value instance returned by the Job View caches, so the large lists, such as the
+ * tasks of an application, are serialized, hashed and compressed once until the cache value is refreshed. The browser
+ * revalidates with the ETag and gets 304 without body if the value isn't changed.
+ */
+public class JobViewHttpResponse {
+    // Compressing the small payloads doesn't pay off
+    private static final int GZIP_MIN_SIZE = 8 * 1024;
+
+    // Keyed by the value identity, the serialized body is released with the value evicted from the Job View caches
+    private static final Cache<Object, Body> bodyCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(200)
+            .build();
+
+    private static class Body {
+        @NotNull
+        private final byte[] content;
+
+        @NotNull
+        private final String etag;
+
+        @Nullable
+        private byte[] gzipped;
+
+        private Body(@NotNull byte[] content) {
+            this.content = content;
+            this.etag = "\"" + DigestUtils.sha1Hex(content) + "\"";
+        }
+
+        @NotNull
+        private synchronized byte[] getGzipped() throws IOException {
+            if (gzipped == null) {
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4 + 64);
+                try (final GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(content);
+                }
+
+                gzipped = compressed.toByteArray();
+            }
+
+            return gzipped;
+        }
+    }
+
+    /**
+     * Send the value in JSON, or 304 if the request's If-None-Match has the same ETag
+     *
+     * @param httpExchange the HTTP exchange to respond
+     * @param value the response value, which is expected to be got from the Job View caches
+     */
+    public static void sendJson(@NotNull HttpExchange httpExchange, @NotNull Object value) throws IOException {
+        final Body body;
+        try {
+            body = bodyCache.get(value, () -> new Body(ObjectConvertUtils.convertObjectToJsonString(value)
+                    .orElseThrow(IOException::new)
+                    .getBytes(StandardCharsets.UTF_8)));
+        } catch (final ExecutionException ex) {
+            throw new IOException("Failed to serialize the Job View response", ex.getCause());
+        }
+
+        final Headers requestHeaders = httpExchange.getRequestHeaders();
+        final Headers responseHeaders = httpExchange.getResponseHeaders();
+        responseHeaders.set("ETag", body.etag);
+        responseHeaders.set("Cache-Control", "no-cache");
+        responseHeaders.set("Vary", "Accept-Encoding");
+
+        try {
+            if (isETagMatched(requestHeaders.getFirst("If-None-Match"), body.etag)) {
+                httpExchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            responseHeaders.set("Content-Type", "application/json; charset=utf-8");
+
+            final byte[] content;
+            if (body.content.length >= GZIP_MIN_SIZE && isGzipAccepted(requestHeaders.getFirst("Accept-Encoding"))) {
+                responseHeaders.set("Content-Encoding", "gzip");
+                content = body.getGzipped();
+            } else {
+                content = body.content;
+            }
+
+            httpExchange.sendResponseHeaders(200, content.length);
+            try (final OutputStream stream = httpExchange.getResponseBody()) {
+                stream.write(content);
+            }
+        } finally {
+            httpExchange.close();
+        }
+    }
+
+    private static boolean isETagMatched(@Nullable String ifNoneMatch, @NotNull String etag) {
+        return ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    private static boolean isGzipAccepted(@Nullable String acceptEncoding) {
+        return acceptEncoding != null && Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.trim().toLowerCase())
+                .anyMatch(coding -> coding.equals("gzip")
+                        || (coding.startsWith("gzip;") && !coding.replace(" ", "").endsWith("q=0")));
+    }
+}
@@ -5,23 +5,38 @@
 
 package com.microsoft.azure.hdinsight.spark.jobs;
 
-import com.microsoft.azuretools.azurecommons.helpers.StringHelper;
-import com.microsoft.tooling.msservices.components.DefaultLoader;
-import com.sun.net.httpserver.HttpExchange;
+import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * The embedded Job View HTTP server.
+ *
+ * The handlers block on the cluster REST calls, so each request runs in its own thread: a virtual thread if the
+ * running JVM supports it, or a thread of an elastic pool which grows up to {@value #MAX_REQUEST_THREADS} threads and
+ * shrinks when idle. A slow request, such as loading the tasks of a large application, won't block the others.
+ */
 public class JobViewHttpServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobViewHttpServer.class);
     private static HttpServer server;
-    private static final int NUMBER_OF_THREADS = 50;
+    private static final int BACKLOG = 50;
+    private static final int MAX_REQUEST_THREADS = 200;
     private static ExecutorService executorService;
+    private static final JobViewRouteMetrics routeMetrics = new JobViewRouteMetrics();
     private static boolean isEnabled = false;
     private static int port = -1;
 
@@ -47,6 +62,44 @@ public class JobViewHttpServer {
         return port;
     }
 
+    /**
+     * @return the request latency per route since the IDE started
+     */
+    @NotNull
+    public static Map<String, JobViewRouteMetrics.RouteLatency> getRouteLatencies() {
+        return routeMetrics.getRouteLatencies();
+    }
+
+    @NotNull
+    private static ExecutorService createRequestExecutor() {
+        try {
+            // Virtual thread per request is available since Java 21, look it up at runtime since the library is
+            // compiled for older Java
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException ignored) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_REQUEST_THREADS,
+                    MAX_REQUEST_THREADS,
+                    30,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "job-view-http-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+
+            return executor;
+        }
+    }
+
+    private static void createContext(@NotNull String path, @NotNull HttpHandler handler) {
+        server.createContext(path, handler).getFilters().add(routeMetrics);
+    }
+
     public synchronized static void initialize() {
         if (isEnabled) {
             return;
@@ -60,21 +113,27 @@ public class JobViewHttpServer {
             InetSocketAddress socketAddress = new InetSocketAddress(s.getLocalPort());
             port = socketAddress.getPort();
 
-            server = HttpServer.create(socketAddress, NUMBER_OF_THREADS);
+            server = HttpServer.create(socketAddress, BACKLOG);
 
-            server.createContext("/try", (httpExchange) -> {
+            createContext("/try", (httpExchange) -> {
                     httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
                     JobUtils.setResponse(httpExchange, "Connect Successfully");
             });
-            server.createContext("/applications", new SparkJobHttpHandler());
-            server.createContext("/apps", new YarnJobHttpHandler());
-            server.createContext("/actions", new ActionHttpHandler());
+            createContext("/applications", new SparkJobHttpHandler());
+            createContext("/apps", new YarnJobHttpHandler());
+            createContext("/actions", new ActionHttpHandler());
+            server.createContext("/metrics", (httpExchange) -> {
+                    httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+                    JobUtils.setResponse(httpExchange, ObjectConvertUtils.convertObjectToJsonString(getRouteLatencies())
+                                                                         .orElse("{}"));
+            });
 
-            executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+            executorService = createRequestExecutor();
             server.setExecutor(executorService);
             server.start();
             isEnabled = true;
         } catch (IOException e) {
+            LOGGER.warn("Failed to start Job View HTTP server", e);
         }
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.jobs;
+
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Job View HTTP server filter to measure the request latency per route, which is the request path without query.
+ */
+public class JobViewRouteMetrics extends Filter {
+    // Bound the routes recorded, in case of unexpected paths requested
+    private static final int MAX_ROUTES = 100;
+
+    @NotNull
+    private final ConcurrentMap<String, RouteLatency> routes = new ConcurrentHashMap<>();
+
+    public static class RouteLatency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLong lastNanos = new AtomicLong();
+
+        private void record(long nanos, boolean isFailed) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            lastNanos.set(nanos);
+
+            if (isFailed) {
+                failureCount.increment();
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getFailureCount() {
+            return failureCount.sum();
+        }
+
+        public long getAverageMillis() {
+            final long requests = count.sum();
+
+            return requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / requests);
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        public long getLastMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(lastNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, failures=%d, avg=%dms, max=%dms, last=%dms",
+                    getCount(), getFailureCount(), getAverageMillis(), getMaxMillis(), getLastMillis());
+        }
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        final long start = System.nanoTime();
+        boolean isFailed = true;
+
+        try {
+            chain.doFilter(exchange);
+            isFailed = exchange.getResponseCode() >= 500;
+        } finally {
+            record(exchange.getRequestURI().getPath(), System.nanoTime() - start, isFailed);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Job View request latency per route";
+    }
+
+    private void record(@NotNull String route, long nanos, boolean isFailed) {
+        RouteLatency latency = routes.get(route);
+
+        if (latency == null) {
+            latency = routes.size() < MAX_ROUTES
+                    ? routes.computeIfAbsent(route, path -> new RouteLatency())
+                    : routes.computeIfAbsent("<others>", path -> new RouteLatency());
+        }
+
+        latency.record(nanos, isFailed);
+    }
+
+    /**
+     * @return the route and its latency, sorted by the route
+     */
+    @NotNull
+    public Map<String, RouteLatency> getRouteLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(routes));
+    }
+}
@@ -6,7 +6,6 @@
 package com.microsoft.azure.hdinsight.spark.jobs;
 
 import com.microsoft.azure.hdinsight.sdk.common.HDIException;
-import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.Application;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.YarnAppWithJobs;
 import com.microsoft.azure.hdinsight.sdk.rest.spark.event.JobStartEventLog;
@@ -22,7 +21,6 @@ import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
 public class SparkJobHttpHandler implements HttpHandler {
@@ -36,10 +34,10 @@ public class SparkJobHttpHandler implements HttpHandler {
             if (path.equalsIgnoreCase("/applications/") && requestDetail.getAppId().equalsIgnoreCase("0")) {
                 try {
                     List<Application> applications = SparkRestUtil.getSparkApplications(requestDetail.getCluster());
-                    Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(applications);
-                    JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
+                    JobViewHttpResponse.sendJson(httpExchange, applications);
                 } catch (HDIException e) {
                     DefaultLoader.getUIHelper().logError("get applications list error", e);
+                    JobUtils.setResponse(httpExchange, "get applications list error", 500);
                 }
             } else if (path.contains("application_graph")) {
                 ApplicationKey key = new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId());
@@ -47,20 +45,16 @@ public class SparkJobHttpHandler implements HttpHandler {
                 App app = JobViewCacheManager.getYarnApp(key);
                 List<JobStartEventLog> jobStartEventLogs = JobViewCacheManager.getJobStartEventLogs(key);
                 YarnAppWithJobs yarnAppWithJobs = new YarnAppWithJobs(app, jobs, jobStartEventLogs);
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(yarnAppWithJobs);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
+                JobViewHttpResponse.sendJson(httpExchange, yarnAppWithJobs);
             } else if (path.contains("stages_summary")) {
                 List<Stage> stages = JobViewCacheManager.getStages(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(stages);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
+                JobViewHttpResponse.sendJson(httpExchange, stages);
             } else if (path.contains("executors_summary")) {
                 List<Executor> executors = JobViewCacheManager.getExecutors(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(executors);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
+                JobViewHttpResponse.sendJson(httpExchange, executors);
             } else if (path.contains("tasks_summary")) {
                 List<Task> tasks = JobViewCacheManager.getTasks(new ApplicationKey(requestDetail.getCluster(), requestDetail.getAppId()));
-                Optional<String> responseString = ObjectConvertUtils.convertObjectToJsonString(tasks);
-                JobUtils.setResponse(httpExchange, responseString.orElseThrow(IOException::new));
+                JobViewHttpResponse.sendJson(httpExchange, tasks);
             }
         } catch (ExecutionException e) {
             JobUtils.setResponse(httpExchange, e.getMessage(), 500);
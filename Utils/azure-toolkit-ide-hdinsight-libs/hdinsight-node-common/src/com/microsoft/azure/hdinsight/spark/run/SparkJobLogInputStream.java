@@ -5,30 +5,64 @@
 
 package com.microsoft.azure.hdinsight.spark.run;
 
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.spark.common.ISparkBatchJob;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Optional;
 
-import static java.lang.Thread.sleep;
+/**
+ * The Spark job log input stream, which fetches the log slices incrementally in background into a fixed capacity
+ * ring buffer.
+ *
+ * The log offset is kept in bytes of the fetched UTF-8 log, and each fetch asks for no more than the free space of
+ * the buffer, so the memory is bounded however large the log is. When there is no new log, the wait between fetches
+ * grows from {@value #MIN_FETCH_INTERVAL_MS} ms up to {@value #MAX_FETCH_INTERVAL_MS} ms; when a fetch fills the
+ * asked size, which means the stream is behind the log tail, the next fetch is sent as soon as there is free space
+ * to catch up.
+ */
+public class SparkJobLogInputStream extends InputStream implements ILogger {
+    private static final int DEFAULT_BUFFER_CAPACITY = 1024 * 1024;
+    private static final int MIN_FETCH_SIZE = 4 * 1024;
+    private static final long MIN_FETCH_INTERVAL_MS = 500;
+    private static final long MAX_FETCH_INTERVAL_MS = 10_000;
 
-public class SparkJobLogInputStream extends InputStream {
     @NotNull
     private String logType;
     @Nullable
     private ISparkBatchJob sparkBatchJob;
 
-    private long offset = 0;
     @NotNull
-    private byte[] buffer = new byte[0];
-    private int bufferPos;
+    private final Object bufferLock = new Object();
+
+    // The ring buffer, guarded by the buffer lock
+    @NotNull
+    private final byte[] buffer;
+    private int bufferHead = 0;
+    private int bufferSize = 0;
+
+    // The fetching states, guarded by the buffer lock
+    private long offset = 0;
+    private boolean isFetching = false;
+    private long fetchInterval = 0;
+    private long nextFetchTime = 0;
+    private boolean isClosed = false;
 
     public SparkJobLogInputStream(@NotNull String logType) {
+        this(logType, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    public SparkJobLogInputStream(@NotNull String logType, int bufferCapacity) {
         this.logType = logType;
+        this.buffer = new byte[Math.max(MIN_FETCH_SIZE, bufferCapacity)];
     }
 
     public ISparkBatchJob attachJob(@NotNull ISparkBatchJob sparkJob) {
@@ -51,35 +85,151 @@ public class SparkJobLogInputStream extends InputStream {
         return Optional.ofNullable(sparkBatchJob);
     }
 
+    /**
+     * Get the byte offset of the log fetched into the buffer
+     */
+    public long getOffset() {
+        synchronized (bufferLock) {
+            return offset;
+        }
+    }
+
     @Override
     public int read() throws IOException {
-        if (bufferPos >= buffer.length) {
-            throw new IOException("Beyond the buffer end, needs a new log fetch");
+        final byte[] one = new byte[1];
+
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    /**
+     * Read the buffered log without waiting for the full length, only wait when nothing is buffered
+     */
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
         }
 
-        return buffer[bufferPos++];
+        synchronized (bufferLock) {
+            while (bufferSize == 0) {
+                if (isClosed) {
+                    return -1;
+                }
+
+                fetchIfDue();
+
+                try {
+                    bufferLock.wait(Math.max(MIN_FETCH_INTERVAL_MS, nextFetchTime - System.currentTimeMillis()));
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted in waiting for " + getLogType() + " log");
+                }
+            }
+
+            final int readLen = Math.min(len, bufferSize);
+            final int firstPart = Math.min(readLen, buffer.length - bufferHead);
+            System.arraycopy(buffer, bufferHead, b, off, firstPart);
+            System.arraycopy(buffer, 0, b, off + firstPart, readLen - firstPart);
+
+            bufferHead = (bufferHead + readLen) % buffer.length;
+            bufferSize -= readLen;
+
+            fetchIfDue();
+
+            return readLen;
+        }
     }
 
+    /**
+     * Get the buffered log size without blocking, and start a background fetch if it's due
+     */
     @Override
     public int available() throws IOException {
-        if (bufferPos >= buffer.length) {
-            return fetchLog(offset, -1)
-                    .map(sliceOffsetPair -> {
-                        buffer = sliceOffsetPair.getKey().getBytes();
-                        bufferPos = 0;
-                        offset = sliceOffsetPair.getValue() + sliceOffsetPair.getKey().length();
-
-                        return buffer.length;
-                    }).orElseGet(() -> {
-                        try {
-                            sleep(3000);
-                        } catch (InterruptedException ignore) { }
-
-                        return 0;
-                    });
-        } else {
-            return buffer.length - bufferPos;
+        synchronized (bufferLock) {
+            fetchIfDue();
+
+            return bufferSize;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (bufferLock) {
+            isClosed = true;
+            bufferLock.notifyAll();
+        }
+
+        super.close();
+    }
+
+    private void fetchIfDue() {
+        if (isFetching || isClosed || !getAttachedJob().isPresent()) {
+            return;
+        }
+
+        final int free = buffer.length - bufferSize;
+        if (free < MIN_FETCH_SIZE || System.currentTimeMillis() < nextFetchTime) {
+            return;
         }
+
+        isFetching = true;
+        final long fetchOffset = offset;
+
+        Observable.fromCallable(() -> fetchLog(fetchOffset, free))
+                .subscribeOn(Schedulers.io())
+                .subscribe(slice -> onFetched(slice.orElse(null), free), this::onFetchFailed);
+    }
+
+    private void onFetched(@Nullable SimpleImmutableEntry<String, Long> sliceOffsetPair, int fetchSize) {
+        synchronized (bufferLock) {
+            isFetching = false;
+
+            final byte[] slice = sliceOffsetPair == null
+                    ? new byte[0]
+                    : sliceOffsetPair.getKey().getBytes(StandardCharsets.UTF_8);
+            // The log server may ignore the end, only take the part fitting the buffer and fetch the rest later
+            final int len = Math.min(slice.length, buffer.length - bufferSize);
+
+            if (sliceOffsetPair == null || len == 0) {
+                backOff();
+                return;
+            }
+
+            final int tail = (bufferHead + bufferSize) % buffer.length;
+            final int firstPart = Math.min(len, buffer.length - tail);
+            System.arraycopy(slice, 0, buffer, tail, firstPart);
+            System.arraycopy(slice, firstPart, buffer, 0, len - firstPart);
+            bufferSize += len;
+
+            offset = sliceOffsetPair.getValue() + len;
+
+            if (len >= fetchSize) {
+                // Behind the log tail, catch up without waiting
+                fetchInterval = 0;
+                nextFetchTime = 0;
+            } else {
+                fetchInterval = MIN_FETCH_INTERVAL_MS;
+                nextFetchTime = System.currentTimeMillis() + fetchInterval;
+            }
+
+            bufferLock.notifyAll();
+            fetchIfDue();
+        }
+    }
+
+    private void onFetchFailed(@NotNull Throwable err) {
+        log().debug("Failed to fetch Spark job " + getLogType() + " log at offset " + getOffset(), err);
+
+        synchronized (bufferLock) {
+            isFetching = false;
+            backOff();
+        }
+    }
+
+    private void backOff() {
+        fetchInterval = Math.min(MAX_FETCH_INTERVAL_MS, Math.max(MIN_FETCH_INTERVAL_MS, fetchInterval * 2));
+        nextFetchTime = System.currentTimeMillis() + fetchInterval;
+        bufferLock.notifyAll();
     }
 
     @NotNull
@@ -34,7 +34,10 @@ public class FunctionPortForwarder extends AbstractPortForwarder {
     }
 
     @Override
-    public void startForward(int localPort) {
+    public synchronized void startForward(int localPort) {
+        if (isForwarding()) {
+            return; // the function is being pinged already
+        }
         target.ping();
         super.startForward(localPort);
         // ping function repeatedly otherwise the connection will lose.
@@ -16,6 +16,7 @@ import com.microsoft.azure.toolkit.lib.common.utils.Debouncer;
 import com.microsoft.azure.toolkit.lib.common.utils.TailingDebouncer;
 import com.microsoft.azure.toolkit.lib.common.view.IView;
 import lombok.*;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -23,11 +24,14 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+@Slf4j
 @ToString(onlyExplicitlyIncluded = true)
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Node<D> {
@@ -77,6 +81,12 @@ public class Node<D> {
     private final AtomicReference<View> view = new AtomicReference<>();
     private final Debouncer refreshViewLater = new TailingDebouncer(this::refreshView, 500);
     private final Debouncer refreshChildrenLater = new TailingDebouncer(this::refreshChildren, 500);
+    // the load in flight, which is cancelled and replaced by a newer refresh
+    private final AtomicReference<NodeLoadScheduler.Load<List<Node<?>>>> loading = new AtomicReference<>();
+    // generation of the latest children load, the result of an older load is discarded. guarded by `children`.
+    private long loadGeneration = 0;
+    @Getter
+    private final NodeLoadScheduler.LoadStats loadStats = new NodeLoadScheduler.LoadStats();
     @Nullable
     private Boolean resetChildrenLater; // for debouncing `refreshChildren`
 
@@ -257,12 +267,22 @@ public class Node<D> {
 
     public List<Node<?>> buildChildren() {
         try {
-            return this.childrenBuilders.stream().flatMap((builder) -> builder.build(this)).collect(Collectors.toList());
+            if (this.childrenBuilders.size() < 2) {
+                return this.childrenBuilders.stream().flatMap((builder) -> builder.build(this)).collect(Collectors.toList());
+            }
+            // independent builders are run in parallel
+            final List<Callable<List<Node<?>>>> tasks = this.childrenBuilders.stream()
+                .<Callable<List<Node<?>>>>map(builder -> () -> builder.build(this).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+            return NodeLoadScheduler.getInstance().invokeAll(tasks).stream().flatMap(List::stream).collect(Collectors.toList());
         } catch (final Exception e) {
             final Throwable root = ExceptionUtils.getRootCause(e);
             if (!(root instanceof InterruptedException)) {
                 AzureMessager.getMessager().error(e);
             }
+            // no children are returned on failure, which would be taken as a succeeded load otherwise
+            NodeLoadScheduler.getInstance().reportOutcome(root instanceof InterruptedException ?
+                NodeLoadScheduler.Outcome.CANCELLED : NodeLoadScheduler.Outcome.FAILED);
             return Collections.emptyList();
         }
     }
@@ -286,12 +306,35 @@ public class Node<D> {
     }
 
     @AzureOperation(value = "internal/$resource.list_children.node", params = "this.getLabel()", source = "this.getValue()")
-    protected synchronized void refreshChildren() {
+    protected void refreshChildren() {
         final boolean incremental = BooleanUtils.isFalse(this.resetChildrenLater);
         this.view.compareAndSet(null, new View(AzureIcons.Common.REFRESH_ICON, this.buildLabel()));
         this.view.get().setIcon(AzureIcons.Common.REFRESH_ICON);
         this.rerenderView();
-        this.children.set(this.buildChildren());
+        final long generation;
+        synchronized (this.children) {
+            generation = ++this.loadGeneration;
+        }
+        final NodeLoadScheduler.Load<List<Node<?>>> load = NodeLoadScheduler.getInstance().submit(this, this::buildChildren);
+        Optional.ofNullable(this.loading.getAndSet(load)).ifPresent(NodeLoadScheduler.Load::cancel);
+        final List<Node<?>> children;
+        try {
+            children = load.await();
+        } catch (final ExecutionException e) {
+            AzureMessager.getMessager().error(e.getCause());
+            this.view.set(this.buildView());
+            this.rerenderView();
+            return;
+        } finally {
+            this.loading.compareAndSet(load, null);
+            log.debug("children of node {} are loaded, stats: {}", this.value, this.loadStats);
+        }
+        synchronized (this.children) {
+            if (Objects.isNull(children) || load.isCancelled() || generation != this.loadGeneration) {
+                return; // cancelled or finished just when replaced by a newer refresh
+            }
+            this.children.set(children);
+        }
         this.rerenderChildren(incremental);
         this.view.set(this.buildView());
         this.rerenderView();
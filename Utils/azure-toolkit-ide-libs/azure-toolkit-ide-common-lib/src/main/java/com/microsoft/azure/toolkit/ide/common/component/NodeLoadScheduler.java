@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.ide.common.component;
+
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler of the children loading of explorer nodes.
+ * - loads of nodes of the same service type, i.e. the type of node value, are limited to {@link #CONCURRENCY} at the same time,
+ * the rest are queued per type without occupying threads.
+ * - loads run on pooled threads of {@link AzureTaskManager}, and a queued load is started by the thread awaiting it, so that the
+ * operation context of the submitter is kept.
+ * - a load can be cancelled, which interrupts the loading thread, so that a newer refresh of the same node can replace it.
+ * - the independent tasks of one load, e.g. children builders of a node, can run in parallel by {@link #invokeAll(List)}.
+ * - the outcome of a load is recorded into the {@link LoadStats} of the node when the load finishes, a loader which handles its
+ * own failures (e.g. {@link Node#buildChildren()}) reports the outcome by {@link #reportOutcome(Outcome)}.
+ */
+public class NodeLoadScheduler {
+    public static final String CONCURRENCY_PROPERTY = "azure.toolkit.explorer.load_concurrency";
+    private static final int CONCURRENCY = Math.max(1, Integer.getInteger(CONCURRENCY_PROPERTY, 4));
+    @Getter
+    private static final NodeLoadScheduler instance = new NodeLoadScheduler();
+
+    private final ConcurrentHashMap<String, TypeQueue> queues = new ConcurrentHashMap<>();
+    // service types whose slot is held by current thread, nested loads of the same type won't take a slot again to avoid deadlock.
+    private final ThreadLocal<Set<String>> heldTypes = ThreadLocal.withInitial(HashSet::new);
+    // outcome reported by the running loader of current thread
+    private final ThreadLocal<Outcome> reportedOutcome = new ThreadLocal<>();
+
+    /**
+     * Submit the load of a node, which is run when a slot of the node's service type is available.
+     */
+    @Nonnull
+    public <T> Load<T> submit(@Nonnull Node<?> node, @Nonnull Callable<T> loader) {
+        final String type = node.getValue().getClass().getName();
+        final TypeQueue queue = this.heldTypes.get().contains(type) ? null : this.queues.computeIfAbsent(type, t -> new TypeQueue());
+        final Load<T> load = new Load<>(this, queue, node.getLoadStats(), () -> {
+            this.heldTypes.get().add(type);
+            try {
+                return loader.call();
+            } finally {
+                this.heldTypes.get().remove(type);
+            }
+        });
+        if (Objects.isNull(queue) || queue.enqueue(load)) {
+            load.start();
+        }
+        return load;
+    }
+
+    /**
+     * Report the outcome of the load running on current thread, which overrides the outcome inferred from the result of the
+     * loader, e.g. a loader returns an empty result on failure.
+     */
+    public void reportOutcome(@Nonnull Outcome outcome) {
+        this.reportedOutcome.set(outcome);
+    }
+
+    /**
+     * Run the tasks in parallel and wait for all of them, the running tasks are cancelled if the waiting is interrupted.
+     *
+     * @return results in the order of tasks
+     */
+    @Nonnull
+    public <T> List<T> invokeAll(@Nonnull List<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        final Set<String> types = new HashSet<>(this.heldTypes.get());
+        final List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            final FutureTask<T> future = new FutureTask<>(() -> {
+                this.heldTypes.get().addAll(types); // inherit the slots held by the parent load
+                try {
+                    return task.call();
+                } finally {
+                    this.heldTypes.get().removeAll(types);
+                }
+            });
+            futures.add(future);
+            AzureTaskManager.getInstance().runOnPooledThread(future);
+        }
+        try {
+            final List<T> results = new ArrayList<>(tasks.size());
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    public static class Load<T> {
+        private final NodeLoadScheduler scheduler;
+        // queue of the service type, null if the load doesn't take a slot
+        @Nullable
+        private final TypeQueue queue;
+        private final LoadStats stats;
+        private final FutureTask<T> future;
+        private boolean permitted;
+        private boolean started = false;
+        private boolean awaited = false;
+
+        private Load(@Nonnull NodeLoadScheduler scheduler, @Nullable TypeQueue queue, @Nonnull LoadStats stats, @Nonnull Callable<T> loader) {
+            this.scheduler = scheduler;
+            this.queue = queue;
+            this.stats = stats;
+            this.future = new FutureTask<>(loader);
+            this.permitted = Objects.isNull(queue);
+        }
+
+        public boolean isCancelled() {
+            return this.future.isCancelled();
+        }
+
+        public void cancel() {
+            this.future.cancel(true);
+            if (Objects.nonNull(this.queue)) {
+                this.queue.remove(this); // or the awaiting thread passes the slot on if it's permitted but not started
+            }
+            synchronized (this) {
+                this.notifyAll();
+            }
+        }
+
+        /**
+         * @return result of the load, or {@code null} if the load is cancelled.
+         */
+        @Nullable
+        public T await() throws ExecutionException {
+            try {
+                final boolean permitted;
+                synchronized (this) {
+                    this.awaited = true;
+                    while (!this.permitted && !this.future.isCancelled()) {
+                        this.wait();
+                    }
+                    permitted = this.permitted;
+                }
+                if (permitted) {
+                    this.start();
+                }
+                return this.future.get();
+            } catch (final CancellationException e) {
+                return null;
+            } catch (final InterruptedException e) {
+                this.cancel();
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /**
+         * called with the slot released by another load of the same type, the load is started by the awaiting thread if any.
+         */
+        private void permit() {
+            synchronized (this) {
+                this.permitted = true;
+                if (this.awaited) {
+                    this.notifyAll();
+                    return;
+                }
+            }
+            this.start();
+        }
+
+        private void start() {
+            synchronized (this) {
+                if (this.started) {
+                    return;
+                }
+                this.permitted = true;
+                this.started = true;
+            }
+            if (this.future.isCancelled()) {
+                this.release();
+                return;
+            }
+            AzureTaskManager.getInstance().runOnPooledThread(() -> {
+                this.scheduler.reportedOutcome.remove();
+                final long start = System.nanoTime();
+                try {
+                    this.future.run();
+                    this.stats.record(System.nanoTime() - start, this.getOutcome());
+                } finally {
+                    this.scheduler.reportedOutcome.remove();
+                    this.release();
+                }
+            });
+        }
+
+        /**
+         * called after the loader is run, the interrupted flag is not checked since it's cleared by the loader usually.
+         */
+        @Nonnull
+        private Outcome getOutcome() {
+            if (this.future.isCancelled()) {
+                return Outcome.CANCELLED;
+            }
+            final Outcome reported = this.scheduler.reportedOutcome.get();
+            if (Objects.nonNull(reported)) {
+                return reported;
+            }
+            try {
+                this.future.get();
+                return Outcome.SUCCEEDED;
+            } catch (final ExecutionException e) {
+                return e.getCause() instanceof InterruptedException ? Outcome.CANCELLED : Outcome.FAILED;
+            } catch (final InterruptedException | CancellationException e) {
+                return Outcome.CANCELLED;
+            }
+        }
+
+        private void release() {
+            if (Objects.nonNull(this.queue)) {
+                this.queue.release();
+            }
+        }
+    }
+
+    /**
+     * Loads of a service type, at most {@link #CONCURRENCY} of them run at the same time, the rest wait in order.
+     */
+    private static class TypeQueue {
+        private final Deque<Load<?>> pending = new ArrayDeque<>();
+        private int running = 0;
+
+        /**
+         * @return {@code true} if a slot is taken, otherwise the load is queued.
+         */
+        private synchronized boolean enqueue(@Nonnull Load<?> load) {
+            if (this.running < CONCURRENCY) {
+                this.running++;
+                return true;
+            }
+            this.pending.addLast(load);
+            return false;
+        }
+
+        private synchronized boolean remove(@Nonnull Load<?> load) {
+            return this.pending.remove(load);
+        }
+
+        /**
+         * pass the slot to the next queued load if any.
+         */
+        private void release() {
+            final Load<?> next;
+            synchronized (this) {
+                next = this.pending.pollFirst();
+                if (Objects.isNull(next)) {
+                    this.running--;
+                }
+            }
+            if (Objects.nonNull(next)) {
+                next.permit();
+            }
+        }
+    }
+
+    public enum Outcome {
+        SUCCEEDED, FAILED, CANCELLED
+    }
+
+    /**
+     * Load duration metrics of a node.
+     */
+    @ToString
+    public static class LoadStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong lastNanos = new AtomicLong();
+
+        void record(long nanos, @Nonnull Outcome outcome) {
+            this.count.incrementAndGet();
+            if (outcome == Outcome.FAILED) {
+                this.failed.incrementAndGet();
+            } else if (outcome == Outcome.CANCELLED) {
+                this.cancelled.incrementAndGet();
+            }
+            this.totalNanos.addAndGet(nanos);
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+            this.lastNanos.set(nanos);
+        }
+
+        public long getCount() {
+            return this.count.get();
+        }
+
+        public long getFailedCount() {
+            return this.failed.get();
+        }
+
+        public long getCancelledCount() {
+            return this.cancelled.get();
+        }
+
+        public long getAverageMillis() {
+            final long count = this.count.get();
+            return count == 0 ? 0 : this.totalNanos.get() / count / 1_000_000;
+        }
+
+        public long getMaxMillis() {
+            return this.maxNanos.get() / 1_000_000;
+        }
+
+        public long getLastMillis() {
+            return this.lastNanos.get() / 1_000_000;
+        }
+    }
+}
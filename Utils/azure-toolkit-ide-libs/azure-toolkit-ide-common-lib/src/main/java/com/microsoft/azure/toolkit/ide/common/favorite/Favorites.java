@@ -6,6 +6,7 @@
 package com.microsoft.azure.toolkit.ide.common.favorite;
 
 import com.azure.core.http.rest.Page;
+import com.azure.core.management.exception.ManagementException;
 import com.azure.resourcemanager.resources.fluentcore.arm.ResourceId;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -33,11 +34,15 @@ import com.microsoft.azure.toolkit.lib.common.model.Subscription;
 import com.microsoft.azure.toolkit.lib.common.model.page.ItemPage;
 import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -48,12 +53,20 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.None, AbstractAzResource<?, ?, ?>> {
@@ -64,7 +77,19 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
     @Getter
     private static final Favorites instance = new Favorites();
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int RESOLVE_CONCURRENCY = 8;
     List<AbstractAzResource<?, ?, ?>> favorites = new LinkedList<>();
+    // resolved favorites by lower-cased id, empty if the resource doesn't exist anymore.
+    private final Map<String, Optional<AbstractAzResource<?, ?, ?>>> resolved = new ConcurrentHashMap<>();
+    private final Set<String> resolving = ConcurrentHashMap.newKeySet();
+    // favorites failed to resolve (not including the deleted ones), which are retried on explicit refresh only.
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    // groups of favorites to resolve, drained by at most RESOLVE_CONCURRENCY pooled tasks.
+    private final Queue<Runnable> resolveQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger resolveWorkers = new AtomicInteger();
+    // last persisted snapshot of the favorites by lower-cased id, used to render the unresolved ones.
+    private final Map<String, SnapshotEntry> snapshots = new ConcurrentHashMap<>();
 
     private Favorites() {
         super(NAME, AzResource.NONE);
@@ -79,6 +104,17 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
     public synchronized void clear() {
         super.clear();
         this.favorites.clear();
+        this.resolved.clear();
+        this.failed.clear();
+        this.snapshots.clear();
+    }
+
+    @Override
+    public void refresh() {
+        // resolve all favorites again on explicit refresh
+        Optional.ofNullable(this.resolved).ifPresent(Map::clear);
+        Optional.ofNullable(this.failed).ifPresent(Set::clear);
+        super.refresh();
     }
 
     @Nonnull
@@ -107,17 +143,38 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
         return loadResource(LOCAL);
     }
 
+    /**
+     * Load the favorites without waiting for remote lookups: the resolved ones are returned directly, the ones existing
+     * in the last snapshot are initialized from their ids and rendered with the name, type and label of the snapshot
+     * before resolved, the unresolved ones are resolved in background and streamed into the favorites node by refreshing
+     * it when each group is resolved.
+     */
     protected List<AbstractAzResource<?, ?, ?>> loadResource(final String key) {
+        final List<String> ids = loadIds(key);
+        final Map<String, SnapshotEntry> snapshot = loadSnapshot(key);
+        this.snapshots.putAll(snapshot);
+        final List<String> unresolved = ids.stream().filter(id -> !this.resolved.containsKey(id) && !this.failed.contains(id))
+                .collect(Collectors.toList());
+        if (!unresolved.isEmpty()) {
+            this.resolveLater(key, unresolved);
+        }
+        return ids.stream().map(id -> {
+            final Optional<AbstractAzResource<?, ?, ?>> resource = this.resolved.get(id);
+            if (Objects.nonNull(resource)) {
+                return resource.orElse(null);
+            }
+            return snapshot.containsKey(id) ? initFromSnapshot(snapshot.get(id)) : null;
+        }).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Nonnull
+    private List<String> loadIds(final String key) {
         final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
         final String favorites = store.getProperty(this.getName(), key);
         if (StringUtils.isNotBlank(favorites)) {
-            final ObjectMapper mapper = new ObjectMapper();
             try {
-                return new LinkedList<>(Arrays.asList(mapper.readValue(favorites, String[].class))).stream()
-                        .map(String::toLowerCase).distinct()
-                        .map(id -> Azure.az().getById(id))
-                        .filter(Objects::nonNull)
-                        .map(c -> ((AbstractAzResource<?, ?, ?>) c)).collect(Collectors.toList());
+                return Arrays.stream(mapper.readValue(favorites, String[].class))
+                        .map(String::toLowerCase).distinct().collect(Collectors.toList());
             } catch (final JsonProcessingException ex) {
                 AzureMessager.getMessager().warning(String.format("failed to load favorites with key %s.", key));
             }
@@ -125,6 +182,131 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
         return Collections.emptyList();
     }
 
+    @Nonnull
+    private Map<String, SnapshotEntry> loadSnapshot(final String key) {
+        final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
+        final String snapshot = store.getProperty(this.getName(), key + SNAPSHOT_SUFFIX);
+        if (StringUtils.isNotBlank(snapshot)) {
+            try {
+                return Arrays.stream(mapper.readValue(snapshot, SnapshotEntry[].class))
+                        .collect(Collectors.toMap(e -> e.getId().toLowerCase(), e -> e, (a, b) -> a));
+            } catch (final JsonProcessingException ex) {
+                // e.g. snapshot of ids only persisted by older versions, which is replaced once resolved
+                log.debug("failed to load favorites snapshot with key {}.", key, ex);
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    @Nullable
+    private static AbstractAzResource<?, ?, ?> initFromSnapshot(final SnapshotEntry entry) {
+        try {
+            final AbstractAzResource<?, ?, ?> resource = Azure.az().getOrInitById(entry.getId());
+            // the resource type may be served by another module after upgrade, resolve it remotely instead
+            return Objects.nonNull(resource) && StringUtils.equals(resource.getResourceTypeName(), entry.getLabel()) ? resource : null;
+        } catch (final Throwable e) {
+            log.debug("failed to init favorite {} from snapshot.", entry.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Resolve the favorites grouped by subscription and resource type in parallel, the resources of the same group are
+     * resolved one by one to share the listing cache of the same module. Only the favorites not found are treated as
+     * deleted, the ones failed to resolve (e.g. network errors) are left unresolved, so that they are still rendered
+     * from the snapshot and resolved again on next explicit refresh.
+     */
+    private void resolveLater(final String key, final List<String> ids) {
+        final Map<String, List<String>> groups = new LinkedHashMap<>();
+        ids.stream().filter(this.resolving::add).forEach(id -> groups.computeIfAbsent(getGroup(id), g -> new LinkedList<>()).add(id));
+        groups.values().forEach(group -> this.resolveQueue.add(() -> {
+            Throwable error = null;
+            int errors = 0;
+            try {
+                for (final String id : group) {
+                    try {
+                        this.resolved.put(id, Optional.ofNullable(Azure.az().getById(id)));
+                    } catch (final Throwable e) {
+                        if (isNotFound(e)) {
+                            this.resolved.put(id, Optional.empty());
+                        } else {
+                            log.warn("failed to resolve favorite {}.", id, e);
+                            this.failed.add(id);
+                            error = Optional.ofNullable(error).orElse(e);
+                            errors++;
+                        }
+                    }
+                }
+            } finally {
+                this.resolving.removeAll(group);
+            }
+            this.persistSnapshot(key);
+            super.refresh();
+            if (Objects.nonNull(error)) {
+                final String message = String.format("failed to load %d favorite(s), refresh Favorites to retry.", errors);
+                AzureMessager.getMessager().warning(message + " " + error.getMessage());
+            }
+        }));
+        this.startResolveWorkers();
+    }
+
+    private void startResolveWorkers() {
+        while (true) {
+            final int workers = this.resolveWorkers.get();
+            if (workers >= Math.min(RESOLVE_CONCURRENCY, this.resolveQueue.size())) {
+                return;
+            }
+            if (this.resolveWorkers.compareAndSet(workers, workers + 1)) {
+                AzureTaskManager.getInstance().runOnPooledThread(this::drainResolveQueue);
+            }
+        }
+    }
+
+    private void drainResolveQueue() {
+        try {
+            for (Runnable group = this.resolveQueue.poll(); group != null; group = this.resolveQueue.poll()) {
+                group.run();
+            }
+        } finally {
+            this.resolveWorkers.decrementAndGet();
+            this.startResolveWorkers(); // the groups queued while this worker is exiting
+        }
+    }
+
+    private static boolean isNotFound(final Throwable e) {
+        final Throwable root = Optional.ofNullable(ExceptionUtils.getRootCause(e)).orElse(e);
+        return Stream.of(e, root).anyMatch(t -> t instanceof ManagementException &&
+                Objects.nonNull(((ManagementException) t).getResponse()) &&
+                ((ManagementException) t).getResponse().getStatusCode() == 404);
+    }
+
+    @Nonnull
+    private static String getGroup(final String id) {
+        try {
+            final ResourceId resourceId = ResourceId.fromString(id);
+            return String.join("/", resourceId.subscriptionId(), resourceId.fullResourceType());
+        } catch (final Throwable e) {
+            return id;
+        }
+    }
+
+    private void persistSnapshot(final String key) {
+        try {
+            final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
+            // the unresolved favorites (e.g. failed to resolve) keep their last snapshot
+            final List<SnapshotEntry> existing = loadIds(key).stream()
+                    .map(id -> {
+                        final Optional<AbstractAzResource<?, ?, ?>> resource = this.resolved.get(id);
+                        return Objects.isNull(resource) ? this.snapshots.get(id) : resource.map(SnapshotEntry::of).orElse(null);
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            store.setProperty(this.getName(), key + SNAPSHOT_SUFFIX, mapper.writeValueAsString(existing));
+        } catch (final JsonProcessingException e) {
+            log.warn("failed to persist favorites snapshot with key {}.", key, e);
+        }
+    }
+
     @Nullable
     @Override
     protected AbstractAzResource<?, ?, ?> loadResourceFromAzure(@Nonnull String name, @Nullable String resourceGroup) {
@@ -232,7 +414,10 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
         try {
             final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
             final List<String> idList = resources.stream().map(AbstractAzResource::getId).distinct().collect(Collectors.toList());
+            // pinned resources are resolved already
+            resources.forEach(r -> this.resolved.putIfAbsent(r.getId().toLowerCase(), Optional.of(r)));
             store.setProperty(this.getName(), key, mapper.writeValueAsString(idList));
+            this.persistSnapshot(key);
         } catch (final JsonProcessingException e) {
             AzureMessager.getMessager().error("failed to persist favorites.");
         }
@@ -264,6 +449,10 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
                             if (!Azure.az(AzureAccount.class).isLoggedIn()) {
                                 return "";
                             }
+                            final SnapshotEntry snapshot = Favorites.getInstance().getSnapshotOfUnresolved(r.getId());
+                            if (Objects.nonNull(snapshot)) {
+                                return String.format("Type:%s | Name: %s", snapshot.getLabel(), snapshot.getName());
+                            }
                             final ResourceId id = ResourceId.fromString(r.getId());
                             final Subscription subs = r.getSubscription();
                             final String rg = id.resourceGroupName();
@@ -272,6 +461,9 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
                                 Optional.ofNullable(id.parent()).map(p -> " | Parent:" + p.name()).orElse("");
                         })
                         .withDescription(r -> {
+                            if (Objects.nonNull(Favorites.getInstance().getSnapshotOfUnresolved(r.getId()))) {
+                                return null; // not to load the resource remotely before it's resolved
+                            }
                             if (!r.getSubscription().isSelected()) {
                                 return String.format("(%s)", r.getSubscription().getName());
                             }
@@ -285,4 +477,39 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
     public boolean isAuthRequiredForListing() {
         return false;
     }
+
+    @Nullable
+    private SnapshotEntry getSnapshotOfUnresolved(@Nonnull String id) {
+        final String key = id.toLowerCase();
+        return this.resolved.containsKey(key) ? null : this.snapshots.get(key);
+    }
+
+    /**
+     * what's needed to render a favorite before it's resolved.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class SnapshotEntry {
+        private String id;
+        private String name;
+        // full resource type, e.g. Microsoft.Web/sites
+        private String type;
+        // display name of the resource type, e.g. Web App
+        private String label;
+
+        @Nonnull
+        static SnapshotEntry of(@Nonnull AbstractAzResource<?, ?, ?> resource) {
+            return new SnapshotEntry(resource.getId(), resource.getName(), getType(resource.getId()), resource.getResourceTypeName());
+        }
+
+        @Nonnull
+        private static String getType(@Nonnull String id) {
+            try {
+                return ResourceId.fromString(id).fullResourceType();
+            } catch (final Throwable e) {
+                return StringUtils.EMPTY;
+            }
+        }
+    }
 }
@@ -6,42 +6,99 @@
 package com.microsoft.azure.toolkit.ide.common.portforwarder;
 
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.WebSocket;
+import okio.ByteString;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Forwarder of local port to remote debugging endpoint.
+ * Each local connection is accepted by a selector loop and forwarded through its own web socket, so that debugger can
+ * reconnect or open multiple sockets. All web sockets share one http client and dispatcher.
+ */
+@Slf4j
 public abstract class AbstractPortForwarder {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // stop reading from local connection when too many bytes are queued to send by web socket
+    private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+    protected static final OkHttpClient HTTP_CLIENT;
+
+    static {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(16);
+        HTTP_CLIENT = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+    }
+
     protected ServerSocketChannel server;
-    protected PortForwarderWebSocketListener listener;
+    private Selector selector;
+    private final Map<PortForwarderWebSocketListener, Connection> connections = new ConcurrentHashMap<>();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
 
     public void initLocalSocket(final int port) throws IOException {
         stopForward();
         this.server = ServerSocketChannel.open().bind(new InetSocketAddress(port));
     }
 
-    public void startForward(final int localPort) {
+    /**
+     * start accepting local connections on the port, forwarding stops only when {@link #stopForward()} is called.
+     * it does nothing if the forwarder is already started.
+     */
+    public synchronized void startForward(final int localPort) {
+        if (this.isForwarding()) {
+            return;
+        }
         try {
-            if (Objects.isNull(this.server)) {
+            if (Objects.isNull(this.server) || !this.server.isOpen()) {
                 initLocalSocket(localPort);
             }
-            final OkHttpClient okHttpClient = new OkHttpClient();
-            this.listener = createWebSocketListener(server.accept());
-            final CompletableFuture<WebSocket> future = createSocketBuilder(okHttpClient).buildAsync(listener);
-            future.whenComplete((socket, throwable) -> Optional.ofNullable(throwable).ifPresent(t -> listener.onError(socket, t)));
+            this.server.configureBlocking(false);
+            this.selector = Selector.open();
+            this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+            final ServerSocketChannel server = this.server;
+            final Selector selector = this.selector;
+            final Thread thread = new Thread(() -> this.select(server, selector), "azure-port-forwarder-" + localPort);
+            thread.setDaemon(true);
+            thread.start();
         } catch (final IOException e) {
             stopForward();
             throw new AzureToolkitRuntimeException("Unable to start debugging.", e);
         }
     }
 
-    public void stopForward() {
+    /**
+     * @return {@code true} if the selector loop is accepting local connections.
+     */
+    public synchronized boolean isForwarding() {
+        return Objects.nonNull(this.server) && this.server.isOpen() && Objects.nonNull(this.selector) && this.selector.isOpen();
+    }
+
+    public synchronized void stopForward() {
         if (Objects.nonNull(server) && server.isOpen()) {
             try {
                 server.close();
@@ -49,13 +106,309 @@ public abstract class AbstractPortForwarder {
                 throw new AzureToolkitRuntimeException(e);
             }
         }
-        if (Objects.nonNull(listener) && listener.isAlive()) {
-            listener.closeForwarder();
-        }
+        new ArrayList<>(this.connections.keySet()).stream().filter(PortForwarderWebSocketListener::isAlive)
+            .forEach(PortForwarderWebSocketListener::closeForwarder);
+        Optional.ofNullable(this.selector).ifPresent(Selector::wakeup);
+    }
+
+    /**
+     * @return stats of the alive connections
+     */
+    @Nonnull
+    public List<ConnectionStats> getConnectionStats() {
+        return this.connections.values().stream().map(c -> c.stats).toList();
     }
 
     protected abstract WebSocketBuilder createSocketBuilder(OkHttpClient httpClient);
 
     protected abstract PortForwarderWebSocketListener createWebSocketListener(final SocketChannel portForwarder);
 
+    void onWebSocketOpened(@Nonnull PortForwarderWebSocketListener listener, @Nonnull WebSocket webSocket) {
+        final Connection connection = this.connections.get(listener);
+        if (Objects.nonNull(connection)) {
+            connection.stats.opened();
+            this.execute(() -> connection.open(webSocket));
+        }
+    }
+
+    /**
+     * write message from remote to local connection, {@link PortForwarderWebSocketListener#request()} is called
+     * once all bytes of the message are written.
+     */
+    void write(@Nonnull PortForwarderWebSocketListener listener, @Nonnull ByteBuffer message) {
+        final Connection connection = this.connections.get(listener);
+        if (Objects.isNull(connection)) {
+            listener.request();
+            return;
+        }
+        this.execute(() -> connection.write(message));
+    }
+
+    void onConnectionClosed(@Nonnull PortForwarderWebSocketListener listener) {
+        final Connection connection = this.connections.remove(listener);
+        if (Objects.nonNull(connection)) {
+            log.info("port forwarding connection closed: {}", connection.stats);
+        }
+    }
+
+    private void execute(@Nonnull Runnable task) {
+        this.selectorTasks.add(task);
+        Optional.ofNullable(this.selector).ifPresent(Selector::wakeup);
+    }
+
+    private void select(@Nonnull ServerSocketChannel server, @Nonnull Selector selector) {
+        try (selector) {
+            while (server.isOpen()) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                for (Runnable task = this.selectorTasks.poll(); task != null; task = this.selectorTasks.poll()) {
+                    runQuietly(task);
+                }
+                this.connections.values().forEach(c -> runQuietly(c::resumeReadIfDrained));
+                for (final SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        this.accept(server, selector);
+                    } else if (key.attachment() instanceof Connection connection) {
+                        runQuietly(() -> {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        });
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.warn("port forwarding is stopped unexpectedly", e);
+            this.stopForward();
+        }
+    }
+
+    /**
+     * the connection may be closed by web socket threads at any time, whose key is cancelled then.
+     */
+    private static void runQuietly(@Nonnull Runnable task) {
+        try {
+            task.run();
+        } catch (final CancelledKeyException ignored) {
+        }
+    }
+
+    private void accept(@Nonnull ServerSocketChannel server, @Nonnull Selector selector) throws IOException {
+        final SocketChannel channel = server.accept();
+        if (Objects.isNull(channel)) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        final PortForwarderWebSocketListener listener = createWebSocketListener(channel);
+        this.connections.put(listener, new Connection(this.connectionCount.incrementAndGet(), selector, channel, listener));
+        // building web socket may get access token, which blocks and so runs neither in the selector loop nor in the
+        // dispatcher of the http client, whose threads are shared by all web sockets.
+        AzureTaskManager.getInstance().runOnPooledThread(() -> {
+            try {
+                createSocketBuilder(HTTP_CLIENT).buildAsync(listener)
+                    .whenComplete((socket, throwable) -> Optional.ofNullable(throwable).ifPresent(t -> listener.onError(socket, t)));
+            } catch (final RuntimeException e) {
+                listener.onError(null, e);
+            }
+        });
+    }
+
+    /**
+     * local connection forwarded through a web socket, all methods are called in the selector loop.
+     */
+    private static class Connection {
+        private final Selector selector;
+        private final SocketChannel channel;
+        private final PortForwarderWebSocketListener listener;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final ConnectionStats stats;
+        @Nullable
+        private SelectionKey key;
+        @Nullable
+        private WebSocket webSocket;
+        @Nullable
+        private ByteBuffer pending;
+        private long pendingSince;
+        private boolean readPaused;
+
+        private Connection(int id, Selector selector, SocketChannel channel, PortForwarderWebSocketListener listener) {
+            this.selector = selector;
+            this.channel = channel;
+            this.listener = listener;
+            this.stats = new ConnectionStats(id, String.valueOf(channel.socket().getRemoteSocketAddress()));
+        }
+
+        private void open(@Nonnull WebSocket webSocket) {
+            this.webSocket = webSocket;
+            try {
+                this.key = this.channel.register(this.selector, SelectionKey.OP_READ, this);
+            } catch (final IOException e) {
+                this.listener.onLocalError(webSocket, e, true);
+            }
+        }
+
+        private void read() {
+            if (Objects.isNull(this.webSocket) || Objects.isNull(this.key)) {
+                return;
+            }
+            try {
+                this.readBuffer.clear();
+                final int read = this.listener.readMessage(this.channel, this.readBuffer);
+                if (read < 0) {
+                    this.listener.closeWebSocket(this.webSocket, 1000, "Client closed");
+                    return;
+                }
+                if (read > 0) {
+                    this.readBuffer.flip();
+                    this.webSocket.send(ByteString.of(this.readBuffer));
+                    this.stats.sent(read);
+                }
+                if (this.webSocket.queueSize() > MAX_QUEUED_BYTES) {
+                    this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+                    this.readPaused = true;
+                }
+            } catch (final IOException e) {
+                this.listener.onLocalError(this.webSocket, e, true);
+            }
+        }
+
+        private void resumeReadIfDrained() {
+            if (this.readPaused && Objects.nonNull(this.key) && this.key.isValid() && Objects.nonNull(this.webSocket)
+                && this.webSocket.queueSize() <= MAX_QUEUED_BYTES / 2) {
+                this.key.interestOps(this.key.interestOps() | SelectionKey.OP_READ);
+                this.readPaused = false;
+            }
+        }
+
+        private void write(@Nonnull ByteBuffer message) {
+            this.pending = message;
+            this.pendingSince = System.nanoTime();
+            this.flush();
+        }
+
+        private void flush() {
+            final ByteBuffer message = this.pending;
+            if (Objects.isNull(message)) {
+                return;
+            }
+            try {
+                int written = 0;
+                while (message.hasRemaining()) {
+                    final int count = this.channel.write(message);
+                    if (count == 0) {
+                        break;
+                    }
+                    written += count;
+                }
+                this.stats.received(written);
+                if (message.hasRemaining()) {
+                    Optional.ofNullable(this.key).ifPresent(k -> k.interestOps(k.interestOps() | SelectionKey.OP_WRITE));
+                    return;
+                }
+                Optional.ofNullable(this.key).ifPresent(k -> k.interestOps(k.interestOps() & ~SelectionKey.OP_WRITE));
+                this.stats.delivered(System.nanoTime() - this.pendingSince);
+                this.pending = null;
+                this.listener.request();
+            } catch (final IOException e) {
+                this.pending = null;
+                this.listener.onLocalError(this.webSocket, e, false);
+            }
+        }
+    }
+
+    /**
+     * Throughput and latency of a forwarded connection.
+     */
+    public static class ConnectionStats {
+        @Getter
+        private final int id;
+        @Getter
+        private final String client;
+        private final long acceptedAt = System.nanoTime();
+        private final AtomicLong openedAt = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong totalDeliverNanos = new AtomicLong();
+        private final AtomicLong maxDeliverNanos = new AtomicLong();
+
+        private ConnectionStats(int id, String client) {
+            this.id = id;
+            this.client = client;
+        }
+
+        private void opened() {
+            this.openedAt.set(System.nanoTime());
+        }
+
+        private void sent(long bytes) {
+            this.bytesSent.addAndGet(bytes);
+        }
+
+        private void received(long bytes) {
+            this.bytesReceived.addAndGet(bytes);
+        }
+
+        private void delivered(long nanos) {
+            this.delivered.incrementAndGet();
+            this.totalDeliverNanos.addAndGet(nanos);
+            this.maxDeliverNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * @return bytes from local to remote
+         */
+        public long getBytesSent() {
+            return this.bytesSent.get();
+        }
+
+        /**
+         * @return bytes from remote to local
+         */
+        public long getBytesReceived() {
+            return this.bytesReceived.get();
+        }
+
+        /**
+         * @return time from accepting the local connection to opening the web socket, or -1 if not opened yet
+         */
+        public long getOpenLatencyMillis() {
+            final long opened = this.openedAt.get();
+            return opened == 0 ? -1 : (opened - this.acceptedAt) / 1_000_000;
+        }
+
+        /**
+         * @return average time to write a remote message into the local connection
+         */
+        public long getAverageDeliverMicros() {
+            final long count = this.delivered.get();
+            return count == 0 ? 0 : this.totalDeliverNanos.get() / count / 1_000;
+        }
+
+        public long getMaxDeliverMicros() {
+            return this.maxDeliverNanos.get() / 1_000;
+        }
+
+        /**
+         * @return bytes per second of both directions since accepted
+         */
+        public long getThroughput() {
+            final long nanos = Math.max(1, System.nanoTime() - this.acceptedAt);
+            return (getBytesSent() + getBytesReceived()) * 1_000_000_000L / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s, sent=%dB, received=%dB, throughput=%dB/s, open=%dms, deliver avg=%dus max=%dus",
+                this.id, this.client, getBytesSent(), getBytesReceived(), getThroughput(), getOpenLatencyMillis(),
+                getAverageDeliverMicros(), getMaxDeliverMicros());
+        }
+    }
 }
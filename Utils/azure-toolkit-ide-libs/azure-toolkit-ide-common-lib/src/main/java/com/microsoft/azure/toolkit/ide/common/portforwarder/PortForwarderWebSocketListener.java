@@ -18,20 +18,19 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.BooleanSupplier;
 
+/**
+ * Web socket listener of a local connection, the bytes are pumped by the selector loop of {@link AbstractPortForwarder}.
+ */
 public class PortForwarderWebSocketListener extends WebSocketListener {
     protected volatile boolean opened;
     protected boolean more = true;
     protected final ReentrantLock lock = new ReentrantLock();
     protected final Condition moreRequested;
     protected final CompletableFuture<WebSocket> future;
-    protected final ExecutorService pumperService = Executors.newSingleThreadExecutor();
     protected final AtomicBoolean alive = new AtomicBoolean(true);
     protected final ReadableByteChannel in;
     protected final WritableByteChannel out;
@@ -72,19 +71,7 @@ public class PortForwarderWebSocketListener extends WebSocketListener {
             response.close();
         }
         if (this.in != null) {
-            this.pumperService.execute(() -> {
-                try {
-                    pipe(this.in, webSocket, this.alive::get);
-                } catch (final InterruptedException | IOException e) {
-                    if (e instanceof InterruptedException) {
-                        Thread.currentThread().interrupt();
-                    }
-                    if (this.alive.get()) {
-                        this.closeWebSocket(webSocket, 1001, "Client error");
-                        AzureMessager.getMessager().error(e, "Error while forwarding data from client to remote.");
-                    }
-                }
-            });
+            this.forwarder.onWebSocketOpened(this, webSocket);
         }
         future.complete(webSocket);
     }
@@ -117,6 +104,21 @@ public class PortForwarderWebSocketListener extends WebSocketListener {
         }
     }
 
+    /**
+     * @param fromClient whether the error occurs while reading from the local connection
+     */
+    protected void onLocalError(WebSocket webSocket, Exception e, boolean fromClient) {
+        if (this.alive.get()) {
+            if (fromClient) {
+                this.closeWebSocket(webSocket, 1001, "Client error");
+                AzureMessager.getMessager().error(e, "Error while forwarding data from client to remote.");
+            } else {
+                this.closeWebSocket(webSocket, 1002, "Protocol error");
+                AzureMessager.getMessager().error(e, "Error while forwarding data from remote to client.");
+            }
+        }
+    }
+
     public boolean isAlive() {
         return this.alive.get();
     }
@@ -157,23 +159,9 @@ public class PortForwarderWebSocketListener extends WebSocketListener {
                 AzureMessager.getMessager().error(e, "Error while stop debugger.");
             }
         }
-        this.forwarder.stopForward();
-        this.pumperService.shutdownNow();
-    }
-
-    protected void pipe(ReadableByteChannel in, WebSocket webSocket, BooleanSupplier isAlive) throws IOException, InterruptedException {
-        final ByteBuffer buffer = ByteBuffer.allocate(4096);
-        int read;
-        do {
-            buffer.clear();
-            read = readMessage(in, buffer);
-            if (read > 0) {
-                buffer.flip();
-                webSocket.send(ByteString.of(buffer));
-            } else if (read == 0) {
-                Thread.sleep(50L);
-            }
-        } while (isAlive.getAsBoolean() && read >= 0);
+        // only this connection is closed, the forwarder keeps accepting new connections until stopped.
+        this.forwarder.onConnectionClosed(this);
+        this.request(); // release the web socket thread waiting for the pending write
     }
 
     protected int readMessage(@NotNull ReadableByteChannel channel, @NotNull final ByteBuffer buffer) throws IOException {
@@ -194,30 +182,12 @@ public class PortForwarderWebSocketListener extends WebSocketListener {
         }
     }
 
+    /**
+     * the bytes are written by the selector loop, and {@link #request()} is called when all of them are written.
+     */
     protected void writeMessage(WebSocket webSocket, ByteString bytes) {
-        final ByteBuffer buffer = bytes.asByteBuffer();
         if (this.out != null) {
-            while (true) {
-                try {
-                    if (buffer.hasRemaining()) {
-                        final int written = this.out.write(buffer);
-                        if (written == 0) {
-                            Thread.sleep(50L);
-                        }
-                        continue;
-                    }
-                    this.request();
-                } catch (final InterruptedException | IOException e) {
-                    if (e instanceof InterruptedException) {
-                        Thread.currentThread().interrupt();
-                    }
-                    if (this.alive.get()) {
-                        this.closeWebSocket(webSocket, 1002, "Protocol error");
-                        AzureMessager.getMessager().error(e, "Error while forwarding data from remote to client.");
-                    }
-                }
-                return;
-            }
+            this.forwarder.write(this, bytes.asByteBuffer());
         }
     }
 }